@@ -0,0 +1,253 @@
+package com.example.ezflowscript;
+
+abstract class BinaryNode {
+    static final BinaryNode UNINITIALIZED = new Uninitialized();
+    static final BinaryNode GENERIC = new Generic();
+
+    BinaryNode() {
+    }
+
+    abstract Object execute(Expr.Binary expr, Object left, Object right);
+
+    boolean isNumeric() {
+        return false;
+    }
+
+    static BinaryNode specialize(TokenType type, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            switch (type) {
+                case MINUS:
+                    return SubtractDoubleNode.INSTANCE;
+                case GREATER:
+                    return GreaterDoubleNode.INSTANCE;
+                case GREATER_EQUAL:
+                    return GreaterEqualDoubleNode.INSTANCE;
+                case LESS:
+                    return LessDoubleNode.INSTANCE;
+                case LESS_EQUAL:
+                    return LessEqualDoubleNode.INSTANCE;
+                case PLUS:
+                    return AddDoubleNode.INSTANCE;
+                case SLASH:
+                    return DivideDoubleNode.INSTANCE;
+                case STAR:
+                    return MultiplyDoubleNode.INSTANCE;
+                case EQUAL_EQUAL:
+                    return EqualDoubleNode.INSTANCE;
+                case BANG_EQUAL:
+                    return NotEqualDoubleNode.INSTANCE;
+            }
+        } else if (type == TokenType.PLUS && Rope.isString(left) && Rope.isString(right)) {
+            return AddStringNode.INSTANCE;
+        }
+
+        switch (type) {
+            case EQUAL_EQUAL:
+                return EqualNode.INSTANCE;
+            case BANG_EQUAL:
+                return NotEqualNode.INSTANCE;
+            default:
+                return GENERIC;
+        }
+    }
+
+    final Object generalize(Expr.Binary expr, Object left, Object right) {
+        expr.node = GENERIC;
+        return GENERIC.execute(expr, left, right);
+    }
+
+    private static final class Uninitialized extends BinaryNode {
+        private Uninitialized() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            BinaryNode node = specialize(expr.operator.type, left, right);
+            expr.node = node;
+            return node.execute(expr, left, right);
+        }
+    }
+
+    private static final class Generic extends BinaryNode {
+        private Generic() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            switch (expr.operator.type) {
+                case MINUS:
+                    return Operators.subtract(left, right, expr.operator);
+                case GREATER:
+                    return Operators.greater(left, right, expr.operator);
+                case GREATER_EQUAL:
+                    return Operators.greaterEqual(left, right, expr.operator);
+                case LESS:
+                    return Operators.less(left, right, expr.operator);
+                case LESS_EQUAL:
+                    return Operators.lessEqual(left, right, expr.operator);
+                case BANG_EQUAL:
+                    return !Operators.isEqual(left, right);
+                case EQUAL_EQUAL:
+                    return Operators.isEqual(left, right);
+                case PLUS:
+                    return Operators.add(left, right, expr.operator);
+                case SLASH:
+                    return Operators.divide(left, right, expr.operator);
+                case STAR:
+                    return Operators.multiply(left, right, expr.operator);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final class AddStringNode extends BinaryNode {
+        static final AddStringNode INSTANCE = new AddStringNode();
+
+        private AddStringNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return Rope.isString(left) && Rope.isString(right) ? Rope.concat(left, right) : this.generalize(expr, left, right);
+        }
+    }
+
+    private abstract static class DoubleNode extends BinaryNode {
+        DoubleNode() {
+        }
+
+        boolean isNumeric() {
+            return true;
+        }
+    }
+
+    private static final class AddDoubleNode extends DoubleNode {
+        static final AddDoubleNode INSTANCE = new AddDoubleNode();
+
+        private AddDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left + (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class SubtractDoubleNode extends DoubleNode {
+        static final SubtractDoubleNode INSTANCE = new SubtractDoubleNode();
+
+        private SubtractDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left - (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class MultiplyDoubleNode extends DoubleNode {
+        static final MultiplyDoubleNode INSTANCE = new MultiplyDoubleNode();
+
+        private MultiplyDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left * (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class DivideDoubleNode extends DoubleNode {
+        static final DivideDoubleNode INSTANCE = new DivideDoubleNode();
+
+        private DivideDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left / (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class GreaterDoubleNode extends DoubleNode {
+        static final GreaterDoubleNode INSTANCE = new GreaterDoubleNode();
+
+        private GreaterDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left > (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class GreaterEqualDoubleNode extends DoubleNode {
+        static final GreaterEqualDoubleNode INSTANCE = new GreaterEqualDoubleNode();
+
+        private GreaterEqualDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left >= (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class LessDoubleNode extends DoubleNode {
+        static final LessDoubleNode INSTANCE = new LessDoubleNode();
+
+        private LessDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left < (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class LessEqualDoubleNode extends DoubleNode {
+        static final LessEqualDoubleNode INSTANCE = new LessEqualDoubleNode();
+
+        private LessEqualDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? (Double)left <= (Double)right : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class EqualNode extends BinaryNode {
+        static final EqualNode INSTANCE = new EqualNode();
+
+        private EqualNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left == right || Operators.isEqual(left, right);
+        }
+    }
+
+    private static final class NotEqualNode extends BinaryNode {
+        static final NotEqualNode INSTANCE = new NotEqualNode();
+
+        private NotEqualNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left != right && !Operators.isEqual(left, right);
+        }
+    }
+
+    private static final class EqualDoubleNode extends BinaryNode {
+        static final EqualDoubleNode INSTANCE = new EqualDoubleNode();
+
+        private EqualDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? Double.doubleToLongBits((Double)left) == Double.doubleToLongBits((Double)right) : this.generalize(expr, left, right);
+        }
+    }
+
+    private static final class NotEqualDoubleNode extends BinaryNode {
+        static final NotEqualDoubleNode INSTANCE = new NotEqualDoubleNode();
+
+        private NotEqualDoubleNode() {
+        }
+
+        Object execute(Expr.Binary expr, Object left, Object right) {
+            return left instanceof Double && right instanceof Double ? Double.doubleToLongBits((Double)left) != Double.doubleToLongBits((Double)right) : this.generalize(expr, left, right);
+        }
+    }
+}
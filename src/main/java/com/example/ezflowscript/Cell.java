@@ -0,0 +1,9 @@
+package com.example.ezflowscript;
+
+final class Cell {
+    Object value;
+
+    Cell(Object value) {
+        this.value = value;
+    }
+}
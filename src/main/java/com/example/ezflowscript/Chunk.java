@@ -0,0 +1,48 @@
+package com.example.ezflowscript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class Chunk {
+    byte[] code = new byte[64];
+    int[] lines = new int[64];
+    int count = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    void write(byte value, int line) {
+        if (this.count == this.code.length) {
+            this.code = Arrays.copyOf(this.code, this.count * 2);
+            this.lines = Arrays.copyOf(this.lines, this.count * 2);
+        }
+
+        this.code[this.count] = value;
+        this.lines[this.count] = line;
+        ++this.count;
+    }
+
+    int addConstant(Object value) {
+        if (value instanceof Double || value instanceof String || value instanceof Symbol) {
+            Integer index = this.constantIndex.get(value);
+            if (index != null) {
+                return index;
+            }
+
+            this.constantIndex.put(value, this.constants.size());
+        }
+
+        this.constants.add(value);
+        return this.constants.size() - 1;
+    }
+
+    Object[] constants() {
+        return this.constants.toArray();
+    }
+
+    int getLine(int offset) {
+        return this.lines[offset];
+    }
+}
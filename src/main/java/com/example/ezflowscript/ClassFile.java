@@ -0,0 +1,235 @@
+package com.example.ezflowscript;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ClassFile {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    private static final int VERSION = 49;
+    private static final int MAX_UTF8 = 65535;
+    private static final int MAX_POOL = 65535;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut;
+    private final Map<String, Integer> entries = new HashMap<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private int poolCount = 1;
+
+    ClassFile() {
+        this.poolOut = new DataOutputStream(this.pool);
+    }
+
+    int utf8(String value) {
+        Integer index = this.entries.get("U" + value);
+        if (index != null) {
+            return index;
+        } else if (!fits(value)) {
+            throw new Overflow("Constant too long.");
+        } else {
+            try {
+                this.poolOut.writeByte(1);
+                this.poolOut.writeUTF(value);
+            } catch (IOException var4) {
+                throw new IllegalStateException(var4);
+            }
+
+            return this.add("U" + value, 1);
+        }
+    }
+
+    static boolean fits(String value) {
+        int length = value.length();
+        if (length * 3 <= MAX_UTF8) {
+            return true;
+        } else if (length > MAX_UTF8) {
+            return false;
+        } else {
+            int encoded = 0;
+
+            for(int i = 0; i < length; ++i) {
+                char c = value.charAt(i);
+                encoded += c >= 1 && c <= 127 ? 1 : (c <= 2047 ? 2 : 3);
+            }
+
+            return encoded <= MAX_UTF8;
+        }
+    }
+
+    int classRef(String internalName) {
+        Integer index = this.entries.get("C" + internalName);
+        if (index != null) {
+            return index;
+        } else {
+            int name = this.utf8(internalName);
+            this.write(7, name);
+            return this.add("C" + internalName, 1);
+        }
+    }
+
+    int string(String value) {
+        Integer index = this.entries.get("S" + value);
+        if (index != null) {
+            return index;
+        } else {
+            int utf8 = this.utf8(value);
+            this.write(8, utf8);
+            return this.add("S" + value, 1);
+        }
+    }
+
+    int doubleConstant(double value) {
+        String key = "D" + Double.doubleToRawLongBits(value);
+        Integer index = this.entries.get(key);
+        if (index != null) {
+            return index;
+        } else {
+            try {
+                this.poolOut.writeByte(6);
+                this.poolOut.writeDouble(value);
+            } catch (IOException var6) {
+                throw new IllegalStateException(var6);
+            }
+
+            return this.add(key, 2);
+        }
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return this.memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return this.memberRef(10, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        String key = "M" + tag + owner + "." + name + descriptor;
+        Integer index = this.entries.get(key);
+        if (index != null) {
+            return index;
+        } else {
+            int ownerIndex = this.classRef(owner);
+            int nameAndType = this.nameAndType(name, descriptor);
+            this.write(tag, ownerIndex, nameAndType);
+            return this.add(key, 1);
+        }
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ":" + descriptor;
+        Integer index = this.entries.get(key);
+        if (index != null) {
+            return index;
+        } else {
+            int nameIndex = this.utf8(name);
+            int descriptorIndex = this.utf8(descriptor);
+            this.write(12, nameIndex, descriptorIndex);
+            return this.add(key, 1);
+        }
+    }
+
+    void addMethod(int access, String name, String descriptor, byte[] code, int maxStack, int maxLocals, int[] handlers) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(this.utf8(name));
+            out.writeShort(this.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(this.utf8("Code"));
+            out.writeInt(12 + code.length + handlers.length * 2);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(handlers.length / 4);
+
+            for(int i = 0; i < handlers.length; ++i) {
+                out.writeShort(handlers[i]);
+            }
+
+            out.writeShort(0);
+        } catch (IOException var11) {
+            throw new IllegalStateException(var11);
+        }
+
+        this.methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(int access, String thisClass, String superClass) {
+        int thisIndex = this.classRef(thisClass);
+        int superIndex = this.classRef(superClass);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(this.poolCount);
+            this.pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(this.methods.size());
+
+            for(int i = 0; i < this.methods.size(); ++i) {
+                out.write(this.methods.get(i));
+            }
+
+            out.writeShort(0);
+        } catch (IOException var9) {
+            throw new IllegalStateException(var9);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private void write(int tag, int first) {
+        try {
+            this.poolOut.writeByte(tag);
+            this.poolOut.writeShort(first);
+        } catch (IOException var4) {
+            throw new IllegalStateException(var4);
+        }
+    }
+
+    private void write(int tag, int first, int second) {
+        try {
+            this.poolOut.writeByte(tag);
+            this.poolOut.writeShort(first);
+            this.poolOut.writeShort(second);
+        } catch (IOException var5) {
+            throw new IllegalStateException(var5);
+        }
+    }
+
+    private int add(String key, int size) {
+        int index = this.poolCount;
+        this.poolCount += size;
+        if (this.poolCount > MAX_POOL) {
+            throw new Overflow("Constant pool overflow.");
+        } else {
+            this.entries.put(key, index);
+            return index;
+        }
+    }
+
+    static final class Overflow extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Overflow(String message) {
+            super(message, (Throwable)null, false, false);
+        }
+    }
+}
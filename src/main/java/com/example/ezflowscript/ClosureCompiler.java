@@ -0,0 +1,510 @@
+package com.example.ezflowscript;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ClosureCompiler implements Expr.Visitor<ClosureCompiler.Closure>, Stmt.Visitor<ClosureCompiler.Closure> {
+    private static final Object RETURN = new Object();
+    private static final Object[] NO_CONSTANTS = new Object[0];
+    private final Interpreter interpreter;
+    private final boolean speculate;
+    private Object returnValue;
+
+    ClosureCompiler(Interpreter interpreter, boolean speculate) {
+        this.interpreter = interpreter;
+        this.speculate = speculate;
+    }
+
+    void run(List<Stmt> statements, int slotCount) {
+        this.compile(statements).apply(new Environment(slotCount), (Cell[])null);
+    }
+
+    CompiledFunction compile(Stmt.Function function) {
+        return new Body(this.compile(function.body));
+    }
+
+    private Closure compile(List<Stmt> statements) {
+        Closure[] closures = new Closure[statements.size()];
+
+        for(int i = 0; i < closures.length; ++i) {
+            closures[i] = this.compile(statements.get(i));
+        }
+
+        if (closures.length == 1) {
+            return closures[0];
+        } else {
+            return (frame, upvalues) -> {
+                for(int i = 0; i < closures.length; ++i) {
+                    if (closures[i].apply(frame, upvalues) == RETURN) {
+                        return RETURN;
+                    }
+                }
+
+                return null;
+            };
+        }
+    }
+
+    Closure compile(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    Closure compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    public Closure visitBlockStmt(Stmt.Block stmt) {
+        return this.compile(stmt.statements);
+    }
+
+    public Closure visitClassStmt(Stmt.Class stmt) {
+        Closure superclass = stmt.superclass != null ? this.compile((Expr)stmt.superclass) : null;
+        Token superName = stmt.superclass != null ? stmt.superclass.name : null;
+        Closure define = this.define(stmt.name, stmt.slot, stmt.captured, (Closure)null);
+        Store store = this.store(stmt.name, stmt.slot, stmt.captured, -1, (Expr.Reference)null);
+        String name = stmt.name.lexeme;
+        int superSlot = stmt.superSlot;
+        List<Stmt.Function> methods = stmt.methods;
+        return (frame, upvalues) -> {
+            Object parent = null;
+            if (superclass != null) {
+                parent = superclass.apply(frame, upvalues);
+                if (!(parent instanceof EzFlowScriptClass)) {
+                    throw new RuntimeError(superName, "Superclass must be a class.");
+                }
+            }
+
+            define.apply(frame, upvalues);
+            if (superclass != null) {
+                frame.set(superSlot, new Cell(parent));
+            }
+
+            Map<Symbol, EzFlowScriptFunction> functions = new HashMap<>();
+
+            for(int i = 0; i < methods.size(); ++i) {
+                Stmt.Function method = methods.get(i);
+                functions.put(method.name.symbol, new EzFlowScriptFunction(method, capture(method, frame, upvalues), method.name.symbol == Symbol.INIT));
+            }
+
+            store.store(frame, upvalues, new EzFlowScriptClass(name, (EzFlowScriptClass)parent, functions));
+            return null;
+        };
+    }
+
+    public Closure visitExpressionStmt(Stmt.Expression stmt) {
+        Closure expression = this.compile(stmt.expression);
+        return (frame, upvalues) -> {
+            expression.apply(frame, upvalues);
+            return null;
+        };
+    }
+
+    public Closure visitFunctionStmt(Stmt.Function stmt) {
+        int slot = stmt.slot;
+        if (slot == -1) {
+            Environment globals = this.interpreter.globals;
+            Symbol name = stmt.name.symbol;
+            return (frame, upvalues) -> {
+                globals.define(name, new EzFlowScriptFunction(stmt, capture(stmt, frame, upvalues), false));
+                return null;
+            };
+        } else if (stmt.captured) {
+            return (frame, upvalues) -> {
+                Cell cell = new Cell((Object)null);
+                frame.set(slot, cell);
+                cell.value = new EzFlowScriptFunction(stmt, capture(stmt, frame, upvalues), false);
+                return null;
+            };
+        } else {
+            return (frame, upvalues) -> {
+                frame.set(slot, new EzFlowScriptFunction(stmt, capture(stmt, frame, upvalues), false));
+                return null;
+            };
+        }
+    }
+
+    public Closure visitIfStmt(Stmt.If stmt) {
+        Closure condition = this.compile(stmt.condition);
+        Closure thenBranch = this.compile(stmt.thenBranch);
+        if (stmt.elseBranch == null) {
+            return (frame, upvalues) -> Operators.isTruthy(condition.apply(frame, upvalues)) ? thenBranch.apply(frame, upvalues) : null;
+        } else {
+            Closure elseBranch = this.compile(stmt.elseBranch);
+            return (frame, upvalues) -> Operators.isTruthy(condition.apply(frame, upvalues)) ? thenBranch.apply(frame, upvalues) : elseBranch.apply(frame, upvalues);
+        }
+    }
+
+    public Closure visitPrintStmt(Stmt.Print stmt) {
+        Closure expression = this.compile(stmt.expression);
+        Interpreter interpreter = this.interpreter;
+        return (frame, upvalues) -> {
+            System.out.println(interpreter.stringify(expression.apply(frame, upvalues)));
+            return null;
+        };
+    }
+
+    public Closure visitReturnStmt(Stmt.Return stmt) {
+        Closure value;
+        if (stmt.tailCall) {
+            value = this.call((Expr.Call)stmt.value, true);
+        } else if (stmt.value != null) {
+            value = this.compile(stmt.value);
+        } else {
+            value = null;
+        }
+
+        return (frame, upvalues) -> {
+            this.returnValue = value != null ? value.apply(frame, upvalues) : null;
+            return RETURN;
+        };
+    }
+
+    public Closure visitVarStmt(Stmt.Var stmt) {
+        Closure initializer = stmt.initializer != null ? this.compile(stmt.initializer) : null;
+        return this.define(stmt.name, stmt.slot, stmt.captured, initializer);
+    }
+
+    private Closure define(Token name, int slot, boolean captured, Closure initializer) {
+        if (slot == -1) {
+            Environment globals = this.interpreter.globals;
+            Symbol key = name.symbol;
+            return (frame, upvalues) -> {
+                globals.define(key, initializer != null ? initializer.apply(frame, upvalues) : null);
+                return null;
+            };
+        } else if (captured) {
+            return (frame, upvalues) -> {
+                frame.set(slot, new Cell(initializer != null ? initializer.apply(frame, upvalues) : null));
+                return null;
+            };
+        } else {
+            return (frame, upvalues) -> {
+                frame.set(slot, initializer != null ? initializer.apply(frame, upvalues) : null);
+                return null;
+            };
+        }
+    }
+
+    public Closure visitWhileStmt(Stmt.While stmt) {
+        Closure condition = this.compile(stmt.condition);
+        Closure body = this.compile(stmt.body);
+        return (frame, upvalues) -> {
+            while(Operators.isTruthy(condition.apply(frame, upvalues))) {
+                if (body.apply(frame, upvalues) == RETURN) {
+                    return RETURN;
+                }
+            }
+
+            return null;
+        };
+    }
+
+    public Closure visitAssignExpr(Expr.Assign expr) {
+        Closure value = this.compile(expr.value);
+        Store store = this.store(expr.name, expr.slot, expr.captured, expr.upvalue, expr);
+        return (frame, upvalues) -> {
+            Object result = value.apply(frame, upvalues);
+            store.store(frame, upvalues, result);
+            return result;
+        };
+    }
+
+    private Store store(Token name, int slot, boolean captured, int upvalue, Expr.Reference reference) {
+        if (slot != -1) {
+            return captured ? (frame, upvalues, value) -> frame.cell(slot).value = value : (frame, upvalues, value) -> frame.set(slot, value);
+        } else if (upvalue != -1) {
+            return (frame, upvalues, value) -> upvalues[upvalue].value = value;
+        } else {
+            Environment globals = this.interpreter.globals;
+            return reference != null ? (frame, upvalues, value) -> globals.cell(reference, name).value = value : (frame, upvalues, value) -> globals.assign(name, value);
+        }
+    }
+
+    public Closure visitBinaryExpr(Expr.Binary expr) {
+        Closure left = this.compile(expr.left);
+        Closure right = this.compile(expr.right);
+        Token operator = expr.operator;
+        if (this.speculate && expr.node.isNumeric()) {
+            return this.numeric(left, right, operator);
+        }
+
+        switch (operator.type) {
+            case MINUS:
+                return (frame, upvalues) -> Operators.subtract(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case GREATER:
+                return (frame, upvalues) -> Operators.greater(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case GREATER_EQUAL:
+                return (frame, upvalues) -> Operators.greaterEqual(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case LESS:
+                return (frame, upvalues) -> Operators.less(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case LESS_EQUAL:
+                return (frame, upvalues) -> Operators.lessEqual(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case BANG_EQUAL:
+                return (frame, upvalues) -> !Operators.isEqual(left.apply(frame, upvalues), right.apply(frame, upvalues));
+            case EQUAL_EQUAL:
+                return (frame, upvalues) -> Operators.isEqual(left.apply(frame, upvalues), right.apply(frame, upvalues));
+            case PLUS:
+                return (frame, upvalues) -> Operators.add(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case SLASH:
+                return (frame, upvalues) -> Operators.divide(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            case STAR:
+                return (frame, upvalues) -> Operators.multiply(left.apply(frame, upvalues), right.apply(frame, upvalues), operator);
+            default:
+                return (frame, upvalues) -> null;
+        }
+    }
+
+    private Closure numeric(Closure left, Closure right, Token operator) {
+        switch (operator.type) {
+            case MINUS:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a - (Double)b : Operators.subtract(a, b, operator);
+                };
+            case GREATER:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a > (Double)b : Operators.greater(a, b, operator);
+                };
+            case GREATER_EQUAL:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a >= (Double)b : Operators.greaterEqual(a, b, operator);
+                };
+            case LESS:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a < (Double)b : Operators.less(a, b, operator);
+                };
+            case LESS_EQUAL:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a <= (Double)b : Operators.lessEqual(a, b, operator);
+                };
+            case PLUS:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a + (Double)b : Operators.add(a, b, operator);
+                };
+            case SLASH:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a / (Double)b : Operators.divide(a, b, operator);
+                };
+            default:
+                return (frame, upvalues) -> {
+                    Object a = left.apply(frame, upvalues);
+                    Object b = right.apply(frame, upvalues);
+                    return a instanceof Double && b instanceof Double ? (Double)a * (Double)b : Operators.multiply(a, b, operator);
+                };
+        }
+    }
+
+    public Closure visitCallExpr(Expr.Call expr) {
+        return this.call(expr, false);
+    }
+
+    private Closure call(Expr.Call expr, boolean tail) {
+        Invoker invoker = this.invoker(expr, tail);
+        if (expr.invoke && expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get)expr.callee;
+            Closure object = this.compile(get.object);
+            return (frame, upvalues) -> {
+                Object receiver = object.apply(frame, upvalues);
+                EzFlowScriptFunction method = JitRuntime.method(receiver, get);
+                return invoker.invoke(receiver, method, JitRuntime.field(receiver, method, get), frame, upvalues);
+            };
+        } else if (expr.invoke && expr.callee instanceof Expr.Super) {
+            Expr.Super callee = (Expr.Super)expr.callee;
+            Closure superclass = this.load(callee, callee.keyword);
+            Closure object = this.load(callee.receiver, callee.keyword);
+            return (frame, upvalues) -> {
+                EzFlowScriptFunction method = JitRuntime.superMethod(superclass.apply(frame, upvalues), callee);
+                return invoker.invoke(object.apply(frame, upvalues), method, (Object)null, frame, upvalues);
+            };
+        } else {
+            Closure callee = this.compile(expr.callee);
+            return (frame, upvalues) -> invoker.invoke((Object)null, (EzFlowScriptFunction)null, callee.apply(frame, upvalues), frame, upvalues);
+        }
+    }
+
+    private Invoker invoker(Expr.Call expr, boolean tail) {
+        Interpreter interpreter = this.interpreter;
+        Closure[] arguments = new Closure[expr.arguments.size()];
+
+        for(int i = 0; i < arguments.length; ++i) {
+            arguments[i] = this.compile(expr.arguments.get(i));
+        }
+
+        if (tail) {
+            return (receiver, method, callee, frame, upvalues) -> JitRuntime.tail(interpreter, receiver, method, callee, evaluate(arguments, frame, upvalues), expr);
+        } else {
+            switch (arguments.length) {
+                case 0:
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke0(interpreter, receiver, method, callee, expr);
+                case 1: {
+                    Closure a = arguments[0];
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke1(interpreter, receiver, method, callee, a.apply(frame, upvalues), expr);
+                }
+                case 2: {
+                    Closure a = arguments[0];
+                    Closure b = arguments[1];
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke2(interpreter, receiver, method, callee, a.apply(frame, upvalues), b.apply(frame, upvalues), expr);
+                }
+                case 3: {
+                    Closure a = arguments[0];
+                    Closure b = arguments[1];
+                    Closure c = arguments[2];
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke3(interpreter, receiver, method, callee, a.apply(frame, upvalues), b.apply(frame, upvalues), c.apply(frame, upvalues), expr);
+                }
+                case 4: {
+                    Closure a = arguments[0];
+                    Closure b = arguments[1];
+                    Closure c = arguments[2];
+                    Closure d = arguments[3];
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke4(interpreter, receiver, method, callee, a.apply(frame, upvalues), b.apply(frame, upvalues), c.apply(frame, upvalues), d.apply(frame, upvalues), expr);
+                }
+                default:
+                    return (receiver, method, callee, frame, upvalues) -> JitRuntime.invoke(interpreter, receiver, method, callee, evaluate(arguments, frame, upvalues), expr);
+            }
+        }
+    }
+
+    private static Object[] evaluate(Closure[] arguments, Environment frame, Cell[] upvalues) {
+        Object[] values = new Object[arguments.length];
+
+        for(int i = 0; i < values.length; ++i) {
+            values[i] = arguments[i].apply(frame, upvalues);
+        }
+
+        return values;
+    }
+
+    public Closure visitGetExpr(Expr.Get expr) {
+        Closure object = this.compile(expr.object);
+        return (frame, upvalues) -> JitRuntime.getProperty(object.apply(frame, upvalues), expr);
+    }
+
+    public Closure visitGroupingExpr(Expr.Grouping expr) {
+        return this.compile(expr.expression);
+    }
+
+    public Closure visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+        return (frame, upvalues) -> value;
+    }
+
+    public Closure visitLogicalExpr(Expr.Logical expr) {
+        Closure left = this.compile(expr.left);
+        Closure right = this.compile(expr.right);
+        if (expr.operator.type == TokenType.OR) {
+            return (frame, upvalues) -> {
+                Object value = left.apply(frame, upvalues);
+                return Operators.isTruthy(value) ? value : right.apply(frame, upvalues);
+            };
+        } else {
+            return (frame, upvalues) -> {
+                Object value = left.apply(frame, upvalues);
+                return !Operators.isTruthy(value) ? value : right.apply(frame, upvalues);
+            };
+        }
+    }
+
+    public Closure visitSetExpr(Expr.Set expr) {
+        Closure object = this.compile(expr.object);
+        Closure value = this.compile(expr.value);
+        return (frame, upvalues) -> {
+            EzFlowScriptInstance instance = JitRuntime.instance(object.apply(frame, upvalues), expr);
+            Object result = value.apply(frame, upvalues);
+            JitRuntime.setProperty(instance, result, expr);
+            return result;
+        };
+    }
+
+    public Closure visitSuperExpr(Expr.Super expr) {
+        Closure superclass = this.load(expr, expr.keyword);
+        Closure receiver = this.load(expr.receiver, expr.keyword);
+        return (frame, upvalues) -> JitRuntime.superProperty(superclass.apply(frame, upvalues), receiver.apply(frame, upvalues), expr);
+    }
+
+    public Closure visitThisExpr(Expr.This expr) {
+        return this.load(expr, expr.keyword);
+    }
+
+    public Closure visitUnaryExpr(Expr.Unary expr) {
+        Closure right = this.compile(expr.right);
+        Token operator = expr.operator;
+        if (operator.type == TokenType.BANG) {
+            return (frame, upvalues) -> !Operators.isTruthy(right.apply(frame, upvalues));
+        } else {
+            return (frame, upvalues) -> Operators.negate(right.apply(frame, upvalues), operator);
+        }
+    }
+
+    public Closure visitVariableExpr(Expr.Variable expr) {
+        return this.load(expr, expr.name);
+    }
+
+    private Closure load(Expr.Reference expr, Token name) {
+        int slot = expr.slot;
+        if (slot != -1) {
+            return expr.captured ? (frame, upvalues) -> ((Cell)frame.get(slot)).value : (frame, upvalues) -> frame.get(slot);
+        } else if (expr.upvalue != -1) {
+            int index = expr.upvalue;
+            return (frame, upvalues) -> upvalues[index].value;
+        } else {
+            Environment globals = this.interpreter.globals;
+            return (frame, upvalues) -> globals.cell(expr, name).value;
+        }
+    }
+
+    private static Cell[] capture(Stmt.Function declaration, Environment frame, Cell[] upvalues) {
+        Cell[] cells = new Cell[declaration.upvalueIndices.length];
+
+        for(int i = 0; i < cells.length; ++i) {
+            int index = declaration.upvalueIndices[i];
+            cells[i] = declaration.upvalueIsLocal[i] ? frame.cell(index) : upvalues[index];
+        }
+
+        return cells;
+    }
+
+    interface Closure {
+        Object apply(Environment frame, Cell[] upvalues);
+    }
+
+    private interface Store {
+        void store(Environment frame, Cell[] upvalues, Object value);
+    }
+
+    private interface Invoker {
+        Object invoke(Object receiver, EzFlowScriptFunction method, Object callee, Environment frame, Cell[] upvalues);
+    }
+
+    private final class Body extends CompiledFunction {
+        private final Closure body;
+
+        Body(Closure body) {
+            super(ClosureCompiler.NO_CONSTANTS);
+            this.body = body;
+        }
+
+        Object run(Interpreter interpreter, Cell[] upvalues, Environment frame) {
+            if (this.body.apply(frame, upvalues) == ClosureCompiler.RETURN) {
+                Object value = ClosureCompiler.this.returnValue;
+                ClosureCompiler.this.returnValue = null;
+                return value;
+            } else {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ezflowscript;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+final class Compilation implements Runnable {
+    final Path path;
+    final ErrorReporter reporter;
+    private final boolean lazy;
+    private final boolean infer;
+    private final boolean singlePass;
+    private CharSequence source;
+    List<Stmt> statements;
+    int slotCount;
+    VMFunction function;
+
+    Compilation(Path path, ErrorReporter reporter, boolean lazy, boolean infer, boolean singlePass) {
+        this.path = path;
+        this.reporter = reporter;
+        this.lazy = lazy;
+        this.infer = infer;
+        this.singlePass = singlePass;
+    }
+
+    Compilation(CharSequence source, ErrorReporter reporter, boolean lazy, boolean infer, boolean singlePass) {
+        this((Path)null, reporter, lazy, infer, singlePass);
+        this.source = source;
+    }
+
+    public void run() {
+        try {
+            if (this.source == null) {
+                this.source = MappedSource.read(this.path);
+            }
+        } catch (IOException var2) {
+            this.reporter.error("Could not read file: " + var2.getMessage());
+            return;
+        }
+
+        Scanner scanner = new Scanner(this.source, this.reporter);
+        if (this.singlePass) {
+            ErrorReporter resolution = new ErrorReporter();
+            Resolver resolver = new Resolver(resolution);
+            Parser parser = new Parser(scanner.scanTokens(), this.reporter, this.lazy, resolver);
+            this.statements = parser.parse();
+            if (!this.reporter.hadError) {
+                this.reporter.addAll(resolution);
+                this.slotCount = resolver.slotCount();
+            }
+        } else {
+            Parser parser = new Parser(scanner.scanTokens(), this.reporter, this.lazy, (Resolver)null);
+            this.statements = parser.parse();
+            if (!this.reporter.hadError) {
+                Resolver resolver = new Resolver(this.reporter);
+                resolver.resolve(this.statements);
+                this.slotCount = resolver.slotCount();
+            }
+        }
+
+        if (!this.reporter.hadError && this.infer) {
+            (new TypeInference()).infer(this.statements);
+        }
+
+    }
+
+    static void compileBody(Stmt.Function function, ErrorReporter reporter) {
+        Parser parser = new Parser(function.tokens, reporter);
+        function.body = parser.parseBody(function.bodyStart);
+        if (!reporter.hadError) {
+            (new Resolver(reporter)).resolveBody(function);
+        }
+
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.ezflowscript;
+
+abstract class CompiledFunction {
+    final Object[] constants;
+    final boolean direct;
+
+    CompiledFunction(Object[] constants) {
+        this(constants, false);
+    }
+
+    CompiledFunction(Object[] constants, boolean direct) {
+        this.constants = constants;
+        this.direct = direct;
+    }
+
+    abstract Object run(Interpreter interpreter, Cell[] upvalues, Environment frame);
+
+    Object call(Interpreter interpreter, Cell[] upvalues) {
+        throw new IllegalStateException();
+    }
+
+    Object call(Interpreter interpreter, Cell[] upvalues, Object a) {
+        throw new IllegalStateException();
+    }
+
+    Object call(Interpreter interpreter, Cell[] upvalues, Object a, Object b) {
+        throw new IllegalStateException();
+    }
+
+    Object call(Interpreter interpreter, Cell[] upvalues, Object a, Object b, Object c) {
+        throw new IllegalStateException();
+    }
+
+    Object call(Interpreter interpreter, Cell[] upvalues, Object a, Object b, Object c, Object d) {
+        throw new IllegalStateException();
+    }
+
+    Object call(Interpreter interpreter, Cell[] upvalues, Object a, Object b, Object c, Object d, Object e) {
+        throw new IllegalStateException();
+    }
+}
@@ -0,0 +1,722 @@
+package com.example.ezflowscript;
+
+import java.util.Iterator;
+import java.util.List;
+
+class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final int MAX_LOCALS = 256;
+    private static final int MAX_UPVALUES = 256;
+    private static final int MAX_CONSTANTS = 65536;
+    private static final int MAX_JUMP = 65535;
+
+    private final VM vm;
+    private final ErrorReporter reporter;
+    private FunctionState current;
+    private ClassState currentClass;
+    private Token location;
+
+    Compiler(VM vm, ErrorReporter reporter) {
+        this.vm = vm;
+        this.reporter = reporter;
+    }
+
+    VMFunction compile(List<Stmt> statements) {
+        this.current = new FunctionState(null, new VMFunction(null), FunctionType.SCRIPT);
+        this.location = new Token(TokenType.EOF, "", null, 1);
+        Iterator<Stmt> var2 = statements.iterator();
+
+        while(var2.hasNext()) {
+            Stmt statement = var2.next();
+            this.compile(statement);
+        }
+
+        this.emitReturn();
+        return this.endFunction();
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    private void compileBody(List<Stmt> statements) {
+        Iterator<Stmt> var2 = statements.iterator();
+
+        while(var2.hasNext()) {
+            Stmt statement = var2.next();
+            this.compile(statement);
+        }
+    }
+
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        this.beginScope();
+        this.compileBody(stmt.statements);
+        this.endScope();
+        return null;
+    }
+
+    public Void visitClassStmt(Stmt.Class stmt) {
+        this.location = stmt.name;
+        int nameConstant = this.identifierConstant(stmt.name);
+        this.declareVariable(stmt.name);
+        this.emitOp(OpCode.CLASS, 1);
+        this.emitShort(nameConstant);
+        this.defineVariable(stmt.name);
+        ClassState classState = new ClassState(this.currentClass);
+        this.currentClass = classState;
+        if (stmt.superclass != null) {
+            this.namedVariable(stmt.superclass.name, false);
+            this.beginScope();
+            this.addLocal("super");
+            this.markInitialized();
+            this.namedVariable(stmt.name, false);
+            this.emitOp(OpCode.INHERIT, -1);
+            classState.hasSuperclass = true;
+        }
+
+        this.namedVariable(stmt.name, false);
+        Iterator<Stmt.Function> var4 = stmt.methods.iterator();
+
+        while(var4.hasNext()) {
+            Stmt.Function method = var4.next();
+            FunctionType type = method.name.lexeme.equals("init") ? FunctionType.INITIALIZER : FunctionType.METHOD;
+            this.function(method, type);
+            this.location = method.name;
+            this.emitOp(OpCode.METHOD, -1);
+            this.emitShort(this.identifierConstant(method.name));
+        }
+
+        this.emitOp(OpCode.POP, -1);
+        if (classState.hasSuperclass) {
+            this.endScope();
+        }
+
+        this.currentClass = classState.enclosing;
+        return null;
+    }
+
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        if (stmt.expression instanceof Expr.Assign assign) {
+            this.compile(assign.value);
+            this.storeVariable(assign.name);
+        } else {
+            this.compile(stmt.expression);
+            this.emitOp(OpCode.POP, -1);
+        }
+
+        return null;
+    }
+
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        this.location = stmt.name;
+        this.declareVariable(stmt.name);
+        this.markInitialized();
+        this.function(stmt, FunctionType.FUNCTION);
+        this.defineVariable(stmt.name);
+        return null;
+    }
+
+    public Void visitIfStmt(Stmt.If stmt) {
+        int thenJump = this.condition(stmt.condition);
+        this.compile(stmt.thenBranch);
+        if (stmt.elseBranch != null) {
+            int elseJump = this.emitJump(OpCode.JUMP, 0);
+            this.patchJump(thenJump);
+            this.compile(stmt.elseBranch);
+            this.patchJump(elseJump);
+        } else {
+            this.patchJump(thenJump);
+        }
+
+        return null;
+    }
+
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        this.compile(stmt.expression);
+        this.emitOp(OpCode.PRINT, -1);
+        return null;
+    }
+
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        this.location = stmt.keyword;
+        if (stmt.value == null) {
+            this.emitReturn();
+        } else {
+            this.compile(stmt.value);
+            this.location = stmt.keyword;
+            this.emitOp(OpCode.RETURN, -1);
+        }
+
+        return null;
+    }
+
+    public Void visitVarStmt(Stmt.Var stmt) {
+        this.location = stmt.name;
+        this.declareVariable(stmt.name);
+        if (stmt.initializer != null) {
+            this.compile(stmt.initializer);
+        } else {
+            this.emitOp(OpCode.NIL, 1);
+        }
+
+        this.location = stmt.name;
+        this.defineVariable(stmt.name);
+        return null;
+    }
+
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = this.current.function.chunk.count;
+        int exitJump = this.condition(stmt.condition);
+        this.compile(stmt.body);
+        this.emitLoop(loopStart);
+        this.patchJump(exitJump);
+        return null;
+    }
+
+    public Void visitAssignExpr(Expr.Assign expr) {
+        this.compile(expr.value);
+        this.namedVariable(expr.name, true);
+        return null;
+    }
+
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        this.compile(expr.left);
+        byte local = arithmetic(expr.operator.type, true);
+        if (local != -1 && this.operand(expr.right, expr.operator, local, arithmetic(expr.operator.type, false), 0)) {
+            return null;
+        }
+
+        this.compile(expr.right);
+        this.location = expr.operator;
+        switch (expr.operator.type) {
+            case MINUS:
+                this.emitOp(OpCode.SUBTRACT, -1);
+                break;
+            case GREATER:
+                this.emitOp(OpCode.GREATER, -1);
+                break;
+            case GREATER_EQUAL:
+                this.emitOp(OpCode.GREATER_EQUAL, -1);
+                break;
+            case LESS:
+                this.emitOp(OpCode.LESS, -1);
+                break;
+            case LESS_EQUAL:
+                this.emitOp(OpCode.LESS_EQUAL, -1);
+                break;
+            case BANG_EQUAL:
+                this.emitOp(OpCode.NOT_EQUAL, -1);
+                break;
+            case EQUAL_EQUAL:
+                this.emitOp(OpCode.EQUAL, -1);
+                break;
+            case PLUS:
+                this.emitOp(OpCode.ADD, -1);
+                break;
+            case SLASH:
+                this.emitOp(OpCode.DIVIDE, -1);
+                break;
+            case STAR:
+                this.emitOp(OpCode.MULTIPLY, -1);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected binary operator " + expr.operator.type);
+        }
+
+        return null;
+    }
+
+    public Void visitCallExpr(Expr.Call expr) {
+        int argCount = expr.arguments.size();
+        if (expr.callee instanceof Expr.Get get) {
+            this.compile(get.object);
+            this.compileArguments(expr.arguments);
+            this.location = expr.paren;
+            this.emitOp(OpCode.INVOKE, -argCount);
+            this.emitShort(this.identifierConstant(get.name));
+            this.emitByte((byte)argCount);
+        } else if (expr.callee instanceof Expr.Super superExpr) {
+            this.namedVariable(new Token(TokenType.THIS, "this", null, superExpr.keyword.line), false);
+            this.compileArguments(expr.arguments);
+            this.namedVariable(superExpr.keyword, false);
+            this.location = expr.paren;
+            this.emitOp(OpCode.SUPER_INVOKE, -argCount - 1);
+            this.emitShort(this.identifierConstant(superExpr.method));
+            this.emitByte((byte)argCount);
+        } else {
+            this.compile(expr.callee);
+            this.compileArguments(expr.arguments);
+            this.location = expr.paren;
+            this.emitOp(OpCode.CALL, -argCount);
+            this.emitByte((byte)argCount);
+        }
+
+        return null;
+    }
+
+    private void compileArguments(List<Expr> arguments) {
+        Iterator<Expr> var2 = arguments.iterator();
+
+        while(var2.hasNext()) {
+            Expr argument = var2.next();
+            this.compile(argument);
+        }
+    }
+
+    public Void visitGetExpr(Expr.Get expr) {
+        this.compile(expr.object);
+        this.location = expr.name;
+        this.emitOp(OpCode.GET_PROPERTY, 0);
+        this.emitShort(this.identifierConstant(expr.name));
+        return null;
+    }
+
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        this.compile(expr.expression);
+        return null;
+    }
+
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) {
+            this.emitOp(OpCode.NIL, 1);
+        } else if (expr.value == Boolean.TRUE) {
+            this.emitOp(OpCode.TRUE, 1);
+        } else if (expr.value == Boolean.FALSE) {
+            this.emitOp(OpCode.FALSE, 1);
+        } else {
+            this.emitOp(OpCode.CONSTANT, 1);
+            this.emitShort(this.makeConstant(expr.value));
+        }
+
+        return null;
+    }
+
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        this.compile(expr.left);
+        if (expr.operator.type == TokenType.OR) {
+            int elseJump = this.emitJump(OpCode.JUMP_IF_FALSE, 0);
+            int endJump = this.emitJump(OpCode.JUMP, 0);
+            this.patchJump(elseJump);
+            this.emitOp(OpCode.POP, -1);
+            this.compile(expr.right);
+            this.patchJump(endJump);
+        } else {
+            int endJump = this.emitJump(OpCode.JUMP_IF_FALSE, 0);
+            this.emitOp(OpCode.POP, -1);
+            this.compile(expr.right);
+            this.patchJump(endJump);
+        }
+
+        return null;
+    }
+
+    public Void visitSetExpr(Expr.Set expr) {
+        this.compile(expr.object);
+        this.compile(expr.value);
+        this.location = expr.name;
+        this.emitOp(OpCode.SET_PROPERTY, -1);
+        this.emitShort(this.identifierConstant(expr.name));
+        return null;
+    }
+
+    public Void visitSuperExpr(Expr.Super expr) {
+        this.namedVariable(new Token(TokenType.THIS, "this", null, expr.keyword.line), false);
+        this.namedVariable(expr.keyword, false);
+        this.location = expr.method;
+        this.emitOp(OpCode.GET_SUPER, -1);
+        this.emitShort(this.identifierConstant(expr.method));
+        return null;
+    }
+
+    public Void visitThisExpr(Expr.This expr) {
+        this.namedVariable(expr.keyword, false);
+        return null;
+    }
+
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        this.compile(expr.right);
+        this.location = expr.operator;
+        if (expr.operator.type == TokenType.BANG) {
+            this.emitOp(OpCode.NOT, 0);
+        } else {
+            this.emitOp(OpCode.NEGATE, 0);
+        }
+
+        return null;
+    }
+
+    public Void visitVariableExpr(Expr.Variable expr) {
+        this.namedVariable(expr.name, false);
+        return null;
+    }
+
+    private void function(Stmt.Function stmt, FunctionType type) {
+        this.current = new FunctionState(this.current, new VMFunction(stmt.name.lexeme), type);
+        this.beginScope();
+        Iterator<Token> var3 = stmt.params.iterator();
+
+        while(var3.hasNext()) {
+            Token param = var3.next();
+            this.location = param;
+            ++this.current.function.arity;
+            this.addLocal(param.lexeme);
+            this.markInitialized();
+        }
+
+        this.current.stackDepth = this.current.localCount;
+        this.current.maxStack = this.current.localCount;
+        this.compileBody(stmt.body);
+        this.location = stmt.name;
+        this.emitReturn();
+        FunctionState compiled = this.current;
+        VMFunction function = this.endFunction();
+        this.emitOp(OpCode.CLOSURE, 1);
+        this.emitShort(this.makeConstant(function));
+
+        for(int i = 0; i < function.upvalueCount; ++i) {
+            this.emitByte((byte)(compiled.upvalueIsLocal[i] ? 1 : 0));
+            this.emitByte((byte)compiled.upvalueIndex[i]);
+        }
+    }
+
+    private VMFunction endFunction() {
+        VMFunction function = this.current.function;
+        function.maxStack = this.current.maxStack;
+        function.finish();
+        this.current = this.current.enclosing;
+        return function;
+    }
+
+    private void namedVariable(Token name, boolean assign) {
+        this.location = name;
+        int arg = this.resolveLocal(this.current, name);
+        if (arg != -1) {
+            this.emitOp(assign ? OpCode.SET_LOCAL : OpCode.GET_LOCAL, assign ? 0 : 1);
+            this.emitByte((byte)arg);
+        } else if ((arg = this.resolveUpvalue(this.current, name)) != -1) {
+            this.emitOp(assign ? OpCode.SET_UPVALUE : OpCode.GET_UPVALUE, assign ? 0 : 1);
+            this.emitByte((byte)arg);
+        } else {
+            this.emitOp(assign ? OpCode.SET_GLOBAL : OpCode.GET_GLOBAL, assign ? 0 : 1);
+            this.emitShort(this.vm.globalSlot(name.lexeme));
+        }
+    }
+
+    private void storeVariable(Token name) {
+        this.location = name;
+        int arg = this.resolveLocal(this.current, name);
+        if (arg != -1) {
+            this.emitOp(OpCode.STORE_LOCAL, -1);
+            this.emitByte((byte)arg);
+        } else if ((arg = this.resolveUpvalue(this.current, name)) != -1) {
+            this.emitOp(OpCode.STORE_UPVALUE, -1);
+            this.emitByte((byte)arg);
+        } else {
+            this.emitOp(OpCode.STORE_GLOBAL, -1);
+            this.emitShort(this.vm.globalSlot(name.lexeme));
+        }
+    }
+
+    private int resolveLocal(FunctionState state, Token name) {
+        for(int i = state.localCount - 1; i >= 0; --i) {
+            if (name.lexeme.equals(state.localNames[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int resolveUpvalue(FunctionState state, Token name) {
+        if (state.enclosing == null) {
+            return -1;
+        } else {
+            int local = this.resolveLocal(state.enclosing, name);
+            if (local != -1) {
+                state.enclosing.localCaptured[local] = true;
+                return this.addUpvalue(state, local, true);
+            } else {
+                int upvalue = this.resolveUpvalue(state.enclosing, name);
+                return upvalue != -1 ? this.addUpvalue(state, upvalue, false) : -1;
+            }
+        }
+    }
+
+    private int addUpvalue(FunctionState state, int index, boolean isLocal) {
+        int count = state.function.upvalueCount;
+
+        for(int i = 0; i < count; ++i) {
+            if (state.upvalueIndex[i] == index && state.upvalueIsLocal[i] == isLocal) {
+                return i;
+            }
+        }
+
+        if (count == MAX_UPVALUES) {
+            this.error("Too many closure variables in function.");
+            return 0;
+        } else {
+            state.upvalueIsLocal[count] = isLocal;
+            state.upvalueIndex[count] = index;
+            return state.function.upvalueCount++;
+        }
+    }
+
+    private void declareVariable(Token name) {
+        if (this.current.scopeDepth != 0) {
+            this.addLocal(name.lexeme);
+        }
+    }
+
+    private void addLocal(String name) {
+        if (this.current.localCount == MAX_LOCALS) {
+            this.error("Too many local variables in function.");
+        } else {
+            this.current.localNames[this.current.localCount] = name;
+            this.current.localDepths[this.current.localCount] = -1;
+            this.current.localCaptured[this.current.localCount] = false;
+            ++this.current.localCount;
+        }
+    }
+
+    private void markInitialized() {
+        if (this.current.scopeDepth != 0) {
+            this.current.localDepths[this.current.localCount - 1] = this.current.scopeDepth;
+        }
+    }
+
+    private void defineVariable(Token name) {
+        if (this.current.scopeDepth > 0) {
+            this.markInitialized();
+        } else {
+            this.emitOp(OpCode.DEFINE_GLOBAL, -1);
+            this.emitShort(this.vm.globalSlot(name.lexeme));
+        }
+    }
+
+    private void beginScope() {
+        ++this.current.scopeDepth;
+    }
+
+    private void endScope() {
+        FunctionState state = this.current;
+        --state.scopeDepth;
+
+        while(state.localCount > 0 && state.localDepths[state.localCount - 1] > state.scopeDepth) {
+            if (state.localCaptured[state.localCount - 1]) {
+                this.emitOp(OpCode.CLOSE_UPVALUE, -1);
+            } else {
+                this.emitOp(OpCode.POP, -1);
+            }
+
+            --state.localCount;
+        }
+    }
+
+    private int identifierConstant(Token name) {
+        return this.makeConstant(name.symbol);
+    }
+
+    private int makeConstant(Object value) {
+        int constant = this.current.function.chunk.addConstant(value);
+        if (constant >= MAX_CONSTANTS) {
+            this.error("Too many constants in one chunk.");
+            return 0;
+        } else {
+            return constant;
+        }
+    }
+
+    private void emitReturn() {
+        if (this.current.type == FunctionType.INITIALIZER) {
+            this.emitOp(OpCode.GET_LOCAL, 1);
+            this.emitByte((byte)0);
+        } else {
+            this.emitOp(OpCode.NIL, 1);
+        }
+
+        this.emitOp(OpCode.RETURN, -1);
+    }
+
+    private int condition(Expr condition) {
+        if (condition instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary)condition;
+            byte op = branch(binary.operator.type);
+            if (op != -1) {
+                this.compile(binary.left);
+                if (this.operand(binary.right, binary.operator, branch(binary.operator.type, true), branch(binary.operator.type, false), -1)) {
+                    this.emitByte((byte)0xff);
+                    this.emitByte((byte)0xff);
+                    return this.current.function.chunk.count - 2;
+                }
+
+                this.compile(binary.right);
+                this.location = binary.operator;
+                return this.emitJump(op, -2);
+            }
+        }
+
+        this.compile(condition);
+        return this.emitJump(OpCode.POP_JUMP_IF_FALSE, -1);
+    }
+
+    private boolean operand(Expr expr, Token operator, byte local, byte constant, int stackEffect) {
+        if (expr instanceof Expr.Variable) {
+            int slot = this.resolveLocal(this.current, ((Expr.Variable)expr).name);
+            if (slot != -1) {
+                this.location = operator;
+                this.emitOp(local, stackEffect);
+                this.emitByte((byte)slot);
+                return true;
+            }
+        } else if (expr instanceof Expr.Literal && ((Expr.Literal)expr).value instanceof Double) {
+            this.location = operator;
+            this.emitOp(constant, stackEffect);
+            this.emitShort(this.makeConstant(((Expr.Literal)expr).value));
+            return true;
+        }
+
+        return false;
+    }
+
+    private static byte arithmetic(TokenType type, boolean local) {
+        switch (type) {
+            case PLUS:
+                return local ? OpCode.ADD_LOCAL : OpCode.ADD_CONSTANT;
+            case MINUS:
+                return local ? OpCode.SUBTRACT_LOCAL : OpCode.SUBTRACT_CONSTANT;
+            case STAR:
+                return local ? OpCode.MULTIPLY_LOCAL : OpCode.MULTIPLY_CONSTANT;
+            case SLASH:
+                return local ? OpCode.DIVIDE_LOCAL : OpCode.DIVIDE_CONSTANT;
+            default:
+                return -1;
+        }
+    }
+
+    private static byte branch(TokenType type) {
+        switch (type) {
+            case GREATER:
+                return OpCode.JUMP_IF_NOT_GREATER;
+            case GREATER_EQUAL:
+                return OpCode.JUMP_IF_NOT_GREATER_EQUAL;
+            case LESS:
+                return OpCode.JUMP_IF_NOT_LESS;
+            case LESS_EQUAL:
+                return OpCode.JUMP_IF_NOT_LESS_EQUAL;
+            default:
+                return -1;
+        }
+    }
+
+    private static byte branch(TokenType type, boolean local) {
+        switch (type) {
+            case GREATER:
+                return local ? OpCode.JUMP_IF_NOT_GREATER_LOCAL : OpCode.JUMP_IF_NOT_GREATER_CONSTANT;
+            case GREATER_EQUAL:
+                return local ? OpCode.JUMP_IF_NOT_GREATER_EQUAL_LOCAL : OpCode.JUMP_IF_NOT_GREATER_EQUAL_CONSTANT;
+            case LESS:
+                return local ? OpCode.JUMP_IF_NOT_LESS_LOCAL : OpCode.JUMP_IF_NOT_LESS_CONSTANT;
+            default:
+                return local ? OpCode.JUMP_IF_NOT_LESS_EQUAL_LOCAL : OpCode.JUMP_IF_NOT_LESS_EQUAL_CONSTANT;
+        }
+    }
+
+    private int emitJump(byte op, int stackEffect) {
+        this.emitOp(op, stackEffect);
+        this.emitByte((byte)0xff);
+        this.emitByte((byte)0xff);
+        return this.current.function.chunk.count - 2;
+    }
+
+    private void patchJump(int offset) {
+        Chunk chunk = this.current.function.chunk;
+        int jump = chunk.count - offset - 2;
+        if (jump > MAX_JUMP) {
+            this.error("Too much code to jump over.");
+        }
+
+        chunk.code[offset] = (byte)(jump >> 8 & 0xff);
+        chunk.code[offset + 1] = (byte)(jump & 0xff);
+    }
+
+    private void emitLoop(int loopStart) {
+        this.emitOp(OpCode.LOOP, 0);
+        int offset = this.current.function.chunk.count - loopStart + 2;
+        if (offset > MAX_JUMP) {
+            this.error("Loop body too large.");
+        }
+
+        this.emitByte((byte)(offset >> 8 & 0xff));
+        this.emitByte((byte)(offset & 0xff));
+    }
+
+    private void emitOp(byte op, int stackEffect) {
+        this.emitByte(op);
+        FunctionState state = this.current;
+        state.stackDepth += stackEffect;
+        if (state.stackDepth > state.maxStack) {
+            state.maxStack = state.stackDepth;
+        }
+    }
+
+    private void emitShort(int value) {
+        this.emitByte((byte)(value >> 8 & 0xff));
+        this.emitByte((byte)(value & 0xff));
+    }
+
+    private void emitByte(byte value) {
+        this.current.function.chunk.write(value, this.location.line);
+    }
+
+    private void error(String message) {
+        this.reporter.error(this.location, message);
+    }
+
+    private static class FunctionState {
+        final FunctionState enclosing;
+        final VMFunction function;
+        final FunctionType type;
+        final String[] localNames = new String[MAX_LOCALS];
+        final int[] localDepths = new int[MAX_LOCALS];
+        final boolean[] localCaptured = new boolean[MAX_LOCALS];
+        final int[] upvalueIndex = new int[MAX_UPVALUES];
+        final boolean[] upvalueIsLocal = new boolean[MAX_UPVALUES];
+        int localCount;
+        int scopeDepth = 0;
+        int stackDepth;
+        int maxStack;
+
+        FunctionState(FunctionState enclosing, VMFunction function, FunctionType type) {
+            this.enclosing = enclosing;
+            this.function = function;
+            this.type = type;
+            this.localNames[0] = type != FunctionType.FUNCTION && type != FunctionType.SCRIPT ? "this" : "";
+            this.localDepths[0] = 0;
+            this.localCount = 1;
+            this.stackDepth = 1;
+            this.maxStack = 1;
+        }
+    }
+
+    private static class ClassState {
+        final ClassState enclosing;
+        boolean hasSuperclass = false;
+
+        ClassState(ClassState enclosing) {
+            this.enclosing = enclosing;
+        }
+    }
+
+    private static enum FunctionType {
+        SCRIPT,
+        FUNCTION,
+        INITIALIZER,
+        METHOD;
+
+        private FunctionType() {
+        }
+    }
+}
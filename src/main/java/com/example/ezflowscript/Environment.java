@@ -1,59 +1,103 @@
 package com.example.ezflowscript;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 class Environment {
-    private final Map<String, Object> values = new HashMap();
-    final Environment enclosing;
+    private Cell[] globals;
+    private final Object[] slots;
+    private long[] numbers;
 
     Environment() {
-        this.enclosing = null;
+        this.globals = new Cell[64];
+        this.slots = null;
     }
 
-    Environment(Environment enclosing) {
-        this.enclosing = enclosing;
+    Environment(int size) {
+        this.globals = null;
+        this.slots = new Object[size];
     }
 
-    void define(String name, Object value) {
-        this.values.put(name, value);
+    void define(Symbol name, Object value) {
+        if (name.id >= this.globals.length) {
+            this.globals = Arrays.copyOf(this.globals, Math.max(name.id + 1, this.globals.length * 2));
+        }
+
+        if (this.globals[name.id] == null) {
+            this.globals[name.id] = new Cell(value);
+        } else {
+            this.globals[name.id].value = value;
+        }
+
+    }
+
+    void clear() {
+        Arrays.fill(this.slots, (Object)null);
+        if (this.numbers != null) {
+            Arrays.fill(this.numbers, Value.REFERENCE);
+        }
+
     }
 
-    Environment ancestor(int distance) {
-        Environment environment = this;
+    Object get(int slot) {
+        if (this.numbers != null && this.numbers[slot] != Value.REFERENCE) {
+            Double value = Value.number(this.numbers[slot]);
+            this.slots[slot] = value;
+            this.numbers[slot] = Value.REFERENCE;
+            return value;
+        } else {
+            return this.slots[slot];
+        }
+    }
 
-        for(int i = 0; i < distance; ++i) {
-            environment = environment.enclosing;
+    void set(int slot, Object value) {
+        this.slots[slot] = value;
+        if (this.numbers != null) {
+            this.numbers[slot] = Value.REFERENCE;
         }
 
-        return environment;
     }
 
-    Object getAt(int distance, String name) {
-        return this.ancestor(distance).values.get(name);
+    long number(int slot) {
+        return this.numbers != null ? this.numbers[slot] : Value.REFERENCE;
     }
 
-    void assignAt(int distance, Token name, Object value) {
-        this.ancestor(distance).values.put(name.lexeme, value);
+    void setNumber(int slot, long value) {
+        if (this.numbers == null) {
+            this.numbers = new long[this.slots.length];
+        }
+
+        this.numbers[slot] = value;
+        this.slots[slot] = null;
     }
 
-    Object get(Token name) {
-        if (this.values.containsKey(name.lexeme)) {
-            return this.values.get(name.lexeme);
-        } else if (this.enclosing != null) {
-            return this.enclosing.get(name);
-        } else {
-            throw new RuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
+    Cell cell(int slot) {
+        return (Cell)this.slots[slot];
+    }
+
+    Cell cell(Expr.Reference expr, Token name) {
+        Cell cell = expr.global;
+        if (cell == null) {
+            cell = this.cell(name);
+            expr.global = cell;
         }
+
+        return cell;
     }
 
-    void assign(Token name, Object value) {
-        if (this.values.containsKey(name.lexeme)) {
-            this.values.put(name.lexeme, value);
-        } else if (this.enclosing != null) {
-            this.enclosing.assign(name, value);
+    private Cell cell(Token name) {
+        int id = name.symbol.id;
+        if (id < this.globals.length && this.globals[id] != null) {
+            return this.globals[id];
         } else {
             throw new RuntimeError(name, "Undefined variable '" + name.lexeme + "'.");
         }
     }
-}
\ No newline at end of file
+
+    Object get(Token name) {
+        return this.cell(name).value;
+    }
+
+    void assign(Token name, Object value) {
+        this.cell(name).value = value;
+    }
+}
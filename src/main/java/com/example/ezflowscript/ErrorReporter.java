@@ -0,0 +1,100 @@
+package com.example.ezflowscript;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+final class ErrorReporter {
+    private PrintStream out;
+    private String prefix = "";
+    private List<String> errors = new ArrayList<>();
+    private List<Integer> lines = new ArrayList<>();
+    boolean hadError = false;
+
+    ErrorReporter() {
+        this((PrintStream)null);
+    }
+
+    ErrorReporter(PrintStream out) {
+        this.out = out;
+    }
+
+    void error(String message) {
+        this.add(this.lines.isEmpty() ? 0 : this.lines.get(this.lines.size() - 1), "Error: " + message);
+    }
+
+    void error(int line, String message) {
+        this.report(line, "", message);
+    }
+
+    void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            this.report(token.line, " at end", message);
+        } else {
+            this.report(token.line, " at '" + token.lexeme + "'", message);
+        }
+
+    }
+
+    private void report(int line, String where, String message) {
+        this.add(line, "[line " + line + "] Error" + where + ": " + message);
+    }
+
+    private void add(int line, String error) {
+        if (this.out != null) {
+            this.out.println(this.prefix + error);
+        } else {
+            this.errors.add(error);
+            this.lines.add(line);
+        }
+
+        this.hadError = true;
+    }
+
+    void addAll(ErrorReporter other) {
+        for(int i = 0; i < other.errors.size(); ++i) {
+            this.add(other.lines.get(i), other.errors.get(i));
+        }
+
+    }
+
+    void merge(ErrorReporter other) {
+        if (this.out != null) {
+            this.addAll(other);
+        } else if (!other.errors.isEmpty()) {
+            List<String> errors = new ArrayList<>(this.errors.size() + other.errors.size());
+            List<Integer> lines = new ArrayList<>(this.lines.size() + other.lines.size());
+            int i = 0;
+            int j = 0;
+
+            while(i < this.errors.size() || j < other.errors.size()) {
+                if (j == other.errors.size() || i < this.errors.size() && this.lines.get(i) <= other.lines.get(j)) {
+                    errors.add(this.errors.get(i));
+                    lines.add(this.lines.get(i++));
+                } else {
+                    errors.add(other.errors.get(j));
+                    lines.add(other.lines.get(j++));
+                }
+            }
+
+            this.errors = errors;
+            this.lines = lines;
+            this.hadError = true;
+        }
+    }
+
+    void flush(PrintStream out, String prefix) {
+        for(int i = 0; i < this.errors.size(); ++i) {
+            out.println(prefix + this.errors.get(i));
+        }
+
+        this.errors = new ArrayList<>();
+        this.lines = new ArrayList<>();
+        this.out = out;
+        this.prefix = prefix;
+    }
+
+    List<String> errors() {
+        return this.errors;
+    }
+}
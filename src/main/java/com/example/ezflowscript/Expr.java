@@ -1,15 +1,27 @@
 package com.example.ezflowscript;
 
-
 import java.util.List;
 
 abstract class Expr {
+    ValueType type;
+
     Expr() {
+        this.type = ValueType.UNKNOWN;
     }
 
-    abstract <R> R accept(Visitor<R> var1);
+    abstract <R> R accept(Visitor<R> visitor);
+
+    abstract static class Reference extends Expr {
+        int slot = -1;
+        int upvalue = -1;
+        boolean captured = false;
+        Cell global;
+
+        Reference() {
+        }
+    }
 
-    static class Variable extends Expr {
+    static class Variable extends Reference {
         final Token name;
 
         Variable(Token name) {
@@ -24,10 +36,12 @@ abstract class Expr {
     static class Unary extends Expr {
         final Token operator;
         final Expr right;
+        UnaryNode node;
 
         Unary(Token operator, Expr right) {
             this.operator = operator;
             this.right = right;
+            this.node = UnaryNode.UNINITIALIZED;
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -35,7 +49,7 @@ abstract class Expr {
         }
     }
 
-    static class This extends Expr {
+    static class This extends Reference {
         final Token keyword;
 
         This(Token keyword) {
@@ -47,13 +61,15 @@ abstract class Expr {
         }
     }
 
-    static class Super extends Expr {
+    static class Super extends Reference {
         final Token keyword;
         final Token method;
+        final This receiver;
 
         Super(Token keyword, Token method) {
             this.keyword = keyword;
             this.method = method;
+            this.receiver = new This(keyword);
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -65,6 +81,7 @@ abstract class Expr {
         final Expr object;
         final Token name;
         final Expr value;
+        final InlineCache cache = new InlineCache();
 
         Set(Expr object, Token name, Expr value) {
             this.object = object;
@@ -81,11 +98,13 @@ abstract class Expr {
         final Expr left;
         final Token operator;
         final Expr right;
+        LogicalNode node;
 
         Logical(Expr left, Token operator, Expr right) {
             this.left = left;
             this.operator = operator;
             this.right = right;
+            this.node = LogicalNode.UNINITIALIZED;
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -120,6 +139,7 @@ abstract class Expr {
     static class Get extends Expr {
         final Expr object;
         final Token name;
+        final InlineCache cache = new InlineCache();
 
         Get(Expr object, Token name) {
             this.object = object;
@@ -135,6 +155,7 @@ abstract class Expr {
         final Expr callee;
         final Token paren;
         final List<Expr> arguments;
+        boolean invoke = false;
 
         Call(Expr callee, Token paren, List<Expr> arguments) {
             this.callee = callee;
@@ -151,11 +172,13 @@ abstract class Expr {
         final Expr left;
         final Token operator;
         final Expr right;
+        BinaryNode node;
 
         Binary(Expr left, Token operator, Expr right) {
             this.left = left;
             this.operator = operator;
             this.right = right;
+            this.node = BinaryNode.UNINITIALIZED;
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -163,7 +186,7 @@ abstract class Expr {
         }
     }
 
-    static class Assign extends Expr {
+    static class Assign extends Reference {
         final Token name;
         final Expr value;
 
@@ -202,4 +225,4 @@ abstract class Expr {
 
         R visitVariableExpr(Variable var1);
     }
-}
\ No newline at end of file
+}
@@ -5,14 +5,26 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
 
 
 public class EzFlowScriptApplication {
     private static final Interpreter interpreter = new Interpreter();
+    private static VM vm;
+    private static boolean lazy = false;
+    private static boolean validate = false;
+    private static boolean execute = false;
+    private static boolean singlePass = false;
+    private static final String SCRIPT_EXTENSION = ".ezf";
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
 
@@ -20,20 +32,65 @@ public class EzFlowScriptApplication {
     }
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        List<String> scripts = new ArrayList<>();
+
+        for(int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--vm")) {
+                vm = new VM();
+            } else if (args[i].equals("--lazy")) {
+                lazy = true;
+            } else if (args[i].equals("--validate")) {
+                lazy = true;
+                validate = true;
+            } else if (args[i].equals("--single-pass")) {
+                singlePass = true;
+            } else if (args[i].equals("--run")) {
+                execute = true;
+            } else if (args[i].equals("--closures")) {
+                interpreter.enableClosures();
+            } else if (args[i].equals("--trace")) {
+                interpreter.enableTracing();
+            } else if (args[i].equals("--jit")) {
+                interpreter.enableJit(Interpreter.JIT_THRESHOLD);
+            } else if (args[i].startsWith("--jit-threshold=")) {
+                interpreter.enableJit(threshold(args[i].substring("--jit-threshold=".length())));
+            } else if (!args[i].startsWith("--")) {
+                scripts.add(args[i]);
+            } else {
+                usage();
+            }
+        }
+
+        if (scripts.size() == 1 && !Files.isDirectory(Paths.get(scripts.get(0)), new LinkOption[0])) {
+            runFile(scripts.get(0));
+        } else if (!scripts.isEmpty()) {
+            runFiles(scripts);
         } else {
             runPrompt();
         }
 
     }
 
+    private static void usage() {
+        System.out.println("Usage: jlox [--vm] [--lazy] [--validate] [--single-pass] [--run] [--closures] [--trace] [--jit] [--jit-threshold=<n>] [script | directory ...]");
+        System.exit(64);
+    }
+
+    private static int threshold(String value) {
+        try {
+            int threshold = Integer.parseInt(value);
+            if (threshold >= 0) {
+                return threshold;
+            }
+        } catch (NumberFormatException var2) {
+        }
+
+        usage();
+        return 0;
+    }
+
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        run(MappedSource.read(Paths.get(path)));
         if (hadError) {
             System.exit(65);
         }
@@ -60,33 +117,124 @@ public class EzFlowScriptApplication {
         }
     }
 
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
-        if (!hadError) {
-            Resolver resolver = new Resolver(interpreter);
-            resolver.resolve(statements);
-            if (!hadError) {
-                interpreter.interpret(statements);
+    private static void run(CharSequence source) {
+        boolean validating = validate && vm == null;
+        ErrorReporter reporter = validating ? new ErrorReporter() : new ErrorReporter(System.err);
+        Compilation compilation = new Compilation(source, reporter, lazy && vm == null, vm == null, singlePass);
+        compilation.run();
+        if (validating) {
+            Validator.start(compilation.statements).report(reporter);
+            reporter.flush(System.err, "");
+        }
+
+        if (!reporter.hadError) {
+            if (vm != null) {
+                compilation.function = (new Compiler(vm, reporter)).compile(compilation.statements);
+            }
+
+            if (!reporter.hadError) {
+                execute(compilation);
             }
         }
-    }
 
-    static void error(int line, String message) {
-        report(line, "", message);
+        if (reporter.hadError) {
+            hadError = true;
+        }
+
     }
 
-    private static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
+    private static void runFiles(List<String> scripts) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        Iterator<String> var2 = scripts.iterator();
+
+        while(var2.hasNext()) {
+            String script = var2.next();
+            Path path = Paths.get(script);
+            if (Files.isDirectory(path, new LinkOption[0])) {
+                Stream<Path> files = Files.walk(path);
+
+                try {
+                    files.filter((file) -> {
+                        return Files.isRegularFile(file, new LinkOption[0]) && file.toString().endsWith(SCRIPT_EXTENSION);
+                    }).sorted().forEach(paths::add);
+                } finally {
+                    files.close();
+                }
+            } else {
+                paths.add(path);
+            }
+        }
+
+        Compilation[] compilations = new Compilation[paths.size()];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[compilations.length];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        for(int i = 0; i < compilations.length; ++i) {
+            compilations[i] = new Compilation(paths.get(i), new ErrorReporter(), lazy && vm == null, vm == null, singlePass);
+            tasks[i] = pool.submit(compilations[i]);
+        }
+
+        Validator[] validators = new Validator[compilations.length];
+
+        for(int i = 0; i < compilations.length; ++i) {
+            tasks[i].join();
+            if (validate && vm == null && compilations[i].statements != null) {
+                validators[i] = Validator.start(compilations[i].statements);
+            }
+        }
+
+        int errors = 0;
+        int failed = 0;
+
+        for(int i = 0; i < compilations.length; ++i) {
+            Compilation compilation = compilations[i];
+            if (validators[i] != null) {
+                validators[i].report(compilation.reporter);
+            }
+
+            if (vm != null && !compilation.reporter.hadError) {
+                compilation.function = (new Compiler(vm, compilation.reporter)).compile(compilation.statements);
+            }
+
+            int count = compilation.reporter.errors().size();
+            compilation.reporter.flush(System.err, compilation.path + ": ");
+            if (compilation.reporter.hadError) {
+                errors += count;
+                ++failed;
+                System.err.println(compilation.path + ": failed (" + count + (count == 1 ? " error)" : " errors)"));
+            } else {
+                System.err.println(compilation.path + ": ok");
+            }
+        }
+
+        if (failed > 0) {
+            System.err.println(errors + (errors == 1 ? " error" : " errors") + " in " + failed + " of " + compilations.length + " files.");
+            System.exit(65);
+        }
+
+        if (execute) {
+            for(int i = 0; i < compilations.length && !hadRuntimeError; ++i) {
+                execute(compilations[i]);
+            }
+
+            for(int i = 0; i < compilations.length; ++i) {
+                if (compilations[i].reporter.hadError) {
+                    System.exit(65);
+                }
+            }
+
+            if (hadRuntimeError) {
+                System.exit(70);
+            }
+        }
+
     }
 
-    static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
+    private static void execute(Compilation compilation) {
+        if (vm != null) {
+            vm.interpret(compilation.function);
         } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+            interpreter.interpret(compilation.statements, compilation.slotCount);
         }
 
     }
@@ -1,40 +1,76 @@
 package com.example.ezflowscript;
 
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 
 public class EzFlowScriptClass implements EzFlowScriptCallable  {
     final String name;
     final EzFlowScriptClass superClass;
-    private final Map<String, EzFlowScriptFunction> methods;
+    private final Map<Symbol, EzFlowScriptFunction> methods;
+    private final EzFlowScriptFunction initializer;
+    final Shape shape = new Shape();
 
-    EzFlowScriptClass(String name, EzFlowScriptClass superClass, Map<String, EzFlowScriptFunction> methods) {
+    EzFlowScriptClass(String name, EzFlowScriptClass superClass, Map<Symbol, EzFlowScriptFunction> methods) {
         this.name = name;
         this.superClass = superClass;
-        this.methods = methods;
+        if (superClass != null) {
+            this.methods = new HashMap<>(superClass.methods);
+            this.methods.putAll(methods);
+        } else {
+            this.methods = methods;
+        }
+
+        this.initializer = this.methods.get(Symbol.INIT);
     }
 
-    EzFlowScriptFunction findMethod(String name) {
-        if (this.methods.containsKey(name)) {
-            return (EzFlowScriptFunction)this.methods.get(name);
-        } else {
-            return this.superClass != null ? this.superClass.findMethod(name) : null;
+    EzFlowScriptFunction findMethod(Symbol name) {
+        return this.methods.get(name);
+    }
+
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
+        if (this.initializer != null) {
+            this.initializer.invoke(interpreter, instance, arguments);
         }
+
+        return instance;
     }
 
-    public Object call(Interpreter interpreter, List<Object> arguments) {
+    public Object call0(Interpreter interpreter) {
         EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
-        EzFlowScriptFunction initializer = this.findMethod("init");
-        if (initializer != null) {
-            initializer.bind(instance).call(interpreter, arguments);
+        if (this.initializer != null) {
+            this.initializer.invoke0(interpreter, instance);
         }
 
         return instance;
     }
 
+    public Object call1(Interpreter interpreter, Object a) {
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
+        this.initializer.invoke1(interpreter, instance, a);
+        return instance;
+    }
+
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
+        this.initializer.invoke2(interpreter, instance, a, b);
+        return instance;
+    }
+
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
+        this.initializer.invoke3(interpreter, instance, a, b, c);
+        return instance;
+    }
+
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(this);
+        this.initializer.invoke4(interpreter, instance, a, b, c, d);
+        return instance;
+    }
+
     public int arity() {
-        EzFlowScriptFunction initializer = this.findMethod("init");
-        return initializer == null ? 0 : initializer.arity();
+        return this.initializer == null ? 0 : this.initializer.arity();
     }
 
     public String toString() {
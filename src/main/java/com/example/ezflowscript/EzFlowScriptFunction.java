@@ -1,43 +1,144 @@
 package com.example.ezflowscript;
 
-import java.util.List;
-
 public class EzFlowScriptFunction implements EzFlowScriptCallable {
 
-    private final Environment closure;
-    private final Stmt.Function declaration;
-    private final boolean isInitializer;
+    final Cell[] upvalues;
+    final Stmt.Function declaration;
+    final boolean isInitializer;
+    final EzFlowScriptInstance receiver;
+
+    EzFlowScriptFunction(Stmt.Function declaration, Cell[] upvalues, boolean isInitializer) {
+        this(declaration, upvalues, isInitializer, (EzFlowScriptInstance)null);
+    }
 
-    EzFlowScriptFunction(Stmt.Function declaration, Environment closure, boolean isInitializer) {
+    private EzFlowScriptFunction(Stmt.Function declaration, Cell[] upvalues, boolean isInitializer, EzFlowScriptInstance receiver) {
         this.isInitializer = isInitializer;
-        this.closure = closure;
+        this.upvalues = upvalues;
         this.declaration = declaration;
+        this.receiver = receiver;
     }
 
     EzFlowScriptFunction bind(EzFlowScriptInstance instance) {
-        Environment environment = new Environment(this.closure);
-        environment.define("this", instance);
-        return new EzFlowScriptFunction(this.declaration, environment, this.isInitializer);
+        return new EzFlowScriptFunction(this.declaration, this.upvalues, this.isInitializer, instance);
+    }
+
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return this.invoke(interpreter, this.receiver, arguments);
+    }
+
+    public Object call0(Interpreter interpreter) {
+        return this.invoke0(interpreter, this.receiver);
+    }
+
+    public Object call1(Interpreter interpreter, Object a) {
+        return this.invoke1(interpreter, this.receiver, a);
+    }
+
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        return this.invoke2(interpreter, this.receiver, a, b);
+    }
+
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return this.invoke3(interpreter, this.receiver, a, b, c);
+    }
+
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        return this.invoke4(interpreter, this.receiver, a, b, c, d);
+    }
+
+    Object invoke(Interpreter interpreter, EzFlowScriptInstance receiver, Object[] arguments) {
+        return this.execute(interpreter, this.frame(receiver, arguments), receiver);
+    }
+
+    Object invoke0(Interpreter interpreter, EzFlowScriptInstance receiver) {
+        return this.execute(interpreter, this.frame(receiver), receiver);
     }
 
-    public Object call(Interpreter interpreter, List<Object> arguments) {
-        Environment environment = new Environment(this.closure);
+    Object invoke1(Interpreter interpreter, EzFlowScriptInstance receiver, Object a) {
+        Environment environment = this.frame(receiver);
+        int first = receiver == null ? 0 : 1;
+        this.bind(environment, first, a);
+        return this.execute(interpreter, environment, receiver);
+    }
+
+    Object invoke2(Interpreter interpreter, EzFlowScriptInstance receiver, Object a, Object b) {
+        Environment environment = this.frame(receiver);
+        int first = receiver == null ? 0 : 1;
+        this.bind(environment, first, a);
+        this.bind(environment, first + 1, b);
+        return this.execute(interpreter, environment, receiver);
+    }
+
+    Object invoke3(Interpreter interpreter, EzFlowScriptInstance receiver, Object a, Object b, Object c) {
+        Environment environment = this.frame(receiver);
+        int first = receiver == null ? 0 : 1;
+        this.bind(environment, first, a);
+        this.bind(environment, first + 1, b);
+        this.bind(environment, first + 2, c);
+        return this.execute(interpreter, environment, receiver);
+    }
 
-        for(int i = 0; i < this.declaration.params.size(); ++i) {
-            environment.define(((Token)this.declaration.params.get(i)).lexeme, arguments.get(i));
+    Object invoke4(Interpreter interpreter, EzFlowScriptInstance receiver, Object a, Object b, Object c, Object d) {
+        Environment environment = this.frame(receiver);
+        int first = receiver == null ? 0 : 1;
+        this.bind(environment, first, a);
+        this.bind(environment, first + 1, b);
+        this.bind(environment, first + 2, c);
+        this.bind(environment, first + 3, d);
+        return this.execute(interpreter, environment, receiver);
+    }
+
+    Environment frame(EzFlowScriptInstance receiver) {
+        Environment environment = this.declaration.spare;
+        if (environment != null) {
+            this.declaration.spare = null;
+        } else {
+            environment = new Environment(this.declaration.slotCount);
+        }
+        if (receiver != null) {
+            this.bind(environment, 0, receiver);
         }
 
-        try {
-            interpreter.executeBlock(this.declaration.body, environment);
-        } catch (Return var5) {
-            if (this.isInitializer) {
-                return this.closure.getAt(0, "this");
+        return environment;
+    }
+
+    Environment frame(EzFlowScriptInstance receiver, Object[] arguments) {
+        Environment environment = this.frame(receiver);
+        int first = receiver == null ? 0 : 1;
+
+        for(int i = 0; i < arguments.length; ++i) {
+            this.bind(environment, first + i, arguments[i]);
+        }
+
+        return environment;
+    }
+
+    void parseBody(Token paren) {
+        Stmt.Function declaration = this.declaration;
+        if (!declaration.invalid) {
+            ErrorReporter errors = new ErrorReporter();
+            Compilation.compileBody(declaration, errors);
+            declaration.reporter.addAll(errors);
+            if (errors.hadError) {
+                declaration.body = null;
+                declaration.invalid = true;
+            } else {
+                (new TypeInference()).infer(declaration);
             }
+        }
 
-            return var5.value;
+        if (declaration.invalid) {
+            throw new RuntimeError(paren, "Function '" + declaration.name.lexeme + "' has compile errors.");
         }
+    }
+
+    private void bind(Environment environment, int slot, Object value) {
+        boolean[] captured = this.declaration.paramsCaptured;
+        environment.set(slot, captured != null && captured[slot] ? new Cell(value) : value);
+    }
 
-        return this.isInitializer ? this.closure.getAt(0, "this") : null;
+    private Object execute(Interpreter interpreter, Environment environment, EzFlowScriptInstance receiver) {
+        return interpreter.executeBody(this, environment, receiver);
     }
 
     public int arity() {
@@ -1,21 +1,22 @@
 package com.example.ezflowscript;
 
-import java.util.HashMap;
-import java.util.Map;
-
 class EzFlowScriptInstance {
-    private EzFlowScriptClass klass;
-    private final Map<String, Object> fields = new HashMap();
+    final EzFlowScriptClass klass;
+    Shape shape;
+    Object[] values;
 
     EzFlowScriptInstance(EzFlowScriptClass klass) {
         this.klass = klass;
+        this.shape = klass.shape;
+        this.values = this.shape.newValues();
     }
 
     Object get(Token name) {
-        if (this.fields.containsKey(name.lexeme)) {
-            return this.fields.get(name.lexeme);
+        int index = this.shape.indexOf(name.symbol);
+        if (index != -1) {
+            return this.values[index];
         } else {
-            EzFlowScriptFunction method = this.klass.findMethod(name.lexeme);
+            EzFlowScriptFunction method = this.klass.findMethod(name.symbol);
             if (method != null) {
                 return method.bind(this);
             } else {
@@ -25,7 +26,14 @@ class EzFlowScriptInstance {
     }
 
     void set(Token name, Object value) {
-        this.fields.put(name.lexeme, value);
+        int index = this.shape.indexOf(name.symbol);
+        if (index == -1) {
+            this.shape = this.shape.withField(name.symbol);
+            this.values = this.shape.grow(this.values);
+            index = this.shape.size - 1;
+        }
+
+        this.values[index] = value;
     }
 
     public String toString() {
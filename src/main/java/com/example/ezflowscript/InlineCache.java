@@ -0,0 +1,92 @@
+package com.example.ezflowscript;
+
+final class InlineCache {
+    private static final int MAX_ENTRIES = 4;
+    private final Shape[] shapes = new Shape[MAX_ENTRIES];
+    private final Shape[] targets = new Shape[MAX_ENTRIES];
+    private final int[] indices = new int[MAX_ENTRIES];
+    private final EzFlowScriptFunction[] methods = new EzFlowScriptFunction[MAX_ENTRIES];
+    private int count = 0;
+    private boolean megamorphic = false;
+
+    Object get(EzFlowScriptInstance instance, Token name) {
+        int entry = this.find(instance, name);
+        if (entry == -1) {
+            return instance.get(name);
+        } else {
+            EzFlowScriptFunction method = this.methods[entry];
+            return method == null ? instance.values[this.indices[entry]] : method.bind(instance);
+        }
+    }
+
+    EzFlowScriptFunction method(EzFlowScriptInstance instance, Token name) {
+        int entry = this.find(instance, name);
+        if (entry == -1) {
+            return instance.shape.indexOf(name.symbol) == -1 ? instance.klass.findMethod(name.symbol) : null;
+        } else {
+            return this.methods[entry];
+        }
+    }
+
+    private int find(EzFlowScriptInstance instance, Token name) {
+        Shape shape = instance.shape;
+
+        for(int i = 0; i < this.count; ++i) {
+            if (this.shapes[i] == shape) {
+                return i;
+            }
+        }
+
+        if (this.megamorphic) {
+            return -1;
+        } else {
+            int index = shape.indexOf(name.symbol);
+            if (index != -1) {
+                return this.add(shape, shape, index, (EzFlowScriptFunction)null);
+            } else {
+                EzFlowScriptFunction method = instance.klass.findMethod(name.symbol);
+                if (method == null) {
+                    throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+                } else {
+                    return this.add(shape, shape, -1, method);
+                }
+            }
+        }
+    }
+
+    void set(EzFlowScriptInstance instance, Token name, Object value) {
+        Shape shape = instance.shape;
+
+        for(int i = 0; i < this.count; ++i) {
+            if (this.shapes[i] == shape) {
+                Shape target = this.targets[i];
+                if (target != shape) {
+                    instance.shape = target;
+                    instance.values = target.grow(instance.values);
+                }
+
+                instance.values[this.indices[i]] = value;
+                return;
+            }
+        }
+
+        instance.set(name, value);
+        if (!this.megamorphic) {
+            this.add(shape, instance.shape, instance.shape.indexOf(name.symbol), (EzFlowScriptFunction)null);
+        }
+
+    }
+
+    private int add(Shape shape, Shape target, int index, EzFlowScriptFunction method) {
+        if (this.count == MAX_ENTRIES) {
+            this.megamorphic = true;
+            return -1;
+        } else {
+            this.shapes[this.count] = shape;
+            this.targets[this.count] = target;
+            this.indices[this.count] = index;
+            this.methods[this.count] = method;
+            return this.count++;
+        }
+    }
+}
@@ -1,25 +1,43 @@
 package com.example.ezflowscript;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
+    static final Object RETURN = new Object();
+    static final int JIT_THRESHOLD = 1000;
+    private static final int TRACE_THRESHOLD = 100;
     final Environment globals = new Environment();
     private Environment environment;
-    private final Map<Expr, Integer> locals;
+    private Cell[] upvalues;
+    private Object returnValue;
+    private EzFlowScriptFunction tailFunction;
+    private EzFlowScriptInstance tailReceiver;
+    private Environment tailFrame;
+    private JitCompiler jit;
+    private ClosureCompiler closures;
+    private ClosureCompiler tracer;
+    private Map<Stmt.If, Boolean> directions;
+    private boolean recordedCall;
+    private Object reference;
+    private int jitThreshold;
+    private Stmt.Function function;
+    private boolean typed;
 
     Interpreter() {
-        this.environment = this.globals;
-        this.locals = new HashMap();
-        this.globals.define("clock", new EzFlowScriptCallable() {
+        this.globals.define(Symbol.intern("clock"), new EzFlowScriptCallable() {
             public int arity() {
                 return 0;
             }
 
-            public Object call(Interpreter interpreter, List<Object> arguments) {
+            public Object call(Interpreter interpreter, Object[] arguments) {
+                return this.call0(interpreter);
+            }
+
+            public Object call0(Interpreter interpreter) {
                 return (double)System.currentTimeMillis() / 1000.0;
             }
 
@@ -29,12 +47,35 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         });
     }
 
-    void interpret(List<Stmt> statements) {
+    void enableJit(int threshold) {
+        this.jit = new JitCompiler();
+        this.jitThreshold = threshold;
+    }
+
+    void enableClosures() {
+        this.closures = new ClosureCompiler(this, false);
+    }
+
+    void enableTracing() {
+        this.tracer = new ClosureCompiler(this, true);
+    }
+
+    void interpret(List<Stmt> statements, int slotCount) {
+        this.environment = new Environment(slotCount);
+        this.upvalues = null;
+        this.function = null;
+        this.typed = true;
+
         try {
-            Iterator var2 = statements.iterator();
+            if (this.closures != null) {
+                this.closures.run(statements, slotCount);
+                return;
+            }
+
+            Iterator<Stmt> var2 = statements.iterator();
 
             while(var2.hasNext()) {
-                Stmt statement = (Stmt)var2.next();
+                Stmt statement = var2.next();
                 this.execute(statement);
             }
         } catch (RuntimeError var4) {
@@ -50,10 +91,10 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     public Object visitLogicalExpr(Expr.Logical expr) {
         Object left = this.evaluate(expr.left);
         if (expr.operator.type == TokenType.OR) {
-            if (this.isTruthy(left)) {
+            if (expr.node.isTruthy(expr, left)) {
                 return left;
             }
-        } else if (!this.isTruthy(left)) {
+        } else if (!expr.node.isTruthy(expr, left)) {
             return left;
         }
 
@@ -66,16 +107,15 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             throw new RuntimeError(expr.name, "Only instances have fields.");
         } else {
             Object value = this.evaluate(expr.value);
-            ((EzFlowScriptInstance)object).set(expr.name, value);
+            expr.cache.set((EzFlowScriptInstance)object, expr.name, value);
             return value;
         }
     }
 
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = (Integer)this.locals.get(expr);
-        EzFlowScriptClass superclass = (EzFlowScriptClass)this.environment.getAt(distance, "super");
-        EzFlowScriptInstance object = (EzFlowScriptInstance)this.environment.getAt(distance - 1, "this");
-        EzFlowScriptFunction method = superclass.findMethod(expr.method.lexeme);
+        EzFlowScriptClass superclass = (EzFlowScriptClass)this.lookUpVariable(expr.keyword, expr);
+        EzFlowScriptInstance object = (EzFlowScriptInstance)this.lookUpVariable(expr.keyword, expr.receiver);
+        EzFlowScriptFunction method = superclass.findMethod(expr.method.symbol);
         if (method == null) {
             throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'.");
         } else {
@@ -89,54 +129,23 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     public Object visitUnaryExpr(Expr.Unary expr) {
         Object right = this.evaluate(expr.right);
-        switch (expr.operator.type) {
-            case BANG:
-                return !this.isTruthy(right);
-            case MINUS:
-                return -(Double)right;
-            default:
-                return null;
-        }
+        return expr.node.execute(expr, right);
     }
 
     public Object visitVariableExpr(Expr.Variable expr) {
         return this.lookUpVariable(expr.name, expr);
     }
 
-    private Object lookUpVariable(Token name, Expr expr) {
-        Integer distance = (Integer)this.locals.get(expr);
-        return distance != null ? this.environment.getAt(distance, name.lexeme) : this.globals.get(name);
-    }
-
-    private void checkNumberOperand(Token operator, Object operand) {
-        if (!(operand instanceof Double)) {
-            throw new RuntimeError(operator, "Operand must be a number.");
-        }
-    }
-
-    private void checkNumberOperands(Token operator, Object left, Object right) {
-        if (!(left instanceof Double) || !(right instanceof Double)) {
-            throw new RuntimeError(operator, "Operands must be numbers.");
-        }
-    }
-
-    private boolean isTruthy(Object object) {
-        if (object == null) {
-            return false;
-        } else {
-            return object instanceof Boolean ? (Boolean)object : true;
-        }
-    }
-
-    private boolean isEqual(Object a, Object b) {
-        if (a == null && b == null) {
-            return true;
+    private Object lookUpVariable(Token name, Expr.Reference expr) {
+        if (expr.slot != -1) {
+            Object value = this.environment.get(expr.slot);
+            return expr.captured ? ((Cell)value).value : value;
         } else {
-            return a == null ? false : a.equals(b);
+            return expr.upvalue != -1 ? this.upvalues[expr.upvalue].value : this.globals.cell(expr, name).value;
         }
     }
 
-    private String stringify(Object object) {
+    String stringify(Object object) {
         if (object == null) {
             return "nil";
         } else if (object instanceof Double) {
@@ -159,42 +168,239 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return expr.accept(this);
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    private long evaluateValue(Expr expr) {
+        if (this.typed && expr.type == ValueType.NUMBER) {
+            return Value.of(this.evaluateNumber(expr));
+        } else if (expr instanceof Expr.Binary && ((Expr.Binary)expr).node.isNumeric()) {
+            return this.evaluateNumeric((Expr.Binary)expr);
+        } else if (expr instanceof Expr.Variable && ((Expr.Variable)expr).slot != -1 && !((Expr.Variable)expr).captured) {
+            long value = this.environment.number(((Expr.Variable)expr).slot);
+            return value != Value.REFERENCE ? value : this.unbox(this.environment.get(((Expr.Variable)expr).slot));
+        } else if (expr instanceof Expr.Grouping) {
+            return this.evaluateValue(((Expr.Grouping)expr).expression);
+        } else {
+            return this.unbox(this.evaluate(expr));
+        }
     }
 
-    void resolve(Expr expr, int depth) {
-        this.locals.put(expr, depth);
+    private double evaluateNumber(Expr expr) {
+        if (expr instanceof Expr.Variable && ((Expr.Variable)expr).slot != -1) {
+            int slot = ((Expr.Variable)expr).slot;
+            long value = this.environment.number(slot);
+            return value != Value.REFERENCE ? Value.number(value) : (Double)this.environment.get(slot);
+        } else if (expr instanceof Expr.Literal) {
+            return (Double)((Expr.Literal)expr).value;
+        } else {
+            return expr instanceof Expr.Binary ? this.evaluateArithmetic((Expr.Binary)expr) : this.evaluateOther(expr);
+        }
     }
 
-    void executeBlock(List<Stmt> statements, Environment environment) {
-        Environment previous = this.environment;
+    private double evaluateArithmetic(Expr.Binary expr) {
+        if (expr.left.type == ValueType.NUMBER && expr.right.type == ValueType.NUMBER) {
+            double a = this.evaluateNumber(expr.left);
+            double b = this.evaluateNumber(expr.right);
+            switch (expr.operator.type) {
+                case MINUS:
+                    return a - b;
+                case PLUS:
+                    return a + b;
+                case SLASH:
+                    return a / b;
+                case STAR:
+                    return a * b;
+            }
+        }
 
-        try {
-            this.environment = environment;
-            Iterator var4 = statements.iterator();
+        long value = this.evaluateNumeric(expr);
+        return value != Value.REFERENCE ? Value.number(value) : (Double)this.box(value);
+    }
 
-            while(var4.hasNext()) {
-                Stmt statement = (Stmt)var4.next();
-                this.execute(statement);
+    private double evaluateOther(Expr expr) {
+        if (expr instanceof Expr.Grouping) {
+            return this.evaluateNumber(((Expr.Grouping)expr).expression);
+        } else if (expr instanceof Expr.Unary && ((Expr.Unary)expr).right.type == ValueType.NUMBER) {
+            return -this.evaluateNumber(((Expr.Unary)expr).right);
+        } else {
+            return (Double)this.evaluate(expr);
+        }
+    }
+
+    private boolean admits(Stmt.Function declaration, Environment environment, EzFlowScriptInstance receiver) {
+        boolean[] numbers = declaration.numberParams;
+        if (numbers != null) {
+            int first = receiver == null ? 0 : 1;
+
+            for(int i = 0; i < numbers.length; ++i) {
+                if (numbers[i] && environment.number(first + i) == Value.REFERENCE && !(environment.get(first + i) instanceof Double)) {
+                    return false;
+                }
             }
-        } finally {
-            this.environment = previous;
         }
 
+        return true;
+    }
+
+    private long evaluateNumeric(Expr.Binary expr) {
+        long left = this.evaluateValue(expr.left);
+        Object leftReference = this.reference;
+        long right = this.evaluateValue(expr.right);
+        if (left != Value.REFERENCE && right != Value.REFERENCE) {
+            double a = Value.number(left);
+            double b = Value.number(right);
+            switch (expr.operator.type) {
+                case MINUS:
+                    return Value.of(a - b);
+                case GREATER:
+                    return this.unbox(a > b);
+                case GREATER_EQUAL:
+                    return this.unbox(a >= b);
+                case LESS:
+                    return this.unbox(a < b);
+                case LESS_EQUAL:
+                    return this.unbox(a <= b);
+                case PLUS:
+                    return Value.of(a + b);
+                case SLASH:
+                    return Value.of(a / b);
+                case STAR:
+                    return Value.of(a * b);
+            }
+        }
+
+        Object a = left != Value.REFERENCE ? Value.number(left) : leftReference;
+        Object b = right != Value.REFERENCE ? Value.number(right) : this.reference;
+        return this.unbox(expr.node.execute(expr, a, b));
+    }
+
+    private long unbox(Object value) {
+        if (value instanceof Double) {
+            return Value.of((Double)value);
+        } else {
+            this.reference = value;
+            return Value.REFERENCE;
+        }
+    }
+
+    private Object box(long value) {
+        if (value != Value.REFERENCE) {
+            return Value.number(value);
+        } else {
+            Object reference = this.reference;
+            this.reference = null;
+            return reference;
+        }
     }
 
-    public Void visitBlockStmt(Stmt.Block stmt) {
-        this.executeBlock(stmt.statements, new Environment(this.environment));
+    private void store(int slot, long value) {
+        if (value != Value.REFERENCE) {
+            this.environment.setNumber(slot, value);
+        } else {
+            this.environment.set(slot, this.reference);
+            this.reference = null;
+        }
+
+    }
+
+    Object execute(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private Object executeBlock(List<Stmt> statements) {
+        for(int i = 0; i < statements.size(); ++i) {
+            if (this.execute(statements.get(i)) == RETURN) {
+                return RETURN;
+            }
+        }
+
         return null;
     }
 
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
-        this.evaluate(stmt.expression);
+    Object executeBody(EzFlowScriptFunction function, Environment environment, EzFlowScriptInstance receiver) {
+        Environment previous = this.environment;
+        Cell[] previousUpvalues = this.upvalues;
+        Stmt.Function previousFunction = this.function;
+        boolean previousTyped = this.typed;
+        if (this.directions != null) {
+            this.recordedCall = true;
+        }
+
+        Object value;
+        while(true) {
+            Stmt.Function declaration = function.declaration;
+            if (this.closures != null && declaration.compiled == null) {
+                declaration.compiled = this.closures.compile(declaration);
+            }
+
+            if (this.jit != null && declaration.compiled == null && !declaration.uncompilable && ++declaration.hotness >= this.jitThreshold) {
+                declaration.compiled = this.jit.compile(declaration);
+                declaration.uncompilable = declaration.compiled == null;
+            }
+
+            value = null;
+            if (declaration.compiled != null) {
+                value = declaration.compiled.run(this, function.upvalues, environment);
+            } else {
+                this.environment = environment;
+                this.upvalues = function.upvalues;
+                this.function = declaration;
+                this.typed = this.admits(declaration, environment, receiver);
+                if (this.executeBlock(declaration.body) == RETURN) {
+                    value = this.returnValue;
+                    this.returnValue = null;
+                }
+            }
+
+            if (declaration.spare == null) {
+                environment.clear();
+                declaration.spare = environment;
+            }
+
+            if (this.tailFunction != null) {
+                function = this.tailFunction;
+                receiver = this.tailReceiver;
+                environment = this.tailFrame;
+                this.tailFunction = null;
+                this.tailReceiver = null;
+                this.tailFrame = null;
+            } else {
+                break;
+            }
+        }
+
+        this.environment = previous;
+        this.upvalues = previousUpvalues;
+        this.function = previousFunction;
+        this.typed = previousTyped;
+        return function.isInitializer ? receiver : value;
+    }
+
+    private Cell[] capture(Stmt.Function declaration) {
+        Cell[] cells = new Cell[declaration.upvalueIndices.length];
+
+        for(int i = 0; i < cells.length; ++i) {
+            int index = declaration.upvalueIndices[i];
+            cells[i] = declaration.upvalueIsLocal[i] ? this.environment.cell(index) : this.upvalues[index];
+        }
+
+        return cells;
+    }
+
+    public Object visitBlockStmt(Stmt.Block stmt) {
+        return this.executeBlock(stmt.statements);
+    }
+
+    public Object visitExpressionStmt(Stmt.Expression stmt) {
+        if (stmt.expression instanceof Expr.Assign && ((Expr.Assign)stmt.expression).slot != -1 && !((Expr.Assign)stmt.expression).captured) {
+            Expr.Assign assign = (Expr.Assign)stmt.expression;
+            this.store(assign.slot, this.evaluateValue(assign.value));
+        } else {
+            this.evaluate(stmt.expression);
+        }
+
         return null;
     }
 
-    public Void visitClassStmt(Stmt.Class stmt) {
+    public Object visitClassStmt(Stmt.Class stmt) {
         Object superclass = null;
         if (stmt.superclass != null) {
             superclass = this.evaluate(stmt.superclass);
@@ -203,160 +409,469 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
         }
 
-        this.environment.define(stmt.name.lexeme, (Object)null);
+        this.define(stmt.name, stmt.slot, stmt.captured, (Object)null);
         if (stmt.superclass != null) {
-            this.environment = new Environment(this.environment);
-            this.environment.define("super", superclass);
+            this.environment.set(stmt.superSlot, new Cell(superclass));
         }
 
-        Map<String, EzFlowScriptFunction> methods = new HashMap();
-        Iterator var4 = stmt.methods.iterator();
+        Map<Symbol, EzFlowScriptFunction> methods = new HashMap<>();
+        Iterator<Stmt.Function> var4 = stmt.methods.iterator();
 
         while(var4.hasNext()) {
-            Stmt.Function method = (Stmt.Function)var4.next();
-            EzFlowScriptFunction function = new EzFlowScriptFunction(method, this.environment, method.name.lexeme.equals("init"));
-            methods.put(method.name.lexeme, function);
+            Stmt.Function method = var4.next();
+            EzFlowScriptFunction function = new EzFlowScriptFunction(method, this.capture(method), method.name.symbol == Symbol.INIT);
+            methods.put(method.name.symbol, function);
         }
 
         EzFlowScriptClass klass = new EzFlowScriptClass(stmt.name.lexeme, (EzFlowScriptClass)superclass, methods);
-        if (superclass != null) {
-            this.environment = this.environment.enclosing;
+        if (stmt.slot == -1) {
+            this.globals.assign(stmt.name, klass);
+        } else if (stmt.captured) {
+            this.environment.cell(stmt.slot).value = klass;
+        } else {
+            this.environment.set(stmt.slot, klass);
         }
 
-        this.environment.assign(stmt.name, klass);
         return null;
     }
 
-    public Void visitFunctionStmt(Stmt.Function stmt) {
-        EzFlowScriptFunction function = new EzFlowScriptFunction(stmt, this.environment, false);
-        this.environment.define(stmt.name.lexeme, function);
+    public Object visitFunctionStmt(Stmt.Function stmt) {
+        if (stmt.slot == -1) {
+            this.globals.define(stmt.name.symbol, new EzFlowScriptFunction(stmt, this.capture(stmt), false));
+        } else if (stmt.captured) {
+            Cell cell = new Cell((Object)null);
+            this.environment.set(stmt.slot, cell);
+            cell.value = new EzFlowScriptFunction(stmt, this.capture(stmt), false);
+        } else {
+            this.environment.set(stmt.slot, new EzFlowScriptFunction(stmt, this.capture(stmt), false));
+        }
+
         return null;
     }
 
-    public Void visitIfStmt(Stmt.If stmt) {
-        if (this.isTruthy(this.evaluate(stmt.condition))) {
-            this.execute(stmt.thenBranch);
-        } else if (stmt.elseBranch != null) {
-            this.execute(stmt.elseBranch);
+    public Object visitIfStmt(Stmt.If stmt) {
+        boolean taken = Operators.isTruthy(this.evaluate(stmt.condition));
+        if (this.directions != null) {
+            this.directions.put(stmt, taken);
         }
 
-        return null;
+        if (taken) {
+            return this.execute(stmt.thenBranch);
+        } else {
+            return stmt.elseBranch != null ? this.execute(stmt.elseBranch) : null;
+        }
     }
 
-    public Void visitPrintStmt(Stmt.Print stmt) {
+    public Object visitPrintStmt(Stmt.Print stmt) {
         Object value = this.evaluate(stmt.expression);
         System.out.println(this.stringify(value));
         return null;
     }
 
-    public Void visitReturnStmt(Stmt.Return stmt) {
-        Object value = null;
-        if (stmt.value != null) {
-            value = this.evaluate(stmt.value);
+    public Object visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.tailCall) {
+            return this.tailCall((Expr.Call)stmt.value);
+        } else {
+            Object value = null;
+            if (stmt.value != null) {
+                value = this.evaluate(stmt.value);
+            }
+
+            this.returnValue = value;
+            return RETURN;
+        }
+    }
+
+    private Object tailCall(Expr.Call expr) {
+        EzFlowScriptFunction function = null;
+        EzFlowScriptInstance receiver = null;
+        Object callee = null;
+        if (expr.callee instanceof Expr.Super) {
+            Expr.Super sup = (Expr.Super)expr.callee;
+            EzFlowScriptClass superclass = (EzFlowScriptClass)this.lookUpVariable(sup.keyword, sup);
+            receiver = (EzFlowScriptInstance)this.lookUpVariable(sup.keyword, sup.receiver);
+            function = superclass.findMethod(sup.method.symbol);
+            if (function == null) {
+                throw new RuntimeError(sup.method, "Undefined property '" + sup.method.lexeme + "'.");
+            }
+        } else if (expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get)expr.callee;
+            Object object = this.evaluate(get.object);
+            if (!(object instanceof EzFlowScriptInstance)) {
+                throw new RuntimeError(get.name, "Only instances have properties.");
+            }
+
+            receiver = (EzFlowScriptInstance)object;
+            function = get.cache.method(receiver, get.name);
+            if (function == null) {
+                callee = get.cache.get(receiver, get.name);
+            }
+        } else {
+            callee = this.evaluate(expr.callee);
+        }
+
+        if (function == null && callee instanceof EzFlowScriptFunction) {
+            function = (EzFlowScriptFunction)callee;
+            receiver = function.receiver;
         }
 
-        throw new Return(value);
+        if (function != null && function.declaration.numberParams != null && expr.arguments.size() == function.arity()) {
+            this.scheduleTailCall(function, receiver, this.frame(expr, function, receiver));
+            return RETURN;
+        }
+
+        Object[] arguments = this.evaluateArguments(expr);
+        if (function == null) {
+            this.returnValue = this.callable(expr, callee, arguments.length).call(this, arguments);
+        } else {
+            this.checkArity(expr, function, arguments.length);
+            this.scheduleTailCall(function, receiver, function.frame(receiver, arguments));
+        }
+
+        return RETURN;
+    }
+
+    void scheduleTailCall(EzFlowScriptFunction function, EzFlowScriptInstance receiver, Environment frame) {
+        this.tailFunction = function;
+        this.tailReceiver = receiver;
+        this.tailFrame = frame;
     }
 
-    public Void visitVarStmt(Stmt.Var stmt) {
+    Object finishTailCall(Object value) {
+        if (this.tailFunction == null) {
+            return value;
+        } else {
+            EzFlowScriptFunction function = this.tailFunction;
+            EzFlowScriptInstance receiver = this.tailReceiver;
+            Environment frame = this.tailFrame;
+            this.tailFunction = null;
+            this.tailReceiver = null;
+            this.tailFrame = null;
+            return this.executeBody(function, frame, receiver);
+        }
+    }
+
+    public Object visitVarStmt(Stmt.Var stmt) {
+        if (stmt.slot != -1 && !stmt.captured && stmt.initializer != null) {
+            this.store(stmt.slot, this.evaluateValue(stmt.initializer));
+            return null;
+        }
+
         Object value = null;
         if (stmt.initializer != null) {
             value = this.evaluate(stmt.initializer);
         }
 
-        this.environment.define(stmt.name.lexeme, value);
+        this.define(stmt.name, stmt.slot, stmt.captured, value);
         return null;
     }
 
-    public Void visitWhileStmt(Stmt.While stmt) {
-        while(this.isTruthy(this.evaluate(stmt.condition))) {
-            this.execute(stmt.body);
+    private void define(Token name, int slot, boolean captured, Object value) {
+        if (slot == -1) {
+            this.globals.define(name.symbol, value);
+        } else {
+            this.environment.set(slot, captured ? new Cell(value) : value);
+        }
+    }
+
+    public Object visitWhileStmt(Stmt.While stmt) {
+        while(Operators.isTruthy(this.evaluate(stmt.condition))) {
+            if (this.tracer != null) {
+                if (stmt.trace != null) {
+                    Object result = stmt.trace.run(this, this.environment, this.upvalues);
+                    if (result != Trace.ABANDON) {
+                        return result;
+                    }
+
+                    stmt.trace = null;
+                    stmt.iterations = 0;
+                    continue;
+                }
+
+                if (++stmt.iterations == TRACE_THRESHOLD) {
+                    if (this.record(stmt) == RETURN) {
+                        return RETURN;
+                    }
+
+                    continue;
+                }
+            }
+
+            if (this.execute(stmt.body) == RETURN) {
+                return RETURN;
+            }
+
+            if (this.jit != null && this.function != null && ++this.function.hotness >= this.jitThreshold && !this.function.uncompilable) {
+                CompiledFunction compiled = this.jit.compile(this.function, stmt);
+                if (compiled != null) {
+                    if (this.function.compiled == null) {
+                        this.function.compiled = this.jit.compile(this.function);
+                    }
+
+                    this.returnValue = compiled.run(this, this.upvalues, this.environment);
+                    return RETURN;
+                }
+
+                this.function.uncompilable = true;
+            }
         }
 
         return null;
     }
 
+    private Object record(Stmt.While stmt) {
+        Map<Stmt.If, Boolean> previous = this.directions;
+        boolean previousCall = this.recordedCall;
+        this.directions = new IdentityHashMap<>();
+        this.recordedCall = false;
+
+        Object result;
+        try {
+            result = this.execute(stmt.body);
+            if (result != RETURN && !this.recordedCall) {
+                stmt.trace = Trace.compile(this.tracer, stmt, this.directions);
+            }
+        } finally {
+            this.directions = previous;
+            this.recordedCall = previousCall;
+        }
+
+        return result;
+    }
+
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = this.evaluate(expr.value);
-        Integer distance = (Integer)this.locals.get(expr);
-        if (distance != null) {
-            this.environment.assignAt(distance, expr.name, value);
+        if (expr.slot != -1) {
+            if (expr.captured) {
+                this.environment.cell(expr.slot).value = value;
+            } else {
+                this.environment.set(expr.slot, value);
+            }
+        } else if (expr.upvalue != -1) {
+            this.upvalues[expr.upvalue].value = value;
         } else {
-            this.globals.assign(expr.name, value);
+            this.globals.cell(expr, expr.name).value = value;
         }
 
         return value;
     }
 
     public Object visitBinaryExpr(Expr.Binary expr) {
+        if (this.typed && expr.left.type == ValueType.NUMBER && expr.right.type == ValueType.NUMBER) {
+            Object value = this.evaluateTyped(expr);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        if (expr.node.isNumeric()) {
+            return this.box(this.evaluateNumeric(expr));
+        }
+
         Object left = this.evaluate(expr.left);
         Object right = this.evaluate(expr.right);
+        return expr.node.execute(expr, left, right);
+    }
+
+    private Object evaluateTyped(Expr.Binary expr) {
         switch (expr.operator.type) {
             case MINUS:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left - (Double)right;
+            case PLUS:
+            case SLASH:
+            case STAR:
+                return this.evaluateNumber(expr);
             case GREATER:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left > (Double)right;
+                return this.evaluateNumber(expr.left) > this.evaluateNumber(expr.right);
             case GREATER_EQUAL:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left >= (Double)right;
+                return this.evaluateNumber(expr.left) >= this.evaluateNumber(expr.right);
             case LESS:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left < (Double)right;
+                return this.evaluateNumber(expr.left) < this.evaluateNumber(expr.right);
             case LESS_EQUAL:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left <= (Double)right;
-            case BANG_EQUAL:
-                return !this.isEqual(left, right);
+                return this.evaluateNumber(expr.left) <= this.evaluateNumber(expr.right);
             case EQUAL_EQUAL:
-                return this.isEqual(left, right);
-            case PLUS:
-                if (left instanceof Double && right instanceof Double) {
-                    return (Double)left + (Double)right;
-                } else {
-                    if (left instanceof String && right instanceof String) {
-                        return (String)left + (String)right;
-                    }
-
-                    throw new RuntimeError(expr.operator, "Operands must be two numbers or Strings");
-                }
-            case SLASH:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left / (Double)right;
-            case STAR:
-                this.checkNumberOperands(expr.operator, left, right);
-                return (Double)left * (Double)right;
+                return Double.doubleToLongBits(this.evaluateNumber(expr.left)) == Double.doubleToLongBits(this.evaluateNumber(expr.right));
+            case BANG_EQUAL:
+                return Double.doubleToLongBits(this.evaluateNumber(expr.left)) != Double.doubleToLongBits(this.evaluateNumber(expr.right));
             default:
                 return null;
         }
     }
 
     public Object visitCallExpr(Expr.Call expr) {
-        Object callee = this.evaluate(expr.callee);
-        List<Object> arguments = new ArrayList();
-        Iterator var4 = expr.arguments.iterator();
+        if (expr.invoke) {
+            return expr.callee instanceof Expr.Super ? this.invokeSuper(expr, (Expr.Super)expr.callee) : this.invoke(expr, (Expr.Get)expr.callee);
+        } else {
+            Object callee = this.evaluate(expr.callee);
+            return this.call(expr, callee);
+        }
+    }
 
-        while(var4.hasNext()) {
-            Expr argument = (Expr)var4.next();
-            arguments.add(this.evaluate(argument));
+    private Object invoke(Expr.Call expr, Expr.Get get) {
+        Object object = this.evaluate(get.object);
+        if (!(object instanceof EzFlowScriptInstance)) {
+            throw new RuntimeError(get.name, "Only instances have properties.");
+        } else {
+            EzFlowScriptInstance instance = (EzFlowScriptInstance)object;
+            EzFlowScriptFunction method = get.cache.method(instance, get.name);
+            return method == null ? this.call(expr, get.cache.get(instance, get.name)) : this.invoke(expr, method, instance);
+        }
+    }
+
+    private Object invokeSuper(Expr.Call expr, Expr.Super callee) {
+        EzFlowScriptClass superclass = (EzFlowScriptClass)this.lookUpVariable(callee.keyword, callee);
+        EzFlowScriptInstance object = (EzFlowScriptInstance)this.lookUpVariable(callee.keyword, callee.receiver);
+        EzFlowScriptFunction method = superclass.findMethod(callee.method.symbol);
+        if (method == null) {
+            throw new RuntimeError(callee.method, "Undefined property '" + callee.method.lexeme + "'.");
+        } else {
+            return this.invoke(expr, method, object);
+        }
+    }
+
+    private Object invoke(Expr.Call expr, EzFlowScriptFunction method, EzFlowScriptInstance receiver) {
+        List<Expr> arguments = expr.arguments;
+        if (method.declaration.numberParams != null && arguments.size() == method.arity()) {
+            Environment frame = this.frame(expr, method, receiver);
+            this.checkArity(expr, method, arguments.size());
+            return this.executeBody(method, frame, receiver);
+        }
+
+        switch (arguments.size()) {
+            case 0:
+                this.checkArity(expr, method, 0);
+                return method.invoke0(this, receiver);
+            case 1: {
+                Object a = this.evaluate(arguments.get(0));
+                this.checkArity(expr, method, 1);
+                return method.invoke1(this, receiver, a);
+            }
+            case 2: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                this.checkArity(expr, method, 2);
+                return method.invoke2(this, receiver, a, b);
+            }
+            case 3: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                Object c = this.evaluate(arguments.get(2));
+                this.checkArity(expr, method, 3);
+                return method.invoke3(this, receiver, a, b, c);
+            }
+            case 4: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                Object c = this.evaluate(arguments.get(2));
+                Object d = this.evaluate(arguments.get(3));
+                this.checkArity(expr, method, 4);
+                return method.invoke4(this, receiver, a, b, c, d);
+            }
+            default: {
+                Object[] values = this.evaluateArguments(expr);
+                this.checkArity(expr, method, values.length);
+                return method.invoke(this, receiver, values);
+            }
+        }
+    }
+
+    private Object call(Expr.Call expr, Object callee) {
+        if (callee instanceof EzFlowScriptFunction function && function.declaration.numberParams != null) {
+            return this.invoke(expr, function, function.receiver);
         }
 
+        List<Expr> arguments = expr.arguments;
+        switch (arguments.size()) {
+            case 0:
+                return this.callable(expr, callee, 0).call0(this);
+            case 1: {
+                Object a = this.evaluate(arguments.get(0));
+                return this.callable(expr, callee, 1).call1(this, a);
+            }
+            case 2: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                return this.callable(expr, callee, 2).call2(this, a, b);
+            }
+            case 3: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                Object c = this.evaluate(arguments.get(2));
+                return this.callable(expr, callee, 3).call3(this, a, b, c);
+            }
+            case 4: {
+                Object a = this.evaluate(arguments.get(0));
+                Object b = this.evaluate(arguments.get(1));
+                Object c = this.evaluate(arguments.get(2));
+                Object d = this.evaluate(arguments.get(3));
+                return this.callable(expr, callee, 4).call4(this, a, b, c, d);
+            }
+            default: {
+                Object[] values = this.evaluateArguments(expr);
+                return this.callable(expr, callee, values.length).call(this, values);
+            }
+        }
+    }
+
+    EzFlowScriptCallable callable(Expr.Call expr, Object callee, int argCount) {
         if (!(callee instanceof EzFlowScriptCallable function)) {
             throw new RuntimeError(expr.paren, "Can only call functions and classes.");
-        } else if (arguments.size() != function.arity()) {
+        } else {
+            this.checkArity(expr, function, argCount);
+            return function;
+        }
+    }
+
+    private Environment frame(Expr.Call expr, EzFlowScriptFunction function, EzFlowScriptInstance receiver) {
+        Environment frame = function.frame(receiver);
+        boolean[] numbers = function.declaration.numberParams;
+        boolean[] captured = function.declaration.paramsCaptured;
+        int first = receiver == null ? 0 : 1;
+
+        for(int i = 0; i < numbers.length; ++i) {
+            int slot = first + i;
+            if (numbers[i] && (captured == null || !captured[slot])) {
+                long value = this.evaluateValue(expr.arguments.get(i));
+                if (value != Value.REFERENCE) {
+                    frame.setNumber(slot, value);
+                } else {
+                    frame.set(slot, this.reference);
+                    this.reference = null;
+                }
+            } else {
+                Object value = this.evaluate(expr.arguments.get(i));
+                frame.set(slot, captured != null && captured[slot] ? new Cell(value) : value);
+            }
+        }
+
+        return frame;
+    }
+
+    private Object[] evaluateArguments(Expr.Call expr) {
+        Object[] values = new Object[expr.arguments.size()];
+
+        for(int i = 0; i < values.length; ++i) {
+            values[i] = this.evaluate(expr.arguments.get(i));
+        }
+
+        return values;
+    }
+
+    void checkArity(Expr.Call expr, EzFlowScriptCallable function, int argCount) {
+        if (argCount != function.arity()) {
             Token var10002 = expr.paren;
             int var10003 = function.arity();
-            throw new RuntimeError(var10002, "Expected " + var10003 + " arguments but got " + arguments.size() + ".");
-        } else {
-            return function.call(this, arguments);
+            throw new RuntimeError(var10002, "Expected " + var10003 + " arguments but got " + argCount + ".");
+        }
+
+        if (function instanceof EzFlowScriptFunction lazy && lazy.declaration.body == null) {
+            lazy.parseBody(expr.paren);
         }
     }
 
     public Object visitGetExpr(Expr.Get expr) {
         Object object = this.evaluate(expr.object);
         if (object instanceof EzFlowScriptInstance) {
-            return ((EzFlowScriptInstance)object).get(expr.name);
+            return expr.cache.get((EzFlowScriptInstance)object, expr.name);
         } else {
             throw new RuntimeError(expr.name, "Only instances have properties.");
         }
@@ -0,0 +1,925 @@
+package com.example.ezflowscript;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class JitCompiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static final String PACKAGE = "com/example/ezflowscript/";
+    private static final String BASE = PACKAGE + "CompiledFunction";
+    private static final String RUNTIME = PACKAGE + "JitRuntime";
+    private static final String OPERATORS = PACKAGE + "Operators";
+    private static final String CELL = PACKAGE + "Cell";
+    private static final String FUNCTION = PACKAGE + "EzFlowScriptFunction";
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String INTERPRETER = "L" + PACKAGE + "Interpreter;";
+    private static final String TOKEN = "L" + PACKAGE + "Token;";
+    private static final String RUN_DESCRIPTOR = "(" + INTERPRETER + "[L" + CELL + ";L" + PACKAGE + "Environment;)" + OBJECT;
+    private static final int MAX_DIRECT = 5;
+    private static final int FIRST_LOCAL = 4;
+    private static final int MAX_CODE = 32767;
+    private static final int ACONST_NULL = 1;
+    private static final int ICONST_0 = 3;
+    private static final int ICONST_1 = 4;
+    private static final int BIPUSH = 16;
+    private static final int SIPUSH = 17;
+    private static final int LDC = 18;
+    private static final int LDC_W = 19;
+    private static final int LDC2_W = 20;
+    private static final int ALOAD = 25;
+    private static final int ALOAD_0 = 42;
+    private static final int AALOAD = 50;
+    private static final int ASTORE = 58;
+    private static final int ASTORE_0 = 75;
+    private static final int AASTORE = 83;
+    private static final int POP = 87;
+    private static final int DUP = 89;
+    private static final int DUP_X1 = 90;
+    private static final int DUP2 = 92;
+    private static final int SWAP = 95;
+    private static final int DADD = 99;
+    private static final int DSUB = 103;
+    private static final int DMUL = 107;
+    private static final int DDIV = 111;
+    private static final int DNEG = 119;
+    private static final int IXOR = 130;
+    private static final int DCMPL = 151;
+    private static final int DCMPG = 152;
+    private static final int IFEQ = 153;
+    private static final int IFNE = 154;
+    private static final int IFLT = 155;
+    private static final int IFGE = 156;
+    private static final int IFGT = 157;
+    private static final int IFLE = 158;
+    private static final int GOTO = 167;
+    private static final int ARETURN = 176;
+    private static final int RETURN = 177;
+    private static final int GETSTATIC = 178;
+    private static final int GETFIELD = 180;
+    private static final int PUTFIELD = 181;
+    private static final int INVOKEVIRTUAL = 182;
+    private static final int INVOKESPECIAL = 183;
+    private static final int INVOKESTATIC = 184;
+    private static final int NEW = 187;
+    private static final int ANEWARRAY = 189;
+    private static final int CHECKCAST = 192;
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private ClassFile classFile;
+    private byte[] code;
+    private int length;
+    private int stack;
+    private int maxStack;
+    private List<Object> constants;
+    private Map<Object, Integer> constantIndices;
+    private List<Integer> handlers;
+    private Stmt.Function function;
+    private Stmt.While entry;
+    private int entryJump;
+
+    JitCompiler() {
+    }
+
+    CompiledFunction compile(Stmt.Function function) {
+        return this.compile(function, (Stmt.While)null);
+    }
+
+    CompiledFunction compile(Stmt.Function function, Stmt.While entry) {
+        if (FIRST_LOCAL + function.slotCount > 255) {
+            return null;
+        } else {
+            this.classFile = new ClassFile();
+            this.constants = new ArrayList<>();
+            this.constantIndices = new IdentityHashMap<>();
+            this.function = function;
+            this.entry = entry;
+
+            try {
+                String name = BASE + "$" + function.name.lexeme;
+                StringBuilder body = (new StringBuilder("(")).append(INTERPRETER).append("[L" + CELL + ";L" + PACKAGE + "Environment;");
+
+                for(int slot = 0; slot < function.slotCount; ++slot) {
+                    body.append(OBJECT);
+                }
+
+                String descriptor = body.append(")" + OBJECT).toString();
+                this.begin();
+                this.aload(0);
+                this.aload(1);
+                this.op(entry == null ? ICONST_1 : ICONST_0, 1);
+                this.invoke(INVOKESPECIAL, BASE, "<init>", "([Ljava/lang/Object;Z)V");
+                this.op(RETURN, 0);
+                this.classFile.addMethod(0, "<init>", "([Ljava/lang/Object;)V", Arrays.copyOf(this.code, this.length), this.maxStack, 2, this.handlers());
+                this.begin();
+                if (entry != null) {
+                    this.entryJump = this.jump(GOTO);
+                }
+
+                this.compile(function.body);
+                this.op(ACONST_NULL, 1);
+                this.op(ARETURN, -1);
+                if (this.length > MAX_CODE) {
+                    return null;
+                }
+
+                this.classFile.addMethod(ClassFile.ACC_PRIVATE, "body", descriptor, Arrays.copyOf(this.code, this.length), this.maxStack, FIRST_LOCAL + function.slotCount, this.handlers());
+                this.begin();
+                this.aload(0);
+                this.aload(1);
+                this.aload(2);
+                this.aload(3);
+
+                for(int slot = 0; slot < function.slotCount; ++slot) {
+                    this.aload(3);
+                    this.pushInt(slot);
+                    this.invoke(INVOKEVIRTUAL, PACKAGE + "Environment", "get", "(I)" + OBJECT);
+                }
+
+                this.invoke(INVOKESPECIAL, name, "body", descriptor);
+                this.op(ARETURN, -1);
+                this.classFile.addMethod(0, "run", RUN_DESCRIPTOR, Arrays.copyOf(this.code, this.length), this.maxStack, FIRST_LOCAL, this.handlers());
+                if (entry == null) {
+                    int params = function.params.size();
+
+                    for(int bound = params; bound <= params + 1 && bound <= MAX_DIRECT && bound <= function.slotCount; ++bound) {
+                        this.direct(name, descriptor, bound);
+                    }
+                }
+
+                byte[] bytes = this.classFile.toByteArray(ClassFile.ACC_FINAL | ClassFile.ACC_SUPER, name, BASE);
+                Class<?> generated = this.lookup.defineHiddenClass(bytes, true).lookupClass();
+                return (CompiledFunction)generated.getDeclaredConstructor(Object[].class).newInstance((Object)this.constants.toArray());
+            } catch (Unsupported var4) {
+                return null;
+            } catch (ClassFile.Overflow var5) {
+                return null;
+            } catch (ReflectiveOperationException var6) {
+                throw new IllegalStateException(var6);
+            } finally {
+                this.classFile = null;
+                this.code = null;
+                this.constants = null;
+                this.constantIndices = null;
+                this.handlers = null;
+                this.function = null;
+                this.entry = null;
+            }
+        }
+    }
+
+    private void direct(String name, String descriptor, int bound) {
+        StringBuilder call = (new StringBuilder("(")).append(INTERPRETER).append("[L" + CELL + ";");
+        boolean[] captured = this.function.paramsCaptured;
+        this.begin();
+        this.aload(0);
+        this.aload(1);
+        this.aload(2);
+        this.op(ACONST_NULL, 1);
+
+        for(int slot = 0; slot < this.function.slotCount; ++slot) {
+            if (slot >= bound) {
+                this.op(ACONST_NULL, 1);
+            } else if (captured != null && slot < captured.length && captured[slot]) {
+                this.newCell();
+                this.aload(3 + slot);
+                this.invoke(INVOKESPECIAL, CELL, "<init>", "(" + OBJECT + ")V");
+            } else {
+                this.aload(3 + slot);
+            }
+        }
+
+        for(int i = 0; i < bound; ++i) {
+            call.append(OBJECT);
+        }
+
+        this.invoke(INVOKESPECIAL, name, "body", descriptor);
+        this.op(ARETURN, -1);
+        this.classFile.addMethod(0, "call", call.append(")" + OBJECT).toString(), Arrays.copyOf(this.code, this.length), this.maxStack, 3 + bound, this.handlers());
+    }
+
+    private void compile(List<Stmt> statements) {
+        for(int i = 0; i < statements.size(); ++i) {
+            (statements.get(i)).accept(this);
+        }
+
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        this.compile(stmt.statements);
+        return null;
+    }
+
+    public Void visitClassStmt(Stmt.Class stmt) {
+        throw new Unsupported();
+    }
+
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        this.compile(stmt.expression);
+        this.op(POP, -1);
+        return null;
+    }
+
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        int local = FIRST_LOCAL + stmt.slot;
+        if (stmt.captured) {
+            this.newCell();
+            this.op(ACONST_NULL, 1);
+            this.invoke(INVOKESPECIAL, CELL, "<init>", "(" + OBJECT + ")V");
+            this.astore(local);
+        }
+
+        this.type(NEW, FUNCTION, 1);
+        this.op(DUP, 1);
+        this.constant(stmt, PACKAGE + "Stmt$Function");
+        this.pushInt(stmt.upvalueIndices.length);
+        this.type(ANEWARRAY, CELL, 0);
+
+        for(int i = 0; i < stmt.upvalueIndices.length; ++i) {
+            this.op(DUP, 1);
+            this.pushInt(i);
+            if (stmt.upvalueIsLocal[i]) {
+                this.aload(FIRST_LOCAL + stmt.upvalueIndices[i]);
+                this.type(CHECKCAST, CELL, 0);
+            } else {
+                this.aload(2);
+                this.pushInt(stmt.upvalueIndices[i]);
+                this.op(AALOAD, -1);
+            }
+
+            this.op(AASTORE, -3);
+        }
+
+        this.op(ICONST_0, 1);
+        this.invoke(INVOKESPECIAL, FUNCTION, "<init>", "(L" + PACKAGE + "Stmt$Function;[L" + CELL + ";Z)V");
+        if (stmt.captured) {
+            this.aload(local);
+            this.type(CHECKCAST, CELL, 0);
+            this.op(SWAP, 0);
+            this.field(PUTFIELD, CELL, "value", OBJECT, -2);
+        } else {
+            this.astore(local);
+        }
+
+        return null;
+    }
+
+    public Void visitIfStmt(Stmt.If stmt) {
+        this.condition(stmt.condition);
+        int elseJump = this.jump(IFEQ);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) {
+            int endJump = this.jump(GOTO);
+            this.patch(elseJump);
+            stmt.elseBranch.accept(this);
+            this.patch(endJump);
+        } else {
+            this.patch(elseJump);
+        }
+
+        return null;
+    }
+
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        this.compile(stmt.expression);
+        this.aload(1);
+        this.op(SWAP, 0);
+        this.invoke(INVOKESTATIC, RUNTIME, "print", "(" + INTERPRETER + OBJECT + ")V");
+        return null;
+    }
+
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.tailCall) {
+            this.call((Expr.Call)stmt.value, true);
+        } else if (stmt.value != null) {
+            this.compile(stmt.value);
+        } else {
+            this.op(ACONST_NULL, 1);
+        }
+
+        this.op(ARETURN, -1);
+        return null;
+    }
+
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.captured) {
+            this.newCell();
+        }
+
+        if (stmt.initializer != null) {
+            this.compile(stmt.initializer);
+        } else {
+            this.op(ACONST_NULL, 1);
+        }
+
+        if (stmt.captured) {
+            this.invoke(INVOKESPECIAL, CELL, "<init>", "(" + OBJECT + ")V");
+        }
+
+        this.astore(FIRST_LOCAL + stmt.slot);
+        return null;
+    }
+
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = this.length;
+        if (stmt == this.entry) {
+            this.patch(this.entryJump);
+        }
+
+        this.condition(stmt.condition);
+        int exitJump = this.jump(IFEQ);
+        stmt.body.accept(this);
+        int offset = loopStart - this.length;
+        this.op(GOTO, 0);
+        this.u2(offset);
+        this.patch(exitJump);
+        return null;
+    }
+
+    public Void visitAssignExpr(Expr.Assign expr) {
+        this.compile(expr.value);
+        this.op(DUP, 1);
+        if (expr.slot != -1) {
+            if (expr.captured) {
+                this.aload(FIRST_LOCAL + expr.slot);
+                this.type(CHECKCAST, CELL, 0);
+                this.op(SWAP, 0);
+                this.field(PUTFIELD, CELL, "value", OBJECT, -2);
+            } else {
+                this.astore(FIRST_LOCAL + expr.slot);
+            }
+        } else if (expr.upvalue != -1) {
+            this.aload(2);
+            this.pushInt(expr.upvalue);
+            this.op(AALOAD, -1);
+            this.op(SWAP, 0);
+            this.field(PUTFIELD, CELL, "value", OBJECT, -2);
+        } else {
+            this.aload(1);
+            this.constant(expr, PACKAGE + "Expr$Reference");
+            this.constant(expr.name, PACKAGE + "Token");
+            this.invoke(INVOKESTATIC, RUNTIME, "assignGlobal", "(" + OBJECT + INTERPRETER + "L" + PACKAGE + "Expr$Reference;" + TOKEN + ")V");
+        }
+
+        return null;
+    }
+
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        if (arithmetic(expr.operator.type) != null && this.speculate(expr)) {
+            return null;
+        }
+
+        switch (expr.operator.type) {
+            case MINUS:
+                this.arithmetic(expr, "subtract");
+                break;
+            case PLUS:
+                this.arithmetic(expr, "add");
+                break;
+            case SLASH:
+                this.arithmetic(expr, "divide");
+                break;
+            case STAR:
+                this.arithmetic(expr, "multiply");
+                break;
+            default:
+                this.condition(expr);
+                this.box();
+        }
+
+        return null;
+    }
+
+    private void arithmetic(Expr.Binary expr, String name) {
+        this.compile(expr.left);
+        this.compile(expr.right);
+        this.constant(expr.operator, PACKAGE + "Token");
+        this.invoke(INVOKESTATIC, OPERATORS, name, "(" + OBJECT + OBJECT + TOKEN + ")" + OBJECT);
+    }
+
+    public Void visitCallExpr(Expr.Call expr) {
+        this.call(expr, false);
+        return null;
+    }
+
+    private void call(Expr.Call expr, boolean tail) {
+        this.aload(1);
+        if (expr.invoke && expr.callee instanceof Expr.Get) {
+            Expr.Get get = (Expr.Get)expr.callee;
+            this.compile(get.object);
+            this.op(DUP, 1);
+            this.constant(get, PACKAGE + "Expr$Get");
+            this.invoke(INVOKESTATIC, RUNTIME, "method", "(" + OBJECT + "L" + PACKAGE + "Expr$Get;)L" + FUNCTION + ";");
+            this.op(DUP2, 2);
+            this.constant(get, PACKAGE + "Expr$Get");
+            this.invoke(INVOKESTATIC, RUNTIME, "field", "(" + OBJECT + "L" + FUNCTION + ";L" + PACKAGE + "Expr$Get;)" + OBJECT);
+        } else if (expr.invoke && expr.callee instanceof Expr.Super) {
+            Expr.Super callee = (Expr.Super)expr.callee;
+            this.load(callee.receiver, callee.keyword);
+            this.load(callee, callee.keyword);
+            this.constant(callee, PACKAGE + "Expr$Super");
+            this.invoke(INVOKESTATIC, RUNTIME, "superMethod", "(" + OBJECT + "L" + PACKAGE + "Expr$Super;)L" + FUNCTION + ";");
+            this.op(ACONST_NULL, 1);
+        } else {
+            this.op(ACONST_NULL, 1);
+            this.op(ACONST_NULL, 1);
+            this.compile(expr.callee);
+        }
+
+        int argCount = expr.arguments.size();
+        StringBuilder descriptor = (new StringBuilder("(")).append(INTERPRETER).append(OBJECT).append("L" + FUNCTION + ";").append(OBJECT);
+        if (!tail && argCount <= 4) {
+            for(int i = 0; i < argCount; ++i) {
+                this.compile(expr.arguments.get(i));
+                descriptor.append(OBJECT);
+            }
+        } else {
+            this.pushInt(argCount);
+            this.type(ANEWARRAY, "java/lang/Object", 0);
+
+            for(int i = 0; i < argCount; ++i) {
+                this.op(DUP, 1);
+                this.pushInt(i);
+                this.compile(expr.arguments.get(i));
+                this.op(AASTORE, -3);
+            }
+
+            descriptor.append("[" + OBJECT);
+        }
+
+        this.constant(expr, PACKAGE + "Expr$Call");
+        descriptor.append("L" + PACKAGE + "Expr$Call;)" + OBJECT);
+        String name = tail ? "tail" : (argCount <= 4 ? "invoke" + argCount : "invoke");
+        this.invoke(INVOKESTATIC, RUNTIME, name, descriptor.toString());
+    }
+
+    public Void visitGetExpr(Expr.Get expr) {
+        this.compile(expr.object);
+        this.constant(expr, PACKAGE + "Expr$Get");
+        this.invoke(INVOKESTATIC, RUNTIME, "getProperty", "(" + OBJECT + "L" + PACKAGE + "Expr$Get;)" + OBJECT);
+        return null;
+    }
+
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        this.compile(expr.expression);
+        return null;
+    }
+
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) {
+            this.op(ACONST_NULL, 1);
+        } else if (expr.value instanceof Boolean) {
+            this.field(GETSTATIC, "java/lang/Boolean", (Boolean)expr.value ? "TRUE" : "FALSE", "Ljava/lang/Boolean;", 1);
+        } else if (expr.value instanceof String && !ClassFile.fits((String)expr.value)) {
+            this.constant(expr.value, "java/lang/String");
+        } else if (expr.value instanceof String) {
+            int index = this.classFile.string((String)expr.value);
+            if (index <= 255) {
+                this.op(LDC, 1);
+                this.u1(index);
+            } else {
+                this.op(LDC_W, 1);
+                this.u2(index);
+            }
+        } else {
+            this.constant(expr.value, "java/lang/Double");
+        }
+
+        return null;
+    }
+
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        this.compile(expr.left);
+        this.op(DUP, 1);
+        this.invoke(INVOKESTATIC, OPERATORS, "isTruthy", "(" + OBJECT + ")Z");
+        int shortCircuit = this.jump(expr.operator.type == TokenType.OR ? IFNE : IFEQ);
+        this.op(POP, -1);
+        this.compile(expr.right);
+        this.patch(shortCircuit);
+        return null;
+    }
+
+    public Void visitSetExpr(Expr.Set expr) {
+        this.compile(expr.object);
+        this.constant(expr, PACKAGE + "Expr$Set");
+        this.invoke(INVOKESTATIC, RUNTIME, "instance", "(" + OBJECT + "L" + PACKAGE + "Expr$Set;)L" + PACKAGE + "EzFlowScriptInstance;");
+        this.compile(expr.value);
+        this.op(DUP_X1, 1);
+        this.constant(expr, PACKAGE + "Expr$Set");
+        this.invoke(INVOKESTATIC, RUNTIME, "setProperty", "(L" + PACKAGE + "EzFlowScriptInstance;" + OBJECT + "L" + PACKAGE + "Expr$Set;)V");
+        return null;
+    }
+
+    public Void visitSuperExpr(Expr.Super expr) {
+        this.load(expr, expr.keyword);
+        this.load(expr.receiver, expr.keyword);
+        this.constant(expr, PACKAGE + "Expr$Super");
+        this.invoke(INVOKESTATIC, RUNTIME, "superProperty", "(" + OBJECT + OBJECT + "L" + PACKAGE + "Expr$Super;)" + OBJECT);
+        return null;
+    }
+
+    public Void visitThisExpr(Expr.This expr) {
+        this.load(expr, expr.keyword);
+        return null;
+    }
+
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == TokenType.BANG) {
+            this.condition(expr);
+            this.box();
+        } else {
+            this.compile(expr.right);
+            this.constant(expr.operator, PACKAGE + "Token");
+            this.invoke(INVOKESTATIC, OPERATORS, "negate", "(" + OBJECT + TOKEN + ")" + OBJECT);
+        }
+
+        return null;
+    }
+
+    public Void visitVariableExpr(Expr.Variable expr) {
+        this.load(expr, expr.name);
+        return null;
+    }
+
+    private void load(Expr.Reference expr, Token name) {
+        if (expr.slot != -1) {
+            this.aload(FIRST_LOCAL + expr.slot);
+            if (expr.captured) {
+                this.type(CHECKCAST, CELL, 0);
+                this.field(GETFIELD, CELL, "value", OBJECT, 0);
+            }
+        } else if (expr.upvalue != -1) {
+            this.aload(2);
+            this.pushInt(expr.upvalue);
+            this.op(AALOAD, -1);
+            this.field(GETFIELD, CELL, "value", OBJECT, 0);
+        } else {
+            this.aload(1);
+            this.constant(expr, PACKAGE + "Expr$Reference");
+            this.constant(name, PACKAGE + "Token");
+            this.invoke(INVOKESTATIC, RUNTIME, "global", "(" + INTERPRETER + "L" + PACKAGE + "Expr$Reference;" + TOKEN + ")" + OBJECT);
+        }
+
+    }
+
+    private void condition(Expr expr) {
+        if (expr instanceof Expr.Grouping) {
+            this.condition(((Expr.Grouping)expr).expression);
+        } else if (expr instanceof Expr.Unary && ((Expr.Unary)expr).operator.type == TokenType.BANG) {
+            this.condition(((Expr.Unary)expr).right);
+            this.op(ICONST_1, 1);
+            this.op(IXOR, -1);
+        } else {
+            if (expr instanceof Expr.Binary) {
+                Expr.Binary binary = (Expr.Binary)expr;
+                String name = comparison(binary.operator.type);
+                switch (binary.operator.type) {
+                    case BANG_EQUAL:
+                    case EQUAL_EQUAL:
+                        this.compile(binary.left);
+                        this.compile(binary.right);
+                        this.invoke(INVOKESTATIC, OPERATORS, "isEqual", "(" + OBJECT + OBJECT + ")Z");
+                        if (binary.operator.type == TokenType.BANG_EQUAL) {
+                            this.op(ICONST_1, 1);
+                            this.op(IXOR, -1);
+                        }
+
+                        return;
+                }
+
+                if (name != null) {
+                    if (!this.speculate(binary)) {
+                        this.compare(binary, name);
+                    }
+
+                    return;
+                }
+            }
+
+            this.compile(expr);
+            this.invoke(INVOKESTATIC, OPERATORS, "isTruthy", "(" + OBJECT + ")Z");
+        }
+    }
+
+    private void compare(Expr.Binary expr, String name) {
+        this.compile(expr.left);
+        this.compile(expr.right);
+        this.constant(expr.operator, PACKAGE + "Token");
+        this.invoke(INVOKESTATIC, OPERATORS, name, "(" + OBJECT + OBJECT + TOKEN + ")Z");
+    }
+
+    private static String comparison(TokenType type) {
+        switch (type) {
+            case GREATER:
+                return "greater";
+            case GREATER_EQUAL:
+                return "greaterEqual";
+            case LESS:
+                return "less";
+            case LESS_EQUAL:
+                return "lessEqual";
+            default:
+                return null;
+        }
+    }
+
+    private boolean speculate(Expr.Binary expr) {
+        String name = comparison(expr.operator.type);
+        if (this.stack == 0 && expr.node.isNumeric() && this.pure(expr.left) && this.pure(expr.right)) {
+            int start = this.length;
+            if (name != null) {
+                this.number(expr.left);
+                this.number(expr.right);
+                this.numberCompare(expr.operator.type);
+            } else {
+                this.number(expr);
+            }
+
+            int end = this.length;
+            if (name == null) {
+                this.invoke(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+            }
+
+            int joinJump = this.jump(GOTO);
+            int handler = this.length;
+            this.stack = 1;
+            this.op(POP, -1);
+            this.constant(expr, PACKAGE + "Expr$Binary");
+            this.constant(this.function, PACKAGE + "Stmt$Function");
+            this.invoke(INVOKESTATIC, RUNTIME, "deoptimize", "(L" + PACKAGE + "Expr;L" + PACKAGE + "Stmt$Function;)V");
+            if (name != null) {
+                this.compare(expr, name);
+            } else {
+                this.arithmetic(expr, arithmetic(expr.operator.type));
+            }
+
+            this.patch(joinJump);
+            this.handlers.add(start);
+            this.handlers.add(end);
+            this.handlers.add(handler);
+            this.handlers.add(this.classFile.classRef(RUNTIME + "$SpeculationFailure"));
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private boolean pure(Expr expr) {
+        if (!(expr instanceof Expr.Literal) && !(expr instanceof Expr.Variable) && !(expr instanceof Expr.This)) {
+            if (expr instanceof Expr.Grouping) {
+                return this.pure(((Expr.Grouping)expr).expression);
+            } else if (expr instanceof Expr.Unary) {
+                return this.pure(((Expr.Unary)expr).right);
+            } else if (!(expr instanceof Expr.Binary)) {
+                return false;
+            } else {
+                return this.pure(((Expr.Binary)expr).left) && this.pure(((Expr.Binary)expr).right);
+            }
+        } else {
+            return true;
+        }
+    }
+
+    private void number(Expr expr) {
+        if (expr instanceof Expr.Literal && ((Expr.Literal)expr).value instanceof Double) {
+            this.op(LDC2_W, 2);
+            this.u2(this.classFile.doubleConstant((Double)((Expr.Literal)expr).value));
+        } else if (expr instanceof Expr.Grouping) {
+            this.number(((Expr.Grouping)expr).expression);
+        } else if (expr instanceof Expr.Unary && ((Expr.Unary)expr).operator.type == TokenType.MINUS) {
+            this.number(((Expr.Unary)expr).right);
+            this.op(DNEG, 0);
+        } else if (expr instanceof Expr.Binary && ((Expr.Binary)expr).node.isNumeric() && arithmetic(((Expr.Binary)expr).operator.type) != null) {
+            Expr.Binary binary = (Expr.Binary)expr;
+            this.number(binary.left);
+            this.number(binary.right);
+            switch (binary.operator.type) {
+                case MINUS:
+                    this.op(DSUB, -2);
+                    break;
+                case PLUS:
+                    this.op(DADD, -2);
+                    break;
+                case SLASH:
+                    this.op(DDIV, -2);
+                    break;
+                default:
+                    this.op(DMUL, -2);
+            }
+        } else {
+            this.compile(expr);
+            this.invoke(INVOKESTATIC, RUNTIME, "number", "(" + OBJECT + ")D");
+        }
+
+    }
+
+    private void numberCompare(TokenType type) {
+        switch (type) {
+            case GREATER:
+                this.op(DCMPL, -3);
+                this.numberTest(IFLE);
+                break;
+            case GREATER_EQUAL:
+                this.op(DCMPL, -3);
+                this.numberTest(IFLT);
+                break;
+            case LESS:
+                this.op(DCMPG, -3);
+                this.numberTest(IFGE);
+                break;
+            default:
+                this.op(DCMPG, -3);
+                this.numberTest(IFGT);
+        }
+
+    }
+
+    private void numberTest(int opcode) {
+        int falseJump = this.jump(opcode);
+        this.op(ICONST_1, 1);
+        int endJump = this.jump(GOTO);
+        this.patch(falseJump);
+        --this.stack;
+        this.op(ICONST_0, 1);
+        this.patch(endJump);
+    }
+
+    private static String arithmetic(TokenType type) {
+        switch (type) {
+            case MINUS:
+                return "subtract";
+            case PLUS:
+                return "add";
+            case SLASH:
+                return "divide";
+            case STAR:
+                return "multiply";
+            default:
+                return null;
+        }
+    }
+
+    private int[] handlers() {
+        int[] table = new int[this.handlers.size()];
+
+        for(int i = 0; i < table.length; ++i) {
+            table[i] = this.handlers.get(i);
+        }
+
+        return table;
+    }
+
+    private void box() {
+        this.invoke(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+    }
+
+    private void newCell() {
+        this.type(NEW, CELL, 1);
+        this.op(DUP, 1);
+    }
+
+    private void constant(Object value, String type) {
+        Integer index = this.constantIndices.get(value);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add(value);
+            this.constantIndices.put(value, index);
+        }
+
+        this.aload(0);
+        this.field(GETFIELD, BASE, "constants", "[" + OBJECT, 0);
+        this.pushInt(index);
+        this.op(AALOAD, -1);
+        this.type(CHECKCAST, type, 0);
+    }
+
+    private void begin() {
+        this.code = new byte[256];
+        this.handlers = new ArrayList<>();
+        this.length = 0;
+        this.stack = 0;
+        this.maxStack = 0;
+    }
+
+    private void op(int opcode, int effect) {
+        this.u1(opcode);
+        this.stack += effect;
+        if (this.stack > this.maxStack) {
+            this.maxStack = this.stack;
+        }
+
+    }
+
+    private void u1(int value) {
+        if (this.length == this.code.length) {
+            this.code = Arrays.copyOf(this.code, this.length * 2);
+        }
+
+        this.code[this.length++] = (byte)value;
+    }
+
+    private void u2(int value) {
+        this.u1(value >> 8);
+        this.u1(value);
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            this.op(ICONST_0 + value, 1);
+        } else if (value <= 127) {
+            this.op(BIPUSH, 1);
+            this.u1(value);
+        } else {
+            this.op(SIPUSH, 1);
+            this.u2(value);
+        }
+
+    }
+
+    private void aload(int local) {
+        if (local <= 3) {
+            this.op(ALOAD_0 + local, 1);
+        } else {
+            this.op(ALOAD, 1);
+            this.u1(local);
+        }
+
+    }
+
+    private void astore(int local) {
+        if (local <= 3) {
+            this.op(ASTORE_0 + local, -1);
+        } else {
+            this.op(ASTORE, -1);
+            this.u1(local);
+        }
+
+    }
+
+    private void type(int opcode, String internalName, int effect) {
+        this.op(opcode, effect);
+        this.u2(this.classFile.classRef(internalName));
+    }
+
+    private void field(int opcode, String owner, String name, String descriptor, int effect) {
+        this.op(opcode, effect);
+        this.u2(this.classFile.fieldRef(owner, name, descriptor));
+    }
+
+    private void invoke(int opcode, String owner, String name, String descriptor) {
+        int effect = opcode == INVOKESTATIC ? 0 : -1;
+        int i = 1;
+
+        while(descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            while(c == '[') {
+                c = descriptor.charAt(++i);
+            }
+
+            if (c == 'L') {
+                i = descriptor.indexOf(';', i);
+            } else if ((c == 'D' || c == 'J') && descriptor.charAt(i - 1) != '[') {
+                --effect;
+            }
+
+            --effect;
+            ++i;
+        }
+
+        char result = descriptor.charAt(i + 1);
+        if (result == 'D' || result == 'J') {
+            effect += 2;
+        } else if (result != 'V') {
+            ++effect;
+        }
+
+        this.op(opcode, effect);
+        this.u2(this.classFile.methodRef(owner, name, descriptor));
+    }
+
+    private int jump(int opcode) {
+        int offset = this.length;
+        this.op(opcode, opcode == GOTO ? 0 : -1);
+        this.u2(0);
+        return offset;
+    }
+
+    private void patch(int offset) {
+        int jump = this.length - offset;
+        this.code[offset + 1] = (byte)(jump >> 8);
+        this.code[offset + 2] = (byte)jump;
+    }
+
+    private static class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super((String)null, (Throwable)null, false, false);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.ezflowscript;
+
+final class JitRuntime {
+    private JitRuntime() {
+    }
+
+    static Object global(Interpreter interpreter, Expr.Reference expr, Token name) {
+        return interpreter.globals.cell(expr, name).value;
+    }
+
+    static void assignGlobal(Object value, Interpreter interpreter, Expr.Reference expr, Token name) {
+        interpreter.globals.cell(expr, name).value = value;
+    }
+
+    static double number(Object value) {
+        if (value instanceof Double) {
+            return (Double)value;
+        } else {
+            throw SpeculationFailure.INSTANCE;
+        }
+    }
+
+    static void deoptimize(Expr expr, Stmt.Function function) {
+        generalize(expr);
+        function.compiled = null;
+        function.hotness = 0;
+    }
+
+    private static void generalize(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary)expr;
+            binary.node = BinaryNode.GENERIC;
+            generalize(binary.left);
+            generalize(binary.right);
+        } else if (expr instanceof Expr.Grouping) {
+            generalize(((Expr.Grouping)expr).expression);
+        } else if (expr instanceof Expr.Unary) {
+            generalize(((Expr.Unary)expr).right);
+        }
+
+    }
+
+    static void print(Interpreter interpreter, Object value) {
+        System.out.println(interpreter.stringify(value));
+    }
+
+    static Object getProperty(Object object, Expr.Get expr) {
+        if (object instanceof EzFlowScriptInstance) {
+            return expr.cache.get((EzFlowScriptInstance)object, expr.name);
+        } else {
+            throw new RuntimeError(expr.name, "Only instances have properties.");
+        }
+    }
+
+    static EzFlowScriptInstance instance(Object object, Expr.Set expr) {
+        if (!(object instanceof EzFlowScriptInstance)) {
+            throw new RuntimeError(expr.name, "Only instances have fields.");
+        } else {
+            return (EzFlowScriptInstance)object;
+        }
+    }
+
+    static void setProperty(EzFlowScriptInstance instance, Object value, Expr.Set expr) {
+        expr.cache.set(instance, expr.name, value);
+    }
+
+    static Object superProperty(Object superclass, Object receiver, Expr.Super expr) {
+        return superMethod(superclass, expr).bind((EzFlowScriptInstance)receiver);
+    }
+
+    static EzFlowScriptFunction superMethod(Object superclass, Expr.Super expr) {
+        EzFlowScriptFunction method = ((EzFlowScriptClass)superclass).findMethod(expr.method.symbol);
+        if (method == null) {
+            throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'.");
+        } else {
+            return method;
+        }
+    }
+
+    static EzFlowScriptFunction method(Object object, Expr.Get expr) {
+        if (!(object instanceof EzFlowScriptInstance)) {
+            throw new RuntimeError(expr.name, "Only instances have properties.");
+        } else {
+            return expr.cache.method((EzFlowScriptInstance)object, expr.name);
+        }
+    }
+
+    static Object field(Object object, EzFlowScriptFunction method, Expr.Get expr) {
+        return method != null ? null : expr.cache.get((EzFlowScriptInstance)object, expr.name);
+    }
+
+    static Object invoke0(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method != null) {
+            interpreter.checkArity(expr, method, 0);
+            CompiledFunction compiled = direct(method);
+            if (compiled != null) {
+                return interpreter.finishTailCall(receiver == null ? compiled.call(interpreter, method.upvalues) : compiled.call(interpreter, method.upvalues, receiver));
+            } else {
+                return method.invoke0(interpreter, (EzFlowScriptInstance)receiver);
+            }
+        } else {
+            return interpreter.callable(expr, callee, 0).call0(interpreter);
+        }
+    }
+
+    static Object invoke1(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object a, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method != null) {
+            interpreter.checkArity(expr, method, 1);
+            CompiledFunction compiled = direct(method);
+            if (compiled != null) {
+                return interpreter.finishTailCall(receiver == null ? compiled.call(interpreter, method.upvalues, a) : compiled.call(interpreter, method.upvalues, receiver, a));
+            } else {
+                return method.invoke1(interpreter, (EzFlowScriptInstance)receiver, a);
+            }
+        } else {
+            return interpreter.callable(expr, callee, 1).call1(interpreter, a);
+        }
+    }
+
+    static Object invoke2(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object a, Object b, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method != null) {
+            interpreter.checkArity(expr, method, 2);
+            CompiledFunction compiled = direct(method);
+            if (compiled != null) {
+                return interpreter.finishTailCall(receiver == null ? compiled.call(interpreter, method.upvalues, a, b) : compiled.call(interpreter, method.upvalues, receiver, a, b));
+            } else {
+                return method.invoke2(interpreter, (EzFlowScriptInstance)receiver, a, b);
+            }
+        } else {
+            return interpreter.callable(expr, callee, 2).call2(interpreter, a, b);
+        }
+    }
+
+    static Object invoke3(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object a, Object b, Object c, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method != null) {
+            interpreter.checkArity(expr, method, 3);
+            CompiledFunction compiled = direct(method);
+            if (compiled != null) {
+                return interpreter.finishTailCall(receiver == null ? compiled.call(interpreter, method.upvalues, a, b, c) : compiled.call(interpreter, method.upvalues, receiver, a, b, c));
+            } else {
+                return method.invoke3(interpreter, (EzFlowScriptInstance)receiver, a, b, c);
+            }
+        } else {
+            return interpreter.callable(expr, callee, 3).call3(interpreter, a, b, c);
+        }
+    }
+
+    static Object invoke4(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object a, Object b, Object c, Object d, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method != null) {
+            interpreter.checkArity(expr, method, 4);
+            CompiledFunction compiled = direct(method);
+            if (compiled != null) {
+                return interpreter.finishTailCall(receiver == null ? compiled.call(interpreter, method.upvalues, a, b, c, d) : compiled.call(interpreter, method.upvalues, receiver, a, b, c, d));
+            } else {
+                return method.invoke4(interpreter, (EzFlowScriptInstance)receiver, a, b, c, d);
+            }
+        } else {
+            return interpreter.callable(expr, callee, 4).call4(interpreter, a, b, c, d);
+        }
+    }
+
+    private static CompiledFunction direct(EzFlowScriptFunction method) {
+        CompiledFunction compiled = method.declaration.compiled;
+        return compiled != null && compiled.direct && !method.isInitializer ? compiled : null;
+    }
+
+    static Object invoke(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object[] arguments, Expr.Call expr) {
+        if (method != null) {
+            interpreter.checkArity(expr, method, arguments.length);
+            return method.invoke(interpreter, (EzFlowScriptInstance)receiver, arguments);
+        } else {
+            return interpreter.callable(expr, callee, arguments.length).call(interpreter, arguments);
+        }
+    }
+
+    static Object tail(Interpreter interpreter, Object receiver, EzFlowScriptFunction method, Object callee, Object[] arguments, Expr.Call expr) {
+        if (method == null && callee instanceof EzFlowScriptFunction) {
+            method = (EzFlowScriptFunction)callee;
+            receiver = method.receiver;
+        }
+
+        if (method == null) {
+            return interpreter.callable(expr, callee, arguments.length).call(interpreter, arguments);
+        } else {
+            interpreter.checkArity(expr, method, arguments.length);
+            interpreter.scheduleTailCall(method, (EzFlowScriptInstance)receiver, method.frame((EzFlowScriptInstance)receiver, arguments));
+            return null;
+        }
+    }
+
+    static final class SpeculationFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final SpeculationFailure INSTANCE = new SpeculationFailure();
+
+        private SpeculationFailure() {
+            super((String)null, (Throwable)null, false, false);
+        }
+    }
+}
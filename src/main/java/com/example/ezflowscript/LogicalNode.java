@@ -0,0 +1,47 @@
+package com.example.ezflowscript;
+
+abstract class LogicalNode {
+    static final LogicalNode UNINITIALIZED = new Uninitialized();
+    static final LogicalNode GENERIC = new Generic();
+
+    LogicalNode() {
+    }
+
+    abstract boolean isTruthy(Expr.Logical expr, Object left);
+
+    final boolean generalize(Expr.Logical expr, Object left) {
+        expr.node = GENERIC;
+        return GENERIC.isTruthy(expr, left);
+    }
+
+    private static final class Uninitialized extends LogicalNode {
+        private Uninitialized() {
+        }
+
+        boolean isTruthy(Expr.Logical expr, Object left) {
+            LogicalNode node = left instanceof Boolean ? BooleanNode.INSTANCE : GENERIC;
+            expr.node = node;
+            return node.isTruthy(expr, left);
+        }
+    }
+
+    private static final class Generic extends LogicalNode {
+        private Generic() {
+        }
+
+        boolean isTruthy(Expr.Logical expr, Object left) {
+            return Operators.isTruthy(left);
+        }
+    }
+
+    private static final class BooleanNode extends LogicalNode {
+        static final BooleanNode INSTANCE = new BooleanNode();
+
+        private BooleanNode() {
+        }
+
+        boolean isTruthy(Expr.Logical expr, Object left) {
+            return left instanceof Boolean ? (Boolean)left : this.generalize(expr, left);
+        }
+    }
+}
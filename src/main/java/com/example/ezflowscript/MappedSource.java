@@ -0,0 +1,81 @@
+package com.example.ezflowscript;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class MappedSource implements CharSequence {
+    private static final long MAP_THRESHOLD = 1L << 20;
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private MappedSource(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    static CharSequence read(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        CharSequence source;
+        try {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            } else {
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Script too large: " + path);
+                }
+
+                source = new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size), 0, (int)size);
+            }
+        } finally {
+            channel.close();
+        }
+
+        return source;
+    }
+
+    static boolean isContinuation(CharSequence source, char c) {
+        return source instanceof MappedSource && (c & 0xC0) == 0x80;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public char charAt(int index) {
+        if (index >= 0 && index < this.length) {
+            return (char)(this.bytes.get(this.offset + index) & 0xff);
+        } else {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+    }
+
+    void getChars(int start, int end, char[] destination) {
+        for(int i = start; i < end; ++i) {
+            destination[i - start] = (char)(this.bytes.get(this.offset + i) & 0xff);
+        }
+
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        if (start >= 0 && start <= end && end <= this.length) {
+            return new MappedSource(this.bytes, this.offset + start, end - start);
+        } else {
+            throw new StringIndexOutOfBoundsException("begin " + start + ", end " + end + ", length " + this.length);
+        }
+    }
+
+    public String toString() {
+        byte[] text = new byte[this.length];
+        this.bytes.get(this.offset, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ezflowscript;
+
+final class OpCode {
+    static final byte CONSTANT = 0;
+    static final byte NIL = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte POP = 4;
+    static final byte GET_LOCAL = 5;
+    static final byte SET_LOCAL = 6;
+    static final byte GET_GLOBAL = 7;
+    static final byte DEFINE_GLOBAL = 8;
+    static final byte SET_GLOBAL = 9;
+    static final byte GET_UPVALUE = 10;
+    static final byte SET_UPVALUE = 11;
+    static final byte GET_PROPERTY = 12;
+    static final byte SET_PROPERTY = 13;
+    static final byte GET_SUPER = 14;
+    static final byte EQUAL = 15;
+    static final byte NOT_EQUAL = 16;
+    static final byte GREATER = 17;
+    static final byte GREATER_EQUAL = 18;
+    static final byte LESS = 19;
+    static final byte LESS_EQUAL = 20;
+    static final byte ADD = 21;
+    static final byte SUBTRACT = 22;
+    static final byte MULTIPLY = 23;
+    static final byte DIVIDE = 24;
+    static final byte NOT = 25;
+    static final byte NEGATE = 26;
+    static final byte PRINT = 27;
+    static final byte JUMP = 28;
+    static final byte JUMP_IF_FALSE = 29;
+    static final byte LOOP = 30;
+    static final byte CALL = 31;
+    static final byte INVOKE = 32;
+    static final byte SUPER_INVOKE = 33;
+    static final byte CLOSURE = 34;
+    static final byte CLOSE_UPVALUE = 35;
+    static final byte RETURN = 36;
+    static final byte CLASS = 37;
+    static final byte INHERIT = 38;
+    static final byte METHOD = 39;
+    static final byte POP_JUMP_IF_FALSE = 40;
+    static final byte STORE_LOCAL = 41;
+    static final byte STORE_GLOBAL = 42;
+    static final byte STORE_UPVALUE = 43;
+    static final byte JUMP_IF_NOT_GREATER = 44;
+    static final byte JUMP_IF_NOT_GREATER_EQUAL = 45;
+    static final byte JUMP_IF_NOT_LESS = 46;
+    static final byte JUMP_IF_NOT_LESS_EQUAL = 47;
+    static final byte ADD_LOCAL = 48;
+    static final byte SUBTRACT_LOCAL = 49;
+    static final byte MULTIPLY_LOCAL = 50;
+    static final byte DIVIDE_LOCAL = 51;
+    static final byte ADD_CONSTANT = 52;
+    static final byte SUBTRACT_CONSTANT = 53;
+    static final byte MULTIPLY_CONSTANT = 54;
+    static final byte DIVIDE_CONSTANT = 55;
+    static final byte JUMP_IF_NOT_GREATER_LOCAL = 56;
+    static final byte JUMP_IF_NOT_GREATER_EQUAL_LOCAL = 57;
+    static final byte JUMP_IF_NOT_LESS_LOCAL = 58;
+    static final byte JUMP_IF_NOT_LESS_EQUAL_LOCAL = 59;
+    static final byte JUMP_IF_NOT_GREATER_CONSTANT = 60;
+    static final byte JUMP_IF_NOT_GREATER_EQUAL_CONSTANT = 61;
+    static final byte JUMP_IF_NOT_LESS_CONSTANT = 62;
+    static final byte JUMP_IF_NOT_LESS_EQUAL_CONSTANT = 63;
+
+    private OpCode() {
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.ezflowscript;
+
+final class Operators {
+    static final String NUMBER_OPERAND = "Operand must be a number.";
+    static final String NUMBER_OPERANDS = "Operands must be numbers.";
+    static final String ADD_OPERANDS = "Operands must be two numbers or Strings";
+
+    private Operators() {
+    }
+
+    static boolean isTruthy(Object object) {
+        if (object == null) {
+            return false;
+        } else {
+            return object instanceof Boolean ? (Boolean)object : true;
+        }
+    }
+
+    static boolean isEqual(Object a, Object b) {
+        if (a == b) {
+            return true;
+        } else {
+            return a == null ? false : Rope.flatten(a).equals(Rope.flatten(b));
+        }
+    }
+
+    static Object negate(Object operand, Token operator) {
+        if (!(operand instanceof Double)) {
+            throw new RuntimeError(operator, NUMBER_OPERAND);
+        } else {
+            return -(Double)operand;
+        }
+    }
+
+    static Object add(Object left, Object right, Token operator) {
+        if (left instanceof Double && right instanceof Double) {
+            return (Double)left + (Double)right;
+        } else if (Rope.isString(left) && Rope.isString(right)) {
+            return Rope.concat(left, right);
+        } else {
+            throw new RuntimeError(operator, ADD_OPERANDS);
+        }
+    }
+
+    static Object subtract(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left - (Double)right;
+    }
+
+    static Object multiply(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left * (Double)right;
+    }
+
+    static Object divide(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left / (Double)right;
+    }
+
+    static boolean greater(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left > (Double)right;
+    }
+
+    static boolean greaterEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left >= (Double)right;
+    }
+
+    static boolean less(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left < (Double)right;
+    }
+
+    static boolean lessEqual(Object left, Object right, Token operator) {
+        checkNumberOperands(operator, left, right);
+        return (Double)left <= (Double)right;
+    }
+
+    private static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (!(left instanceof Double) || !(right instanceof Double)) {
+            throw new RuntimeError(operator, NUMBER_OPERANDS);
+        }
+    }
+}
@@ -7,23 +7,49 @@ import static com.example.ezflowscript.TokenType.*;
 
 
 class Parser {
-    private final List<Token> tokens;
+    private final TokenBuffer tokens;
+    private final ErrorReporter reporter;
+    private final boolean lazy;
+    private final Resolver resolver;
     private int current = 0;
+    private int outermost = -1;
 
-    Parser(List<Token> tokens) {
+    Parser(TokenBuffer tokens, ErrorReporter reporter) {
+        this(tokens, reporter, false, (Resolver)null);
+    }
+
+    Parser(TokenBuffer tokens, ErrorReporter reporter, boolean lazy, Resolver resolver) {
         this.tokens = tokens;
+        this.reporter = reporter;
+        this.lazy = lazy;
+        this.resolver = resolver;
     }
 
     List<Stmt> parse() {
-        List<Stmt> statements = new ArrayList();
+        List<Stmt> statements = new ArrayList<>();
 
         while(!this.isAtEnd()) {
+            if (!this.lazy) {
+                this.tokens.release(this.current);
+            }
+
+            this.outermost = this.current;
             statements.add(this.declaration());
         }
 
         return statements;
     }
 
+    List<Stmt> parseBody(int start) {
+        this.current = start;
+
+        try {
+            return this.block();
+        } catch (ParseError var3) {
+            return new ArrayList<>();
+        }
+    }
+
     private Expr expression() {
         return this.assignment();
     }
@@ -38,7 +64,8 @@ class Parser {
     }
 
     private Stmt classDeclaration() {
-        Token name = this.consume(TokenType.IDENTIFIER, "Expect class name.");
+        this.consume(TokenType.IDENTIFIER, "Expect class name.");
+        Token name = this.previous();
         Expr.Variable superclass = null;
         if (this.match(TokenType.LESS)) {
             this.consume(TokenType.IDENTIFIER, "Expect superclass name.");
@@ -46,14 +73,22 @@ class Parser {
         }
 
         this.consume(TokenType.LEFT_BRACE, "Expect '{' before class body.");
-        List<Stmt.Function> methods = new ArrayList();
+        List<Stmt.Function> methods = new ArrayList<>();
+        Stmt.Class stmt = new Stmt.Class(name, superclass, methods);
+        if (this.resolving()) {
+            this.resolver.beginClass(stmt);
+        }
 
         while(!this.check(TokenType.RIGHT_BRACE) && !this.isAtEnd()) {
             methods.add(this.function("method"));
         }
 
         this.consume(TokenType.RIGHT_BRACE, "Expect '}' after class body.");
-        return new Stmt.Class(name, superclass, methods);
+        if (this.resolving()) {
+            this.resolver.endClass(stmt);
+        }
+
+        return stmt;
     }
 
     private Stmt statement() {
@@ -72,19 +107,38 @@ class Parser {
         } else if (this.match(TokenType.WHILE)) {
             return this.whileStatement();
         } else {
-            return (Stmt)(this.match(TokenType.LEFT_BRACE) ? new Stmt.Block(this.block()) : this.expressionStatement());
+            return (this.match(TokenType.LEFT_BRACE) ? this.blockStatement() : this.expressionStatement());
         }
     }
 
+    private Stmt blockStatement() {
+        if (this.resolving()) {
+            this.resolver.beginBlock();
+        }
+
+        List<Stmt> statements = this.block();
+        if (this.resolving()) {
+            this.resolver.endBlock();
+        }
+
+        return new Stmt.Block(statements);
+    }
+
     private Stmt forStatement() {
         this.consume(TokenType.LEFT_PAREN, "Expect '(' after 'for'.");
         Stmt initializer;
         if (this.match(TokenType.SEMICOLON)) {
             initializer = null;
-        } else if (this.match(TokenType.VAR)) {
-            initializer = this.varDeclaration();
         } else {
-            initializer = this.expressionStatement();
+            if (this.resolving()) {
+                this.resolver.beginBlock();
+            }
+
+            if (this.match(TokenType.VAR)) {
+                initializer = this.varDeclaration();
+            } else {
+                initializer = this.expressionStatement();
+            }
         }
 
         Expr condition = null;
@@ -99,21 +153,33 @@ class Parser {
         }
 
         this.consume(TokenType.RIGHT_PAREN, "Expect ')' after for clauses.");
+        if (increment != null && this.resolving()) {
+            this.resolver.beginBlock();
+        }
+
         Stmt body = this.statement();
         if (increment != null) {
-            body = new Stmt.Block(Arrays.asList((Stmt)body, new Stmt.Expression(increment)));
+            if (this.resolving()) {
+                this.resolver.endBlock();
+            }
+
+            body = new Stmt.Block(Arrays.asList(body, new Stmt.Expression(increment)));
         }
 
         if (condition == null) {
             condition = new Expr.Literal(true);
         }
 
-        body = new Stmt.While((Expr)condition, (Stmt)body);
+        body = new Stmt.While(condition, body);
         if (initializer != null) {
-            body = new Stmt.Block(Arrays.asList(initializer, (Stmt)body));
+            if (this.resolving()) {
+                this.resolver.endBlock();
+            }
+
+            body = new Stmt.Block(Arrays.asList(initializer, body));
         }
 
-        return (Stmt)body;
+        return body;
     }
 
     private Stmt ifStatement() {
@@ -138,23 +204,40 @@ class Parser {
     private Stmt returnStatement() {
         Token keyword = this.previous();
         Expr value = null;
+        if (this.resolving()) {
+            this.resolver.resolveReturn(keyword, !this.check(TokenType.SEMICOLON));
+        }
+
         if (!this.check(TokenType.SEMICOLON)) {
             value = this.expression();
         }
 
         this.consume(TokenType.SEMICOLON, "Expect ';' after return value.");
-        return new Stmt.Return(keyword, value);
+        Stmt.Return stmt = new Stmt.Return(keyword, value);
+        if (this.resolving()) {
+            stmt.tailCall = value instanceof Expr.Call;
+        }
+
+        return stmt;
     }
 
     private Stmt varDeclaration() {
-        Token name = this.consume(TokenType.IDENTIFIER, "Expect variable name ");
+        this.consume(TokenType.IDENTIFIER, "Expect variable name ");
+        Token name = this.previous();
+        int slot = this.resolving() ? this.resolver.declareVariable(name) : -1;
         Expr initializer = null;
         if (this.match(TokenType.EQUAL)) {
             initializer = this.expression();
         }
 
         this.consume(TokenType.SEMICOLON, "Expect ';' after variable declaration ");
-        return new Stmt.Var(name, initializer);
+        Stmt.Var stmt = new Stmt.Var(name, initializer);
+        if (this.resolving()) {
+            stmt.slot = slot;
+            this.resolver.defineVariable(name, stmt);
+        }
+
+        return stmt;
     }
 
     private Stmt whileStatement() {
@@ -172,27 +255,88 @@ class Parser {
     }
 
     private Stmt.Function function(String kind) {
-        Token name = this.consume(TokenType.IDENTIFIER, "Expect " + kind + " name.");
+        boolean outermost = this.lazy && this.current == this.outermost + 1 && kind.equals("function");
+        boolean method = kind.equals("method");
+        this.consume(TokenType.IDENTIFIER, "Expect " + kind + " name.");
+        Token name = this.previous();
+        int slot = -1;
+        if (!method && this.resolving()) {
+            slot = this.resolver.declareVariable(name);
+            this.resolver.defineVariable(name, (Stmt)null);
+        }
+
         this.consume(TokenType.LEFT_PAREN, "Expect '(' after " + kind + " name.");
-        List<Token> parameters = new ArrayList();
+        List<Token> parameters = new ArrayList<>();
         if (!this.check(TokenType.RIGHT_PAREN)) {
             do {
                 if (parameters.size() >= 255) {
                     this.error(this.peek(), "Can't have more than 255 parameters.");
                 }
 
-                parameters.add(this.consume(TokenType.IDENTIFIER, "Expect parameter name."));
+                this.consume(TokenType.IDENTIFIER, "Expect parameter name.");
+                parameters.add(this.previous());
             } while(this.match(TokenType.COMMA));
         }
 
         this.consume(TokenType.RIGHT_PAREN, "Expect ')' after parameters.");
         this.consume(TokenType.LEFT_BRACE, "Expect '{' brefore " + kind + " body");
+        if (outermost) {
+            int start = this.current;
+            if (this.skipBlock()) {
+                Stmt.Function function = new Stmt.Function(name, parameters, (List<Stmt>)null, this.tokens, start);
+                function.reporter = this.reporter;
+                if (this.resolving()) {
+                    this.resolver.skipFunction(function);
+                    this.declared(function, slot);
+                }
+
+                return function;
+            }
+
+            this.current = start;
+        }
+
+        if (this.resolving()) {
+            this.resolver.beginFunction(name, parameters, method);
+        }
+
         List<Stmt> body = this.block();
-        return new Stmt.Function(name, parameters, body);
+        Stmt.Function function = new Stmt.Function(name, parameters, body, (TokenBuffer)null, -1);
+        if (this.resolving()) {
+            this.resolver.endFunction(function);
+            if (!method) {
+                this.declared(function, slot);
+            }
+        }
+
+        return function;
+    }
+
+    private void declared(Stmt.Function function, int slot) {
+        function.slot = slot;
+        this.resolver.defineVariable(function.name, function);
+    }
+
+    private boolean skipBlock() {
+        int depth = 1;
+
+        while(!this.isAtEnd()) {
+            TokenType type = this.tokens.type(this.current++);
+            if (type == TokenType.LEFT_BRACE) {
+                ++depth;
+            } else if (type == TokenType.RIGHT_BRACE) {
+                --depth;
+                if (depth == 0) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
     }
 
     private List<Stmt> block() {
-        List<Stmt> statements = new ArrayList();
+        List<Stmt> statements = new ArrayList<>();
 
         while(!this.check(TokenType.RIGHT_BRACE) && !this.isAtEnd()) {
             statements.add(this.declaration());
@@ -205,11 +349,16 @@ class Parser {
     private Expr assignment() {
         Expr expr = this.or();
         if (this.match(TokenType.EQUAL)) {
-            Token equals = this.previous();
+            int equals = this.current - 1;
             Expr value = this.assignment();
             if (expr instanceof Expr.Variable) {
                 Token name = ((Expr.Variable)expr).name;
-                return new Expr.Assign(name, value);
+                Expr.Assign assign = new Expr.Assign(name, value);
+                if (this.resolving()) {
+                    this.resolver.resolveAssign(assign);
+                }
+
+                return assign;
             }
 
             if (expr instanceof Expr.Get) {
@@ -217,7 +366,7 @@ class Parser {
                 return new Expr.Set(get.object, get.name, value);
             }
 
-            this.error(equals, "Invalid assignment target.");
+            this.error(this.tokens.token(equals), "Invalid assignment target.");
         }
 
         return expr;
@@ -306,7 +455,7 @@ class Parser {
     }
 
     private Expr finishCall(Expr callee) {
-        List<Expr> arguments = new ArrayList();
+        List<Expr> arguments = new ArrayList<>();
         if (!this.check(TokenType.RIGHT_PAREN)) {
             do {
                 if (arguments.size() >= 255) {
@@ -317,8 +466,14 @@ class Parser {
             } while(this.match(TokenType.COMMA));
         }
 
-        Token paren = this.consume(TokenType.RIGHT_PAREN, "Expect ')' after arguments.");
-        return new Expr.Call(callee, paren, arguments);
+        this.consume(TokenType.RIGHT_PAREN, "Expect ')' after arguments.");
+        Token paren = this.previous();
+        Expr.Call call = new Expr.Call(callee, paren, arguments);
+        if (this.resolving()) {
+            call.invoke = callee instanceof Expr.Get || callee instanceof Expr.Super;
+        }
+
+        return call;
     }
 
     private Expr call() {
@@ -327,29 +482,46 @@ class Parser {
         while(true) {
             while(!this.match(TokenType.LEFT_PAREN)) {
                 if (!this.match(TokenType.DOT)) {
-                    return (Expr)expr;
+                    return expr;
                 }
 
-                Token name = this.consume(TokenType.IDENTIFIER, "Expect property name after '.' .");
-                expr = new Expr.Get((Expr)expr, name);
+                this.consume(TokenType.IDENTIFIER, "Expect property name after '.' .");
+                Token name = this.previous();
+                expr = new Expr.Get(expr, name);
             }
 
-            expr = this.finishCall((Expr)expr);
+            expr = this.finishCall(expr);
         }
     }
 
     private Expr primary() {
         if (this.match(TokenType.NUMBER, TokenType.STRING)) {
-            return new Expr.Literal(this.previous().literal);
+            return new Expr.Literal(this.tokens.literal(this.current - 1));
         } else if (this.match(TokenType.SUPER)) {
             Token keyword = this.previous();
             this.consume(TokenType.DOT, "Expect '.' after 'super'.");
-            Token method = this.consume(TokenType.IDENTIFIER, "Expect superclass method name.");
-            return new Expr.Super(keyword, method);
+            this.consume(TokenType.IDENTIFIER, "Expect superclass method name.");
+            Token method = this.previous();
+            Expr.Super expr = new Expr.Super(keyword, method);
+            if (this.resolving()) {
+                this.resolver.visitSuperExpr(expr);
+            }
+
+            return expr;
         } else if (this.match(TokenType.THIS)) {
-            return new Expr.This(this.previous());
+            Expr.This expr = new Expr.This(this.previous());
+            if (this.resolving()) {
+                this.resolver.visitThisExpr(expr);
+            }
+
+            return expr;
         } else if (this.match(TokenType.IDENTIFIER)) {
-            return new Expr.Variable(this.previous());
+            Expr.Variable expr = new Expr.Variable(this.previous());
+            if (this.resolving() && !this.check(TokenType.EQUAL)) {
+                this.resolver.visitVariableExpr(expr);
+            }
+
+            return expr;
         } else if (this.match(TokenType.TRUE)) {
             return new Expr.Literal(true);
         } else if (this.match(TokenType.FALSE)) {
@@ -365,6 +537,10 @@ class Parser {
         }
     }
 
+    private boolean resolving() {
+        return this.resolver != null && !this.reporter.hadError;
+    }
+
     private boolean match(TokenType... types) {
         TokenType[] var2 = types;
         int var3 = types.length;
@@ -380,9 +556,9 @@ class Parser {
         return false;
     }
 
-    private Token consume(TokenType type, String message) {
+    private void consume(TokenType type, String message) {
         if (this.check(type)) {
-            return this.advance();
+            this.advance();
         } else {
             throw this.error(this.peek(), message);
         }
@@ -392,32 +568,31 @@ class Parser {
         if (this.isAtEnd()) {
             return false;
         } else {
-            return this.peek().type == type;
+            return this.tokens.type(this.current) == type;
         }
     }
 
-    private Token advance() {
+    private void advance() {
         if (!this.isAtEnd()) {
             ++this.current;
         }
 
-        return this.previous();
     }
 
     private boolean isAtEnd() {
-        return this.peek().type == TokenType.EOF;
+        return this.tokens.type(this.current) == TokenType.EOF;
     }
 
     private Token peek() {
-        return (Token)this.tokens.get(this.current);
+        return this.tokens.token(this.current);
     }
 
     private Token previous() {
-        return (Token)this.tokens.get(this.current - 1);
+        return this.tokens.token(this.current - 1);
     }
 
     private ParseError error(Token token, String message) {
-        EzFlowScriptApplication.error(token, message);
+        this.reporter.error(token, message);
         return new ParseError();
     }
 
@@ -425,11 +600,11 @@ class Parser {
         this.advance();
 
         while(!this.isAtEnd()) {
-            if (this.previous().type == TokenType.SEMICOLON) {
+            if (this.tokens.type(this.current - 1) == TokenType.SEMICOLON) {
                 return;
             }
 
-            switch (this.peek().type) {
+            switch (this.tokens.type(this.current)) {
                 case CLASS:
                 case FUN:
                 case VAR:
@@ -447,6 +622,8 @@ class Parser {
     }
 
     private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
         private ParseError() {
         }
     }
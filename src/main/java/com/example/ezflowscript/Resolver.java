@@ -3,15 +3,17 @@ package com.example.ezflowscript;
 import java.util.*;
 
 class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
-    private final Interpreter interpreter;
-    private final Stack<Map<String, Boolean>> scopes = new Stack();
+    private final Stack<Map<String, Local>> scopes = new Stack<>();
+    private FunctionScope currentScope = new FunctionScope((FunctionScope)null);
     private FunctionType currentFunction;
     private ClassType currentClass;
+    private final Stack<ClassType> enclosingClasses = new Stack<>();
+    private final ErrorReporter reporter;
 
-    Resolver(Interpreter interpreter) {
+    Resolver(ErrorReporter reporter) {
+        this.reporter = reporter;
         this.currentFunction = Resolver.FunctionType.NONE;
         this.currentClass = Resolver.ClassType.NONE;
-        this.interpreter = interpreter;
     }
 
     public Void visitBlockStmt(Stmt.Block stmt) {
@@ -22,12 +24,29 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitClassStmt(Stmt.Class stmt) {
-        ClassType enclosingClass = this.currentClass;
+        this.beginClass(stmt);
+
+        Stmt.Function method;
+        FunctionType declaration;
+        for(Iterator<Stmt.Function> var3 = stmt.methods.iterator(); var3.hasNext(); this.resolveFunction(method, declaration)) {
+            method = var3.next();
+            declaration = Resolver.FunctionType.METHOD;
+            if (method.name.lexeme.equals("init")) {
+                declaration = Resolver.FunctionType.INITIALIZER;
+            }
+        }
+
+        this.endClass(stmt);
+        return null;
+    }
+
+    void beginClass(Stmt.Class stmt) {
+        this.enclosingClasses.push(this.currentClass);
         this.currentClass = Resolver.ClassType.CLASS;
-        this.declare(stmt.name);
+        stmt.slot = this.declare(stmt.name, stmt);
         this.define(stmt.name);
         if (stmt.superclass != null && stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
-            EzFlowScriptApplication.error(stmt.superclass.name, "A class can't inherit from itself.");
+            this.reporter.error(stmt.superclass.name, "A class can't inherit from itself.");
         }
 
         if (stmt.superclass != null) {
@@ -37,29 +56,17 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
         if (stmt.superclass != null) {
             this.beginScope();
-            ((Map)this.scopes.peek()).put("super", true);
+            stmt.superSlot = this.declareImplicit("super");
         }
 
-        this.beginScope();
-        ((Map)this.scopes.peek()).put("this", true);
-
-        Stmt.Function method;
-        FunctionType declaration;
-        for(Iterator var3 = stmt.methods.iterator(); var3.hasNext(); this.resolveFunction(method, declaration)) {
-            method = (Stmt.Function)var3.next();
-            declaration = Resolver.FunctionType.METHOD;
-            if (method.name.lexeme.equals("init")) {
-                declaration = Resolver.FunctionType.INITIALIZER;
-            }
-        }
+    }
 
-        this.endScope();
+    void endClass(Stmt.Class stmt) {
         if (stmt.superclass != null) {
             this.endScope();
         }
 
-        this.currentClass = enclosingClass;
-        return null;
+        this.currentClass = this.enclosingClasses.pop();
     }
 
     public Void visitExpressionStmt(Stmt.Expression stmt) {
@@ -68,7 +75,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitVarStmt(Stmt.Var stmt) {
-        this.declare(stmt.name);
+        stmt.slot = this.declare(stmt.name, stmt);
         if (stmt.initializer != null) {
             this.resolve(stmt.initializer);
         }
@@ -77,6 +84,19 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
         return null;
     }
 
+    int declareVariable(Token name) {
+        return this.declare(name, (Stmt)null);
+    }
+
+    void defineVariable(Token name, Stmt declaration) {
+        if (!this.scopes.isEmpty()) {
+            Local local = (Local)((Map)this.scopes.peek()).get(name.lexeme);
+            local.declaration = declaration;
+            local.defined = true;
+        }
+
+    }
+
     public Void visitWhileStmt(Stmt.While stmt) {
         this.resolve(stmt.condition);
         this.resolve(stmt.body);
@@ -84,20 +104,27 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitVariableExpr(Expr.Variable expr) {
-        if (!this.scopes.isEmpty() && ((Map)this.scopes.peek()).get(expr.name.lexeme) == Boolean.FALSE) {
-            EzFlowScriptApplication.error(expr.name, "Can't read local variable in its own initializer.");
+        if (!this.scopes.isEmpty()) {
+            Local local = (Local)((Map)this.scopes.peek()).get(expr.name.lexeme);
+            if (local != null && !local.defined) {
+                this.reporter.error(expr.name, "Can't read local variable in its own initializer.");
+            }
         }
 
-        this.resolveLocal(expr, expr.name);
+        this.resolveLocal(expr, expr.name.lexeme);
         return null;
     }
 
     public Void visitAssignExpr(Expr.Assign expr) {
         this.resolve(expr.value);
-        this.resolveLocal(expr, expr.name);
+        this.resolveAssign(expr);
         return null;
     }
 
+    void resolveAssign(Expr.Assign expr) {
+        this.resolveLocal(expr, expr.name.lexeme);
+    }
+
     public Void visitBinaryExpr(Expr.Binary expr) {
         this.resolve(expr.left);
         this.resolve(expr.right);
@@ -105,11 +132,12 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitCallExpr(Expr.Call expr) {
+        expr.invoke = expr.callee instanceof Expr.Get || expr.callee instanceof Expr.Super;
         this.resolve(expr.callee);
-        Iterator var2 = expr.arguments.iterator();
+        Iterator<Expr> var2 = expr.arguments.iterator();
 
         while(var2.hasNext()) {
-            Expr argument = (Expr)var2.next();
+            Expr argument = var2.next();
             this.resolve(argument);
         }
 
@@ -144,21 +172,22 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
     public Void visitSuperExpr(Expr.Super expr) {
         if (this.currentClass == Resolver.ClassType.NONE) {
-            EzFlowScriptApplication.error(expr.keyword, "Can't use 'super' outside of a class.");
+            this.reporter.error(expr.keyword, "Can't use 'super' outside of a class.");
         } else if (this.currentClass != Resolver.ClassType.SUBCLASS) {
-            EzFlowScriptApplication.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
+            this.reporter.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
         }
 
-        this.resolveLocal(expr, expr.keyword);
+        this.resolveLocal(expr, "super");
+        this.resolveLocal(expr.receiver, "this");
         return null;
     }
 
     public Void visitThisExpr(Expr.This expr) {
         if (this.currentClass == Resolver.ClassType.NONE) {
-            EzFlowScriptApplication.error(expr.keyword, "Can't use 'this' outside of a class");
+            this.reporter.error(expr.keyword, "Can't use 'this' outside of a class");
             return null;
         } else {
-            this.resolveLocal(expr, expr.keyword);
+            this.resolveLocal(expr, "this");
             return null;
         }
     }
@@ -169,12 +198,26 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitFunctionStmt(Stmt.Function stmt) {
-        this.declare(stmt.name);
+        stmt.slot = this.declare(stmt.name, stmt);
         this.define(stmt.name);
-        this.resolveFunction(stmt, Resolver.FunctionType.FUNCTION);
+        if (stmt.body != null) {
+            this.resolveFunction(stmt, Resolver.FunctionType.FUNCTION);
+        } else {
+            this.skipFunction(stmt);
+        }
+
         return null;
     }
 
+    void skipFunction(Stmt.Function function) {
+        function.upvalueIsLocal = new boolean[0];
+        function.upvalueIndices = new int[0];
+    }
+
+    void resolveBody(Stmt.Function function) {
+        this.resolveFunction(function, Resolver.FunctionType.FUNCTION);
+    }
+
     public Void visitIfStmt(Stmt.If stmt) {
         this.resolve(stmt.condition);
         this.resolve(stmt.thenBranch);
@@ -191,26 +234,31 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     public Void visitReturnStmt(Stmt.Return stmt) {
-        if (this.currentFunction == Resolver.FunctionType.NONE) {
-            EzFlowScriptApplication.error(stmt.keyword, "Can't return from top-level code.");
-        }
-
+        this.resolveReturn(stmt.keyword, stmt.value != null);
         if (stmt.value != null) {
-            if (this.currentFunction == Resolver.FunctionType.INITIALIZER) {
-                EzFlowScriptApplication.error(stmt.keyword, "Can't return a value from an initializer.");
-            }
-
+            stmt.tailCall = stmt.value instanceof Expr.Call;
             this.resolve(stmt.value);
         }
 
         return null;
     }
 
+    void resolveReturn(Token keyword, boolean value) {
+        if (this.currentFunction == Resolver.FunctionType.NONE) {
+            this.reporter.error(keyword, "Can't return from top-level code.");
+        }
+
+        if (value && this.currentFunction == Resolver.FunctionType.INITIALIZER) {
+            this.reporter.error(keyword, "Can't return a value from an initializer.");
+        }
+
+    }
+
     public void resolve(List<Stmt> statements) {
-        Iterator var2 = statements.iterator();
+        Iterator<Stmt> var2 = statements.iterator();
 
         while(var2.hasNext()) {
-            Stmt statement = (Stmt)var2.next();
+            Stmt statement = var2.next();
             this.resolve(statement);
         }
 
@@ -225,57 +273,185 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     }
 
     private void resolveFunction(Stmt.Function function, FunctionType type) {
-        FunctionType enclosingFunction = this.currentFunction;
+        this.beginFunction(function.params, type);
+        this.resolve(function.body);
+        this.endFunction(function);
+    }
+
+    void beginFunction(Token name, List<Token> params, boolean method) {
+        FunctionType type = Resolver.FunctionType.FUNCTION;
+        if (method) {
+            type = name.lexeme.equals("init") ? Resolver.FunctionType.INITIALIZER : Resolver.FunctionType.METHOD;
+        }
+
+        this.beginFunction(params, type);
+    }
+
+    private void beginFunction(List<Token> params, FunctionType type) {
+        this.currentScope = new FunctionScope(this.currentScope);
+        this.currentScope.enclosingType = this.currentFunction;
         this.currentFunction = type;
         this.beginScope();
-        Iterator var4 = function.params.iterator();
+        if (type == Resolver.FunctionType.METHOD || type == Resolver.FunctionType.INITIALIZER) {
+            this.declareImplicit("this");
+        }
+
+        Iterator<Token> var3 = params.iterator();
 
-        while(var4.hasNext()) {
-            Token param = (Token)var4.next();
-            this.declare(param);
+        while(var3.hasNext()) {
+            Token param = var3.next();
+            this.declare(param, (Stmt)null);
             this.define(param);
         }
 
-        this.resolve(function.body);
+        this.currentScope.paramCount = this.currentScope.nextSlot;
+    }
+
+    void endFunction(Stmt.Function function) {
+        Map<String, Local> scope = this.endScope();
+        function.slotCount = this.currentScope.slotCount;
+        function.paramsCaptured = capturedParams(scope, this.currentScope.paramCount);
+        int upvalueCount = this.currentScope.upvalues.size();
+        function.upvalueIsLocal = new boolean[upvalueCount];
+        function.upvalueIndices = new int[upvalueCount];
+
+        for(int i = 0; i < upvalueCount; ++i) {
+            function.upvalueIsLocal[i] = this.currentScope.upvalueIsLocal.get(i);
+            function.upvalueIndices[i] = this.currentScope.upvalueIndices.get(i);
+        }
+
+        this.currentFunction = this.currentScope.enclosingType;
+        this.currentScope = this.currentScope.enclosing;
+    }
+
+    void beginBlock() {
+        this.beginScope();
+    }
+
+    void endBlock() {
         this.endScope();
-        this.currentFunction = enclosingFunction;
     }
 
     private void beginScope() {
-        this.scopes.push(new HashMap());
+        this.scopes.push(new HashMap<>());
     }
 
-    private void endScope() {
-        this.scopes.pop();
+    private Map<String, Local> endScope() {
+        Map<String, Local> scope = this.scopes.pop();
+        Iterator<Local> var2 = scope.values().iterator();
+
+        while(var2.hasNext()) {
+            Local local = var2.next();
+            if (local.captured) {
+                Iterator<Expr.Reference> var4 = local.references.iterator();
+
+                while(var4.hasNext()) {
+                    Expr.Reference reference = var4.next();
+                    reference.captured = true;
+                }
+
+                if (local.declaration instanceof Stmt.Var) {
+                    ((Stmt.Var)local.declaration).captured = true;
+                } else if (local.declaration instanceof Stmt.Function) {
+                    ((Stmt.Function)local.declaration).captured = true;
+                } else if (local.declaration instanceof Stmt.Class) {
+                    ((Stmt.Class)local.declaration).captured = true;
+                }
+            }
+        }
+
+        this.currentScope.nextSlot -= scope.size();
+        return scope;
     }
 
-    private void declare(Token name) {
-        if (!this.scopes.isEmpty()) {
-            Map<String, Boolean> scope = (Map)this.scopes.peek();
+    private static boolean[] capturedParams(Map<String, Local> scope, int paramCount) {
+        boolean[] captured = null;
+        Iterator<Local> var3 = scope.values().iterator();
+
+        while(var3.hasNext()) {
+            Local local = var3.next();
+            if (local.captured && local.slot < paramCount) {
+                if (captured == null) {
+                    captured = new boolean[paramCount];
+                }
+
+                captured[local.slot] = true;
+            }
+        }
+
+        return captured;
+    }
+
+    private int declare(Token name, Stmt declaration) {
+        if (this.scopes.isEmpty()) {
+            return -1;
+        } else {
+            Map<String, Local> scope = this.scopes.peek();
             if (scope.containsKey(name.lexeme)) {
-                EzFlowScriptApplication.error(name, "Already a variable with this name in this scope.");
+                this.reporter.error(name, "Already a variable with this name in this scope.");
             }
 
-            scope.put(name.lexeme, false);
+            Local local = new Local(this.currentScope, this.currentScope.allocate(), declaration);
+            scope.put(name.lexeme, local);
+            return local.slot;
         }
     }
 
+    private int declareImplicit(String name) {
+        Map<String, Local> scope = this.scopes.peek();
+        Local local = new Local(this.currentScope, this.currentScope.allocate(), (Stmt)null);
+        local.defined = true;
+        scope.put(name, local);
+        return local.slot;
+    }
+
     private void define(Token name) {
         if (!this.scopes.isEmpty()) {
-            ((Map)this.scopes.peek()).put(name.lexeme, true);
+            ((Local)((Map)this.scopes.peek()).get(name.lexeme)).defined = true;
         }
     }
 
-    private void resolveLocal(Expr expr, Token name) {
+    private void resolveLocal(Expr.Reference expr, String name) {
         for(int i = this.scopes.size() - 1; i >= 0; --i) {
-            if (((Map)this.scopes.get(i)).containsKey(name.lexeme)) {
-                this.interpreter.resolve(expr, this.scopes.size() - i - 1);
+            Local local = (Local)((Map)this.scopes.get(i)).get(name);
+            if (local != null) {
+                if (local.function == this.currentScope) {
+                    expr.slot = local.slot;
+                    expr.captured = local.captured;
+                    local.references.add(expr);
+                } else {
+                    expr.upvalue = this.resolveUpvalue(this.currentScope, local);
+                }
+
                 return;
             }
         }
 
     }
 
+    private int resolveUpvalue(FunctionScope function, Local local) {
+        int index = function.upvalues.indexOf(local);
+        if (index != -1) {
+            return index;
+        } else {
+            if (local.function == function.enclosing) {
+                local.captured = true;
+                function.upvalueIsLocal.add(true);
+                function.upvalueIndices.add(local.slot);
+            } else {
+                function.upvalueIsLocal.add(false);
+                function.upvalueIndices.add(this.resolveUpvalue(function.enclosing, local));
+            }
+
+            function.upvalues.add(local);
+            return function.upvalues.size() - 1;
+        }
+    }
+
+    int slotCount() {
+        return this.currentScope.slotCount;
+    }
+
     public FunctionType getCurrentFunction() {
         return this.currentFunction;
     }
@@ -284,6 +460,45 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
         this.currentFunction = currentFunction;
     }
 
+    private static class Local {
+        final FunctionScope function;
+        final int slot;
+        Stmt declaration;
+        final List<Expr.Reference> references = new ArrayList<>();
+        boolean defined = false;
+        boolean captured = false;
+
+        Local(FunctionScope function, int slot, Stmt declaration) {
+            this.function = function;
+            this.slot = slot;
+            this.declaration = declaration;
+        }
+    }
+
+    private static class FunctionScope {
+        final FunctionScope enclosing;
+        final List<Local> upvalues = new ArrayList<>();
+        final List<Boolean> upvalueIsLocal = new ArrayList<>();
+        final List<Integer> upvalueIndices = new ArrayList<>();
+        FunctionType enclosingType;
+        int paramCount;
+        int nextSlot = 0;
+        int slotCount = 0;
+
+        FunctionScope(FunctionScope enclosing) {
+            this.enclosing = enclosing;
+        }
+
+        int allocate() {
+            int slot = this.nextSlot++;
+            if (this.nextSlot > this.slotCount) {
+                this.slotCount = this.nextSlot;
+            }
+
+            return slot;
+        }
+    }
+
     private static enum FunctionType {
         NONE,
         FUNCTION,
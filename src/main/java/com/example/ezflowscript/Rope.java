@@ -0,0 +1,88 @@
+package com.example.ezflowscript;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+final class Rope implements CharSequence {
+    private static final int FLAT_LIMIT = 64;
+    private final int length;
+    private CharSequence left;
+    private CharSequence right;
+    private String flat;
+
+    private Rope(CharSequence left, CharSequence right) {
+        this.left = left;
+        this.right = right;
+        this.length = left.length() + right.length();
+    }
+
+    static boolean isString(Object value) {
+        return value instanceof String || value instanceof Rope;
+    }
+
+    static CharSequence concat(Object left, Object right) {
+        CharSequence a = (CharSequence)left;
+        CharSequence b = (CharSequence)right;
+        if (a.length() == 0) {
+            return b;
+        } else if (b.length() == 0) {
+            return a;
+        } else if ((long)a.length() + (long)b.length() > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("String too long.");
+        } else {
+            return a.length() + b.length() <= FLAT_LIMIT ? a.toString().concat(b.toString()) : new Rope(a, b);
+        }
+    }
+
+    static Object flatten(Object value) {
+        return value instanceof Rope ? value.toString() : value;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public char charAt(int index) {
+        return this.toString().charAt(index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return this.toString().subSequence(start, end);
+    }
+
+    public String toString() {
+        if (this.flat == null) {
+            char[] chars = new char[this.length];
+            int end = this.length;
+            Deque<CharSequence> pending = new ArrayDeque<>();
+            pending.push(this.left);
+            pending.push(this.right);
+
+            while(!pending.isEmpty()) {
+                CharSequence part = pending.pop();
+                if (part instanceof Rope && ((Rope)part).flat == null) {
+                    pending.push(((Rope)part).left);
+                    pending.push(((Rope)part).right);
+                } else {
+                    String text = part.toString();
+                    end -= text.length();
+                    text.getChars(0, text.length(), chars, end);
+                }
+            }
+
+            this.flat = new String(chars);
+            this.left = null;
+            this.right = null;
+        }
+
+        return this.flat;
+    }
+
+    public boolean equals(Object other) {
+        return isString(other) && this.toString().equals(other.toString());
+    }
+
+    public int hashCode() {
+        return this.toString().hashCode();
+    }
+}
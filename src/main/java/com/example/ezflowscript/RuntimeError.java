@@ -1,6 +1,7 @@
 package com.example.ezflowscript;
 
 class RuntimeError extends RuntimeException{
+    private static final long serialVersionUID = 1L;
     final Token token;
 
     RuntimeError(Token token, String message) {
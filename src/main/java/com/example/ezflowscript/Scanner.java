@@ -1,32 +1,51 @@
 package com.example.ezflowscript;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 public class Scanner {
-    private final String source;
-    private final List<Token> tokens = new ArrayList();
+    private static final int BATCH = 256;
+    private static final int CHUNK = 8192;
+    private final CharSequence source;
+    private final int length;
+    private final char[] window = new char[CHUNK];
+    private int windowStart = 0;
+    private int windowEnd = 0;
+    private final TokenBuffer tokens;
+    private final ErrorReporter reporter;
     private int start = 0;
     private int current = 0;
     private int line = 1;
-    private static final Map<String, TokenType> keywords = new HashMap();
+    private boolean done = false;
 
-    Scanner(String source) {
+    Scanner(CharSequence source, ErrorReporter reporter) {
         this.source = source;
+        this.reporter = reporter;
+        this.length = source.length();
+        this.tokens = new TokenBuffer(source, this);
     }
 
-    List<Token> scanTokens() {
-        while(!this.isAtEnd()) {
-            this.start = this.current;
-            this.scanToken();
-        }
-
-        this.tokens.add(new Token(TokenType.EOF, "", (Object)null, this.line));
+    TokenBuffer scanTokens() {
         return this.tokens;
     }
 
+    boolean scanMore() {
+        if (this.done) {
+            return false;
+        } else {
+            int limit = this.tokens.size() + BATCH;
+
+            while(!this.isAtEnd() && this.tokens.size() < limit) {
+                this.start = this.current;
+                this.scanToken();
+            }
+
+            if (this.isAtEnd()) {
+                this.tokens.add(TokenType.EOF, this.current, this.current, this.line);
+                this.done = true;
+            }
+
+            return true;
+        }
+    }
+
     private void scanToken() {
         char c = this.advance();
         switch (c) {
@@ -103,7 +122,11 @@ public class Scanner {
                 } else if (this.isAlpha(c)) {
                     this.identifer();
                 } else {
-                    EzFlowScriptApplication.error(this.line, "Unexpected Character");
+                    this.reporter.error(this.line, "Unexpected Character");
+
+                    while(MappedSource.isContinuation(this.source, this.peek())) {
+                        this.advance();
+                    }
                 }
         }
 
@@ -132,7 +155,7 @@ public class Scanner {
         }
 
         if (this.isAtEnd() && in_comment) {
-            EzFlowScriptApplication.error(this.line, "Dangling comment");
+            this.reporter.error(this.line, "Dangling comment");
         }
 
     }
@@ -142,13 +165,8 @@ public class Scanner {
             this.advance();
         }
 
-        String text = this.source.substring(this.start, this.current);
-        TokenType type = (TokenType)keywords.get(text);
-        if (type == null) {
-            type = TokenType.IDENTIFIER;
-        }
-
-        this.addToken(type);
+        TokenType keyword = Symbol.intern(this.source, this.start, this.current).keyword;
+        this.addToken(keyword != null ? keyword : TokenType.IDENTIFIER);
     }
 
     private void number() {
@@ -164,7 +182,7 @@ public class Scanner {
             }
         }
 
-        this.addToken(TokenType.NUMBER, Double.parseDouble(this.source.substring(this.start, this.current)));
+        this.addToken(TokenType.NUMBER);
     }
 
     private void string() {
@@ -175,18 +193,17 @@ public class Scanner {
         }
 
         if (this.isAtEnd()) {
-            EzFlowScriptApplication.error(this.line, "Unterminated String");
+            this.reporter.error(this.line, "Unterminated String");
         } else {
             this.advance();
-            String value = this.source.substring(this.start + 1, this.current - 1);
-            this.addToken(TokenType.STRING, value);
+            this.addToken(TokenType.STRING);
         }
     }
 
     private boolean match(char expected) {
         if (this.isAtEnd()) {
             return false;
-        } else if (this.source.charAt(this.current) != expected) {
+        } else if (this.charAt(this.current) != expected) {
             return false;
         } else {
             ++this.current;
@@ -195,11 +212,11 @@ public class Scanner {
     }
 
     private char peek() {
-        return this.isAtEnd() ? '\u0000' : this.source.charAt(this.current);
+        return this.isAtEnd() ? '\u0000' : this.charAt(this.current);
     }
 
     private char peekNext() {
-        return this.current + 1 >= this.source.length() ? '\u0000' : this.source.charAt(this.current + 1);
+        return this.current + 1 >= this.length ? '\u0000' : this.charAt(this.current + 1);
     }
 
     private boolean isAlpha(char c) {
@@ -215,43 +232,65 @@ public class Scanner {
     }
 
     private boolean isAtEnd() {
-        return this.current >= this.source.length();
+        return this.current >= this.length;
     }
 
     private char advance() {
-        return this.source.charAt(this.current++);
+        return this.charAt(this.current++);
     }
 
     private char advance(int steps) {
         this.current += steps;
-        return this.source.charAt(this.current);
+        return this.charAt(this.current);
     }
 
-    private void addToken(TokenType type) {
-        this.addToken(type, (Object)null);
+    private char charAt(int index) {
+        if (index < this.windowStart || index >= this.windowEnd) {
+            this.refill(index);
+        }
+
+        return this.window[index - this.windowStart];
     }
 
-    private void addToken(TokenType type, Object literal) {
-        String text = this.source.substring(this.start, this.current);
-        this.tokens.add(new Token(type, text, literal, this.line));
+    private void refill(int index) {
+        if (index >= this.length) {
+            throw new StringIndexOutOfBoundsException(index);
+        } else {
+            this.windowStart = index;
+            this.windowEnd = Math.min(this.length, index + CHUNK);
+            if (this.source instanceof String) {
+                ((String)this.source).getChars(this.windowStart, this.windowEnd, this.window, 0);
+            } else if (this.source instanceof MappedSource) {
+                ((MappedSource)this.source).getChars(this.windowStart, this.windowEnd, this.window);
+            } else {
+                for(int i = this.windowStart; i < this.windowEnd; ++i) {
+                    this.window[i - this.windowStart] = this.source.charAt(i);
+                }
+            }
+
+        }
+    }
+
+    private void addToken(TokenType type) {
+        this.tokens.add(type, this.start, this.current, this.line);
     }
 
     static {
-        keywords.put("and", TokenType.AND);
-        keywords.put("class", TokenType.CLASS);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("fun", TokenType.FUN);
-        keywords.put("for", TokenType.FOR);
-        keywords.put("if", TokenType.IF);
-        keywords.put("nil", TokenType.NIL);
-        keywords.put("or", TokenType.OR);
-        keywords.put("print", TokenType.PRINT);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("super", TokenType.SUPER);
-        keywords.put("this", TokenType.THIS);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("var", TokenType.VAR);
-        keywords.put("while", TokenType.WHILE);
+        Symbol.intern("and").keyword = TokenType.AND;
+        Symbol.intern("class").keyword = TokenType.CLASS;
+        Symbol.intern("else").keyword = TokenType.ELSE;
+        Symbol.intern("false").keyword = TokenType.FALSE;
+        Symbol.intern("fun").keyword = TokenType.FUN;
+        Symbol.intern("for").keyword = TokenType.FOR;
+        Symbol.intern("if").keyword = TokenType.IF;
+        Symbol.intern("nil").keyword = TokenType.NIL;
+        Symbol.intern("or").keyword = TokenType.OR;
+        Symbol.intern("print").keyword = TokenType.PRINT;
+        Symbol.intern("return").keyword = TokenType.RETURN;
+        Symbol.intern("super").keyword = TokenType.SUPER;
+        Symbol.intern("this").keyword = TokenType.THIS;
+        Symbol.intern("true").keyword = TokenType.TRUE;
+        Symbol.intern("var").keyword = TokenType.VAR;
+        Symbol.intern("while").keyword = TokenType.WHILE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.ezflowscript;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class Shape {
+    final Shape parent;
+    final Symbol name;
+    final int size;
+    private final Map<Symbol, Shape> transitions = new HashMap<>();
+    private int capacity;
+
+    Shape() {
+        this.parent = null;
+        this.name = null;
+        this.size = 0;
+    }
+
+    private Shape(Shape parent, Symbol name) {
+        this.parent = parent;
+        this.name = name;
+        this.size = parent.size + 1;
+        this.capacity = this.size;
+
+        for(Shape shape = parent; shape != null && shape.capacity < this.size; shape = shape.parent) {
+            shape.capacity = this.size;
+        }
+
+    }
+
+    int indexOf(Symbol name) {
+        for(Shape shape = this; shape.name != null; shape = shape.parent) {
+            if (shape.name == name) {
+                return shape.size - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    Shape withField(Symbol name) {
+        Shape shape = this.transitions.get(name);
+        if (shape == null) {
+            shape = new Shape(this, name);
+            this.transitions.put(name, shape);
+        }
+
+        return shape;
+    }
+
+    Object[] newValues() {
+        return new Object[this.capacity];
+    }
+
+    Object[] grow(Object[] values) {
+        return values.length >= this.size ? values : Arrays.copyOf(values, this.capacity);
+    }
+}
@@ -11,6 +11,8 @@ abstract class Stmt {
     static class While extends Stmt {
         final Expr condition;
         final Stmt body;
+        int iterations;
+        Trace trace;
 
         While(Expr condition, Stmt body) {
             this.condition = condition;
@@ -25,6 +27,8 @@ abstract class Stmt {
     static class Var extends Stmt {
         final Token name;
         final Expr initializer;
+        int slot = -1;
+        boolean captured;
 
         Var(Token name, Expr initializer) {
             this.name = name;
@@ -39,6 +43,7 @@ abstract class Stmt {
     static class Return extends Stmt {
         final Token keyword;
         final Expr value;
+        boolean tailCall = false;
 
         Return(Token keyword, Expr value) {
             this.keyword = keyword;
@@ -81,12 +86,29 @@ abstract class Stmt {
     static class Function extends Stmt {
         final Token name;
         final List<Token> params;
-        final List<Stmt> body;
-
-        Function(Token name, List<Token> params, List<Stmt> body) {
+        List<Stmt> body;
+        final TokenBuffer tokens;
+        final int bodyStart;
+        boolean invalid;
+        ErrorReporter reporter;
+        int slot = -1;
+        boolean captured;
+        int slotCount;
+        boolean[] paramsCaptured;
+        boolean[] numberParams;
+        boolean[] upvalueIsLocal;
+        int[] upvalueIndices;
+        CompiledFunction compiled;
+        int hotness;
+        boolean uncompilable;
+        Environment spare;
+
+        Function(Token name, List<Token> params, List<Stmt> body, TokenBuffer tokens, int bodyStart) {
             this.name = name;
             this.params = params;
             this.body = body;
+            this.tokens = tokens;
+            this.bodyStart = bodyStart;
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -110,6 +132,9 @@ abstract class Stmt {
         final Token name;
         final Expr.Variable superclass;
         final List<Function> methods;
+        int slot = -1;
+        boolean captured;
+        int superSlot = -1;
 
         Class(Token name, Expr.Variable superclass, List<Function> methods) {
             this.name = name;
@@ -135,22 +160,22 @@ abstract class Stmt {
     }
 
     interface Visitor<R> {
-        R visitBlockStmt(Block block);
+        R visitBlockStmt(Block var1);
 
-        R visitClassStmt(Class cls);
+        R visitClassStmt(Class var1);
 
-        R visitExpressionStmt(Expression expression);
+        R visitExpressionStmt(Expression var1);
 
-        R visitFunctionStmt(Function function);
+        R visitFunctionStmt(Function var1);
 
-        R visitIfStmt(If ifStmt);
+        R visitIfStmt(If var1);
 
-        R visitPrintStmt(Print print);
+        R visitPrintStmt(Print var1);
 
-        R visitReturnStmt(Return returnStmt);
+        R visitReturnStmt(Return var1);
 
-        R visitVarStmt(Var var);
+        R visitVarStmt(Var var1);
 
-        R visitWhileStmt(While whileStmt);
+        R visitWhileStmt(While var1);
     }
 }
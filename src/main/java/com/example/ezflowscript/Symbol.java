@@ -0,0 +1,36 @@
+package com.example.ezflowscript;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class Symbol {
+    private static final ConcurrentHashMap<String, Symbol> TABLE = new ConcurrentHashMap<>(1024);
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    static final Symbol INIT = intern("init");
+    final String name;
+    final int id;
+    final int hash;
+    TokenType keyword;
+
+    private Symbol(String name) {
+        this.name = name;
+        this.id = COUNT.getAndIncrement();
+        this.hash = name.hashCode();
+    }
+
+    static Symbol intern(String name) {
+        return TABLE.computeIfAbsent(name, Symbol::new);
+    }
+
+    static Symbol intern(CharSequence source, int start, int end) {
+        return intern(source.subSequence(start, end).toString());
+    }
+
+    public int hashCode() {
+        return this.hash;
+    }
+
+    public String toString() {
+        return this.name;
+    }
+}
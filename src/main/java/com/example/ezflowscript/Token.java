@@ -5,12 +5,22 @@ class Token {
     final String lexeme;
     final Object literal;
     final int line;
+    final Symbol symbol;
 
     Token(TokenType type, String lexeme, Object literal, int line) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = null;
+    }
+
+    Token(TokenType type, Symbol symbol, int line) {
+        this.type = type;
+        this.lexeme = symbol.name;
+        this.literal = null;
+        this.line = line;
+        this.symbol = symbol;
     }
 
     public String toString() {
@@ -0,0 +1,113 @@
+package com.example.ezflowscript;
+
+import java.util.Arrays;
+
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private final CharSequence source;
+    private final Scanner scanner;
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int count = 0;
+    private int released = 0;
+    private int retained = 0;
+
+    TokenBuffer(CharSequence source, Scanner scanner) {
+        this.source = source;
+        this.scanner = scanner;
+        int capacity = Math.max(16, Math.min(source.length() / 4, 65536));
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int end, int line) {
+        int index = this.count - this.released;
+        if (index == this.types.length) {
+            int drop = this.retained - this.released;
+            if (drop >= index / 2) {
+                System.arraycopy(this.types, drop, this.types, 0, index - drop);
+                System.arraycopy(this.starts, drop, this.starts, 0, index - drop);
+                System.arraycopy(this.lengths, drop, this.lengths, 0, index - drop);
+                System.arraycopy(this.lines, drop, this.lines, 0, index - drop);
+                this.released = this.retained;
+                index -= drop;
+            } else {
+                int capacity = index * 2;
+                this.types = Arrays.copyOf(this.types, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.lengths = Arrays.copyOf(this.lengths, capacity);
+                this.lines = Arrays.copyOf(this.lines, capacity);
+            }
+        }
+
+        this.types[index] = type.ordinal();
+        this.starts[index] = start;
+        this.lengths[index] = end - start;
+        this.lines[index] = line;
+        ++this.count;
+    }
+
+    int size() {
+        return this.count;
+    }
+
+    int capacity() {
+        return this.types.length;
+    }
+
+    void release(int index) {
+        this.retained = Math.max(this.retained, index);
+    }
+
+    private void fill(int index) {
+        while(index >= this.count && this.scanner.scanMore()) {
+        }
+
+    }
+
+    TokenType type(int index) {
+        if (index >= this.count) {
+            this.fill(index);
+        }
+
+        return TYPES[this.types[index - this.released]];
+    }
+
+    Object literal(int index) {
+        TokenType type = this.type(index);
+        int slot = index - this.released;
+        int start = this.starts[slot];
+        switch (type) {
+            case NUMBER:
+                return Double.parseDouble(this.text(start, start + this.lengths[slot]));
+            case STRING:
+                return this.text(start + 1, start + this.lengths[slot] - 1);
+            default:
+                return null;
+        }
+    }
+
+    Token token(int index) {
+        TokenType type = this.type(index);
+        int slot = index - this.released;
+        int start = this.starts[slot];
+        int end = start + this.lengths[slot];
+        switch (type) {
+            case NUMBER:
+            case STRING:
+                return new Token(type, this.text(start, end), this.literal(index), this.lines[slot]);
+            case EOF:
+                return new Token(type, "", (Object)null, this.lines[slot]);
+            default:
+                return new Token(type, Symbol.intern(this.source, start, end), this.lines[slot]);
+        }
+    }
+
+    private String text(int start, int end) {
+        return this.source.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ezflowscript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class Trace {
+    static final Object ABANDON = new Object();
+    private static final int EXIT_LIMIT = 64;
+    private final ClosureCompiler.Closure condition;
+    private Op[] ops;
+    private int iterations;
+    private int exits;
+
+    private Trace(ClosureCompiler.Closure condition) {
+        this.condition = condition;
+    }
+
+    static Trace compile(ClosureCompiler compiler, Stmt.While loop, Map<Stmt.If, Boolean> directions) {
+        Trace trace = new Trace(compiler.compile(loop.condition));
+        List<Op> ops = new ArrayList<>();
+        trace.flatten(compiler, loop.body, directions, ops);
+        trace.ops = ops.toArray(new Op[0]);
+        return trace;
+    }
+
+    private void flatten(ClosureCompiler compiler, Stmt stmt, Map<Stmt.If, Boolean> directions, List<Op> ops) {
+        if (stmt instanceof Stmt.Block) {
+            List<Stmt> statements = ((Stmt.Block)stmt).statements;
+
+            for(int i = 0; i < statements.size(); ++i) {
+                this.flatten(compiler, statements.get(i), directions, ops);
+            }
+        } else if (stmt instanceof Stmt.If && directions.containsKey(stmt)) {
+            Stmt.If branch = (Stmt.If)stmt;
+            boolean taken = directions.get(branch);
+            Guard guard = new Guard(compiler.compile(branch.condition), taken, taken ? branch.elseBranch : branch.thenBranch);
+            ops.add(guard);
+            Stmt path = taken ? branch.thenBranch : branch.elseBranch;
+            if (path != null) {
+                this.flatten(compiler, path, directions, ops);
+            }
+
+            guard.skip = ops.size();
+        } else if (!(stmt instanceof Stmt.If) && !(stmt instanceof Stmt.While) && !(stmt instanceof Stmt.Return)) {
+            ops.add(new Step(compiler.compile(stmt)));
+        } else {
+            ops.add(new Interpret(stmt));
+        }
+
+    }
+
+    Object run(Interpreter interpreter, Environment frame, Cell[] upvalues) {
+        do {
+            Op[] ops = this.ops;
+            int pc = 0;
+
+            while(pc < ops.length) {
+                pc = ops[pc].execute(interpreter, frame, upvalues, pc);
+                if (pc < 0) {
+                    return Interpreter.RETURN;
+                }
+            }
+
+            ++this.iterations;
+            if (this.exits > EXIT_LIMIT && this.exits * 2 > this.iterations) {
+                return ABANDON;
+            }
+        } while(Operators.isTruthy(this.condition.apply(frame, upvalues)));
+
+        return null;
+    }
+
+    private abstract static class Op {
+        Op() {
+        }
+
+        abstract int execute(Interpreter interpreter, Environment frame, Cell[] upvalues, int pc);
+    }
+
+    private static final class Step extends Op {
+        private final ClosureCompiler.Closure closure;
+
+        Step(ClosureCompiler.Closure closure) {
+            this.closure = closure;
+        }
+
+        int execute(Interpreter interpreter, Environment frame, Cell[] upvalues, int pc) {
+            this.closure.apply(frame, upvalues);
+            return pc + 1;
+        }
+    }
+
+    private static final class Interpret extends Op {
+        private final Stmt stmt;
+
+        Interpret(Stmt stmt) {
+            this.stmt = stmt;
+        }
+
+        int execute(Interpreter interpreter, Environment frame, Cell[] upvalues, int pc) {
+            return interpreter.execute(this.stmt) == Interpreter.RETURN ? -1 : pc + 1;
+        }
+    }
+
+    private final class Guard extends Op {
+        private final ClosureCompiler.Closure condition;
+        private final boolean expected;
+        private final Stmt exit;
+        int skip;
+
+        Guard(ClosureCompiler.Closure condition, boolean expected, Stmt exit) {
+            this.condition = condition;
+            this.expected = expected;
+            this.exit = exit;
+        }
+
+        int execute(Interpreter interpreter, Environment frame, Cell[] upvalues, int pc) {
+            if (Operators.isTruthy(this.condition.apply(frame, upvalues)) == this.expected) {
+                return pc + 1;
+            } else {
+                ++Trace.this.exits;
+                return this.exit != null && interpreter.execute(this.exit) == Interpreter.RETURN ? -1 : this.skip;
+            }
+        }
+    }
+}
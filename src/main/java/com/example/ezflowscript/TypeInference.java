@@ -0,0 +1,346 @@
+package com.example.ezflowscript;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class TypeInference implements Expr.Visitor<ValueType>, Stmt.Visitor<Void> {
+    private List<Map<String, Local>> scopes;
+    private Map<Object, Local> locals;
+    private Map<Stmt.Function, Integer> pending;
+
+    TypeInference() {
+    }
+
+    void infer(List<Stmt> statements) {
+        this.infer(statements, (Stmt.Function)null, 0);
+    }
+
+    void infer(Stmt.Function function) {
+        this.infer(function.body, function, 0);
+    }
+
+    private void infer(List<Stmt> body, Stmt.Function function, int first) {
+        List<Map<String, Local>> enclosingScopes = this.scopes;
+        Map<Object, Local> enclosingLocals = this.locals;
+        Map<Stmt.Function, Integer> enclosingPending = this.pending;
+        this.locals = new IdentityHashMap<>();
+        this.pending = new LinkedHashMap<>();
+
+        do {
+            this.scopes = new ArrayList<>();
+            if (function != null) {
+                this.beginScope();
+
+                for(int i = 0; i < function.params.size(); ++i) {
+                    Token param = function.params.get(i);
+                    boolean captured = function.paramsCaptured != null && function.paramsCaptured[first + i];
+                    this.declare(param.lexeme, param, captured, true).parameter = true;
+                }
+            }
+
+            this.resolve(body);
+        } while(this.settle());
+
+        if (function != null) {
+            boolean[] numbers = new boolean[function.params.size()];
+            boolean any = false;
+
+            for(int i = 0; i < numbers.length; ++i) {
+                Local local = this.locals.get(function.params.get(i));
+                numbers[i] = local.type == ValueType.NUMBER;
+                any |= numbers[i];
+            }
+
+            function.numberParams = any ? numbers : null;
+        }
+
+        Map<Stmt.Function, Integer> nested = this.pending;
+        this.scopes = enclosingScopes;
+        this.locals = enclosingLocals;
+        this.pending = enclosingPending;
+        Iterator<Map.Entry<Stmt.Function, Integer>> var6 = nested.entrySet().iterator();
+
+        while(var6.hasNext()) {
+            Map.Entry<Stmt.Function, Integer> entry = var6.next();
+            Stmt.Function declaration = entry.getKey();
+            this.infer(declaration.body, declaration, entry.getValue());
+        }
+
+    }
+
+    private boolean settle() {
+        boolean changed = false;
+        Iterator<Local> var2 = this.locals.values().iterator();
+
+        while(var2.hasNext()) {
+            Local local = var2.next();
+            ValueType type;
+            if (local.captured) {
+                type = ValueType.UNKNOWN;
+            } else if (local.parameter) {
+                type = local.arithmetic ? ValueType.NUMBER : ValueType.UNKNOWN;
+            } else {
+                type = local.next;
+            }
+
+            changed |= type != local.type;
+            local.type = type;
+            local.next = null;
+        }
+
+        return changed;
+    }
+
+    private void resolve(List<Stmt> statements) {
+        for(int i = 0; i < statements.size(); ++i) {
+            (statements.get(i)).accept(this);
+        }
+
+    }
+
+    private ValueType resolve(Expr expr) {
+        ValueType type = expr.accept(this);
+        expr.type = type != null ? type : ValueType.UNKNOWN;
+        return type;
+    }
+
+    private ValueType operand(Expr expr) {
+        if (!(expr instanceof Expr.Variable)) {
+            return this.resolve(expr);
+        } else {
+            Local local = this.lookUp(((Expr.Variable)expr).name);
+            ValueType type = local != null ? local.type : ValueType.UNKNOWN;
+            expr.type = type != null ? type : ValueType.UNKNOWN;
+            return type;
+        }
+    }
+
+    private void beginScope() {
+        this.scopes.add(new LinkedHashMap<>());
+    }
+
+    private void endScope() {
+        this.scopes.remove(this.scopes.size() - 1);
+    }
+
+    private Local declare(String name, Object declaration, boolean captured, boolean typed) {
+        Local local = this.locals.get(declaration);
+        if (local == null) {
+            local = new Local(captured || !typed);
+            local.type = captured || !typed ? ValueType.UNKNOWN : null;
+            this.locals.put(declaration, local);
+        }
+
+        if (!this.scopes.isEmpty()) {
+            this.scopes.get(this.scopes.size() - 1).put(name, local);
+        }
+
+        return local;
+    }
+
+    private Local lookUp(Token name) {
+        for(int i = this.scopes.size() - 1; i >= 0; --i) {
+            Local local = this.scopes.get(i).get(name.lexeme);
+            if (local != null) {
+                return local;
+            }
+        }
+
+        return null;
+    }
+
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        this.beginScope();
+        this.resolve(stmt.statements);
+        this.endScope();
+        return null;
+    }
+
+    public Void visitClassStmt(Stmt.Class stmt) {
+        this.declare(stmt.name.lexeme, stmt, stmt.captured, false);
+        if (stmt.superclass != null) {
+            this.resolve((Expr)stmt.superclass);
+        }
+
+        Iterator<Stmt.Function> var2 = stmt.methods.iterator();
+
+        while(var2.hasNext()) {
+            Stmt.Function method = var2.next();
+            this.pending.put(method, 1);
+        }
+
+        return null;
+    }
+
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        this.resolve(stmt.expression);
+        return null;
+    }
+
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        this.declare(stmt.name.lexeme, stmt, stmt.captured, false);
+        if (stmt.body != null) {
+            this.pending.put(stmt, 0);
+        }
+
+        return null;
+    }
+
+    public Void visitIfStmt(Stmt.If stmt) {
+        this.resolve(stmt.condition);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) {
+            stmt.elseBranch.accept(this);
+        }
+
+        return null;
+    }
+
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        this.resolve(stmt.expression);
+        return null;
+    }
+
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value != null) {
+            this.resolve(stmt.value);
+        }
+
+        return null;
+    }
+
+    public Void visitVarStmt(Stmt.Var stmt) {
+        ValueType type = stmt.initializer != null ? this.resolve(stmt.initializer) : ValueType.NIL;
+        Local local = this.declare(stmt.name.lexeme, stmt, stmt.captured, this.scopes.size() > 0);
+        local.next = ValueType.join(local.next, type);
+        return null;
+    }
+
+    public Void visitWhileStmt(Stmt.While stmt) {
+        this.resolve(stmt.condition);
+        stmt.body.accept(this);
+        return null;
+    }
+
+    public ValueType visitAssignExpr(Expr.Assign expr) {
+        ValueType type = this.resolve(expr.value);
+        Local local = this.lookUp(expr.name);
+        if (local != null) {
+            local.arithmetic = false;
+            local.next = ValueType.join(local.next, type);
+        }
+
+        return type;
+    }
+
+    public ValueType visitBinaryExpr(Expr.Binary expr) {
+        switch (expr.operator.type) {
+            case MINUS:
+            case SLASH:
+            case STAR:
+                this.operand(expr.left);
+                this.operand(expr.right);
+                return ValueType.NUMBER;
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                this.operand(expr.left);
+                this.operand(expr.right);
+                return ValueType.BOOLEAN;
+            case PLUS:
+                ValueType type = ValueType.join(this.operand(expr.left), this.operand(expr.right));
+                return type != null && type != ValueType.NUMBER && type != ValueType.STRING ? ValueType.UNKNOWN : type;
+            default:
+                this.resolve(expr.left);
+                this.resolve(expr.right);
+                return ValueType.BOOLEAN;
+        }
+    }
+
+    public ValueType visitCallExpr(Expr.Call expr) {
+        this.resolve(expr.callee);
+        Iterator<Expr> var2 = expr.arguments.iterator();
+
+        while(var2.hasNext()) {
+            Expr argument = var2.next();
+            this.resolve(argument);
+        }
+
+        return ValueType.UNKNOWN;
+    }
+
+    public ValueType visitGetExpr(Expr.Get expr) {
+        this.resolve(expr.object);
+        return ValueType.UNKNOWN;
+    }
+
+    public ValueType visitGroupingExpr(Expr.Grouping expr) {
+        return this.resolve(expr.expression);
+    }
+
+    public ValueType visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value instanceof Double) {
+            return ValueType.NUMBER;
+        } else if (expr.value instanceof String) {
+            return ValueType.STRING;
+        } else if (expr.value instanceof Boolean) {
+            return ValueType.BOOLEAN;
+        } else {
+            return ValueType.NIL;
+        }
+    }
+
+    public ValueType visitLogicalExpr(Expr.Logical expr) {
+        return ValueType.join(this.resolve(expr.left), this.resolve(expr.right));
+    }
+
+    public ValueType visitSetExpr(Expr.Set expr) {
+        this.resolve(expr.object);
+        return this.resolve(expr.value);
+    }
+
+    public ValueType visitSuperExpr(Expr.Super expr) {
+        return ValueType.UNKNOWN;
+    }
+
+    public ValueType visitThisExpr(Expr.This expr) {
+        return ValueType.INSTANCE;
+    }
+
+    public ValueType visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == TokenType.MINUS) {
+            this.operand(expr.right);
+            return ValueType.NUMBER;
+        } else {
+            this.resolve(expr.right);
+            return ValueType.BOOLEAN;
+        }
+    }
+
+    public ValueType visitVariableExpr(Expr.Variable expr) {
+        Local local = this.lookUp(expr.name);
+        if (local == null) {
+            return ValueType.UNKNOWN;
+        } else {
+            local.arithmetic = false;
+            return local.type;
+        }
+    }
+
+    private static class Local {
+        final boolean captured;
+        boolean parameter = false;
+        boolean arithmetic = true;
+        ValueType type;
+        ValueType next;
+
+        Local(boolean captured) {
+            this.captured = captured;
+        }
+    }
+}
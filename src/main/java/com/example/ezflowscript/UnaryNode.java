@@ -0,0 +1,73 @@
+package com.example.ezflowscript;
+
+abstract class UnaryNode {
+    static final UnaryNode UNINITIALIZED = new Uninitialized();
+    static final UnaryNode GENERIC = new Generic();
+
+    UnaryNode() {
+    }
+
+    abstract Object execute(Expr.Unary expr, Object right);
+
+    static UnaryNode specialize(TokenType type, Object right) {
+        if (type == TokenType.MINUS && right instanceof Double) {
+            return NegateDoubleNode.INSTANCE;
+        } else {
+            return type == TokenType.BANG && right instanceof Boolean ? NotBooleanNode.INSTANCE : GENERIC;
+        }
+    }
+
+    final Object generalize(Expr.Unary expr, Object right) {
+        expr.node = GENERIC;
+        return GENERIC.execute(expr, right);
+    }
+
+    private static final class Uninitialized extends UnaryNode {
+        private Uninitialized() {
+        }
+
+        Object execute(Expr.Unary expr, Object right) {
+            UnaryNode node = specialize(expr.operator.type, right);
+            expr.node = node;
+            return node.execute(expr, right);
+        }
+    }
+
+    private static final class Generic extends UnaryNode {
+        private Generic() {
+        }
+
+        Object execute(Expr.Unary expr, Object right) {
+            switch (expr.operator.type) {
+                case BANG:
+                    return !Operators.isTruthy(right);
+                case MINUS:
+                    return Operators.negate(right, expr.operator);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final class NegateDoubleNode extends UnaryNode {
+        static final NegateDoubleNode INSTANCE = new NegateDoubleNode();
+
+        private NegateDoubleNode() {
+        }
+
+        Object execute(Expr.Unary expr, Object right) {
+            return right instanceof Double ? -(Double)right : this.generalize(expr, right);
+        }
+    }
+
+    private static final class NotBooleanNode extends UnaryNode {
+        static final NotBooleanNode INSTANCE = new NotBooleanNode();
+
+        private NotBooleanNode() {
+        }
+
+        Object execute(Expr.Unary expr, Object right) {
+            return right instanceof Boolean ? !(Boolean)right : this.generalize(expr, right);
+        }
+    }
+}
@@ -0,0 +1,991 @@
+package com.example.ezflowscript;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class VM {
+    private static final int FRAMES_MAX = 1 << 18;
+    private static final Object UNDEFINED = new Object();
+
+    private Object[] stack = new Object[1024];
+    private long[] numbers = new long[1024];
+    private int sp = 0;
+    private CallFrame[] frames = new CallFrame[64];
+    private int frameCount = 0;
+    private VMUpvalue openUpvalues;
+    private Object[] globals = new Object[64];
+    private long[] globalNumbers = new long[64];
+    private String[] globalNames = new String[64];
+    private final Map<String, Integer> globalSlots = new HashMap<>();
+
+    VM() {
+        for(int i = 0; i < this.frames.length; ++i) {
+            this.frames[i] = new CallFrame();
+        }
+
+        Arrays.fill(this.globals, UNDEFINED);
+        this.globals[this.globalSlot("clock")] = new VMNative(0) {
+            Object call(Object[] stack, int args) {
+                return (double)System.currentTimeMillis() / 1000.0;
+            }
+        };
+    }
+
+    int globalSlot(String name) {
+        Integer slot = this.globalSlots.get(name);
+        if (slot != null) {
+            return slot;
+        } else {
+            int index = this.globalSlots.size();
+            if (index == this.globals.length) {
+                this.globals = Arrays.copyOf(this.globals, index * 2);
+                Arrays.fill(this.globals, index, index * 2, UNDEFINED);
+                this.globalNumbers = Arrays.copyOf(this.globalNumbers, index * 2);
+                this.globalNames = Arrays.copyOf(this.globalNames, index * 2);
+            }
+
+            this.globalNames[index] = name;
+            this.globalSlots.put(name, index);
+            return index;
+        }
+    }
+
+    void interpret(VMFunction script) {
+        VMClosure closure = new VMClosure(script);
+        this.stack[0] = closure;
+        this.numbers[0] = Value.REFERENCE;
+        this.sp = 1;
+
+        try {
+            this.call(closure, 0);
+            this.run();
+        } catch (RuntimeError var4) {
+            EzFlowScriptApplication.runtimeError(var4);
+        } finally {
+            Arrays.fill(this.stack, 0, this.sp, (Object)null);
+            this.sp = 0;
+            this.frameCount = 0;
+            this.openUpvalues = null;
+        }
+    }
+
+    private void run() {
+        CallFrame frame = this.frames[this.frameCount - 1];
+        byte[] code = frame.closure.function.code;
+        Object[] constants = frame.closure.function.constants;
+        long[] numberConstants = frame.closure.function.numbers;
+        VMUpvalue[] upvalues = frame.closure.upvalues;
+        int base = frame.base;
+        int ip = frame.ip;
+        Object[] stack = this.stack;
+        long[] numbers = this.numbers;
+        int sp = this.sp;
+
+        while(true) {
+            switch (code[ip++]) {
+                case OpCode.CONSTANT: {
+                    int index = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    stack[sp] = constants[index];
+                    numbers[sp++] = numberConstants[index];
+                    break;
+                }
+                case OpCode.NIL:
+                    stack[sp] = null;
+                    numbers[sp++] = Value.REFERENCE;
+                    break;
+                case OpCode.TRUE:
+                    stack[sp] = Boolean.TRUE;
+                    numbers[sp++] = Value.REFERENCE;
+                    break;
+                case OpCode.FALSE:
+                    stack[sp] = Boolean.FALSE;
+                    numbers[sp++] = Value.REFERENCE;
+                    break;
+                case OpCode.POP:
+                    --sp;
+                    break;
+                case OpCode.GET_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    stack[sp] = stack[slot];
+                    numbers[sp++] = numbers[slot];
+                    break;
+                }
+                case OpCode.SET_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    stack[slot] = stack[sp - 1];
+                    numbers[slot] = numbers[sp - 1];
+                    break;
+                }
+                case OpCode.GET_GLOBAL: {
+                    int slot = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    Object value = this.globals[slot];
+                    long number = this.globalNumbers[slot];
+                    if (value == UNDEFINED && number == Value.REFERENCE) {
+                        throw this.error(frame, ip, "Undefined variable '" + this.globalNames[slot] + "'.");
+                    }
+
+                    stack[sp] = value;
+                    numbers[sp++] = number;
+                    break;
+                }
+                case OpCode.DEFINE_GLOBAL: {
+                    int slot = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    --sp;
+                    this.globals[slot] = stack[sp];
+                    this.globalNumbers[slot] = numbers[sp];
+                    break;
+                }
+                case OpCode.SET_GLOBAL: {
+                    int slot = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    if (this.globals[slot] == UNDEFINED && this.globalNumbers[slot] == Value.REFERENCE) {
+                        throw this.error(frame, ip, "Undefined variable '" + this.globalNames[slot] + "'.");
+                    }
+
+                    this.globals[slot] = stack[sp - 1];
+                    this.globalNumbers[slot] = numbers[sp - 1];
+                    break;
+                }
+                case OpCode.STORE_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    --sp;
+                    stack[slot] = stack[sp];
+                    numbers[slot] = numbers[sp];
+                    break;
+                }
+                case OpCode.STORE_GLOBAL: {
+                    int slot = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    if (this.globals[slot] == UNDEFINED && this.globalNumbers[slot] == Value.REFERENCE) {
+                        throw this.error(frame, ip, "Undefined variable '" + this.globalNames[slot] + "'.");
+                    }
+
+                    --sp;
+                    this.globals[slot] = stack[sp];
+                    this.globalNumbers[slot] = numbers[sp];
+                    break;
+                }
+                case OpCode.STORE_UPVALUE: {
+                    VMUpvalue upvalue = upvalues[code[ip++] & 0xff];
+                    --sp;
+                    if (upvalue.slot >= 0) {
+                        stack[upvalue.slot] = stack[sp];
+                        numbers[upvalue.slot] = numbers[sp];
+                    } else {
+                        upvalue.closed = box(stack, numbers, sp);
+                    }
+                    break;
+                }
+                case OpCode.GET_UPVALUE: {
+                    VMUpvalue upvalue = upvalues[code[ip++] & 0xff];
+                    if (upvalue.slot >= 0) {
+                        stack[sp] = stack[upvalue.slot];
+                        numbers[sp++] = numbers[upvalue.slot];
+                    } else {
+                        put(stack, numbers, sp++, upvalue.closed);
+                    }
+                    break;
+                }
+                case OpCode.SET_UPVALUE: {
+                    VMUpvalue upvalue = upvalues[code[ip++] & 0xff];
+                    if (upvalue.slot >= 0) {
+                        stack[upvalue.slot] = stack[sp - 1];
+                        numbers[upvalue.slot] = numbers[sp - 1];
+                    } else {
+                        upvalue.closed = box(stack, numbers, sp - 1);
+                    }
+                    break;
+                }
+                case OpCode.GET_PROPERTY:
+                    ip += 2;
+                    put(stack, numbers, sp - 1, this.getProperty(frame, ip, box(stack, numbers, sp - 1), (Symbol)constants[(code[ip - 2] & 0xff) << 8 | code[ip - 1] & 0xff]));
+                    break;
+                case OpCode.SET_PROPERTY: {
+                    ip += 2;
+                    Object object = box(stack, numbers, sp - 2);
+                    if (!(object instanceof VMInstance)) {
+                        throw this.error(frame, ip, "Only instances have fields.");
+                    }
+
+                    --sp;
+                    ((VMInstance)object).set((Symbol)constants[(code[ip - 2] & 0xff) << 8 | code[ip - 1] & 0xff], box(stack, numbers, sp));
+                    stack[sp - 1] = stack[sp];
+                    numbers[sp - 1] = numbers[sp];
+                    break;
+                }
+                case OpCode.GET_SUPER: {
+                    ip += 2;
+                    VMClass superclass = (VMClass)stack[--sp];
+                    stack[sp - 1] = this.bindMethod(frame, ip, superclass, box(stack, numbers, sp - 1), (Symbol)constants[(code[ip - 2] & 0xff) << 8 | code[ip - 1] & 0xff]);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.EQUAL: {
+                    --sp;
+                    stack[sp - 1] = isEqual(stack, numbers, sp - 1, sp);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.NOT_EQUAL: {
+                    --sp;
+                    stack[sp - 1] = !isEqual(stack, numbers, sp - 1, sp);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.GREATER: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    stack[sp - 1] = Value.number(a) > Value.number(b);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.GREATER_EQUAL: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    stack[sp - 1] = Value.number(a) >= Value.number(b);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.LESS: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    stack[sp - 1] = Value.number(a) < Value.number(b);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.LESS_EQUAL: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    stack[sp - 1] = Value.number(a) <= Value.number(b);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                }
+                case OpCode.ADD: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a != Value.REFERENCE && b != Value.REFERENCE) {
+                        numbers[sp - 1] = Value.of(Value.number(a) + Value.number(b));
+                    } else {
+                        stack[sp - 1] = this.concat(frame, ip, box(stack, numbers, sp - 1), box(stack, numbers, sp));
+                    }
+                    break;
+                }
+                case OpCode.SUBTRACT: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) - Value.number(b));
+                    break;
+                }
+                case OpCode.MULTIPLY: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) * Value.number(b));
+                    break;
+                }
+                case OpCode.DIVIDE: {
+                    long b = numbers[--sp];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) / Value.number(b));
+                    break;
+                }
+                case OpCode.NOT:
+                    stack[sp - 1] = numbers[sp - 1] == Value.REFERENCE && !Operators.isTruthy(stack[sp - 1]);
+                    numbers[sp - 1] = Value.REFERENCE;
+                    break;
+                case OpCode.NEGATE: {
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERAND);
+                    }
+
+                    numbers[sp - 1] = Value.of(-Value.number(a));
+                    break;
+                }
+                case OpCode.PRINT:
+                    --sp;
+                    System.out.println(stringify(box(stack, numbers, sp)));
+                    break;
+                case OpCode.JUMP:
+                    ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    break;
+                case OpCode.JUMP_IF_FALSE: {
+                    Object condition = stack[sp - 1];
+                    if (numbers[sp - 1] == Value.REFERENCE && (condition == null || condition == Boolean.FALSE)) {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    } else {
+                        ip += 2;
+                    }
+                    break;
+                }
+                case OpCode.POP_JUMP_IF_FALSE: {
+                    Object condition = stack[--sp];
+                    if (numbers[sp] == Value.REFERENCE && (condition == null || condition == Boolean.FALSE)) {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    } else {
+                        ip += 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER: {
+                    long b = numbers[--sp];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) > Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_EQUAL: {
+                    long b = numbers[--sp];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) >= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS: {
+                    long b = numbers[--sp];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) < Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_EQUAL: {
+                    long b = numbers[--sp];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) <= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.ADD_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    long b = numbers[slot];
+                    long a = numbers[sp - 1];
+                    if (a != Value.REFERENCE && b != Value.REFERENCE) {
+                        numbers[sp - 1] = Value.of(Value.number(a) + Value.number(b));
+                    } else {
+                        stack[sp - 1] = this.concat(frame, ip, box(stack, numbers, sp - 1), box(stack, numbers, slot));
+                        numbers[sp - 1] = Value.REFERENCE;
+                    }
+                    break;
+                }
+                case OpCode.SUBTRACT_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    long b = numbers[slot];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) - Value.number(b));
+                    break;
+                }
+                case OpCode.MULTIPLY_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    long b = numbers[slot];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) * Value.number(b));
+                    break;
+                }
+                case OpCode.DIVIDE_LOCAL: {
+                    int slot = base + (code[ip++] & 0xff);
+                    long b = numbers[slot];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) / Value.number(b));
+                    break;
+                }
+                case OpCode.ADD_CONSTANT: {
+                    int index = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    long b = numberConstants[index];
+                    long a = numbers[sp - 1];
+                    if (a != Value.REFERENCE && b != Value.REFERENCE) {
+                        numbers[sp - 1] = Value.of(Value.number(a) + Value.number(b));
+                    } else {
+                        stack[sp - 1] = this.concat(frame, ip, box(stack, numbers, sp - 1), constants[index]);
+                        numbers[sp - 1] = Value.REFERENCE;
+                    }
+                    break;
+                }
+                case OpCode.SUBTRACT_CONSTANT: {
+                    int index = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    long b = numberConstants[index];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) - Value.number(b));
+                    break;
+                }
+                case OpCode.MULTIPLY_CONSTANT: {
+                    int index = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    long b = numberConstants[index];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) * Value.number(b));
+                    break;
+                }
+                case OpCode.DIVIDE_CONSTANT: {
+                    int index = (code[ip] & 0xff) << 8 | code[ip + 1] & 0xff;
+                    ip += 2;
+                    long b = numberConstants[index];
+                    long a = numbers[sp - 1];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    numbers[sp - 1] = Value.of(Value.number(a) / Value.number(b));
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_LOCAL: {
+                    long b = numbers[base + (code[ip++] & 0xff)];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) > Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_EQUAL_LOCAL: {
+                    long b = numbers[base + (code[ip++] & 0xff)];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) >= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_LOCAL: {
+                    long b = numbers[base + (code[ip++] & 0xff)];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) < Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_EQUAL_LOCAL: {
+                    long b = numbers[base + (code[ip++] & 0xff)];
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) <= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_CONSTANT: {
+                    long b = numberConstants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    ip += 2;
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) > Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_EQUAL_CONSTANT: {
+                    long b = numberConstants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    ip += 2;
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) >= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_CONSTANT: {
+                    long b = numberConstants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    ip += 2;
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) < Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_EQUAL_CONSTANT: {
+                    long b = numberConstants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    ip += 2;
+                    long a = numbers[--sp];
+                    if (a == Value.REFERENCE || b == Value.REFERENCE) {
+                        throw this.error(frame, ip, Operators.NUMBER_OPERANDS);
+                    }
+
+                    if (Value.number(a) <= Value.number(b)) {
+                        ip += 2;
+                    } else {
+                        ip += ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) + 2;
+                    }
+                    break;
+                }
+                case OpCode.LOOP:
+                    ip -= ((code[ip] & 0xff) << 8 | code[ip + 1] & 0xff) - 2;
+                    break;
+                case OpCode.CALL: {
+                    int argCount = code[ip++] & 0xff;
+                    frame.ip = ip;
+                    this.sp = sp;
+                    this.callValue(box(stack, numbers, sp - argCount - 1), argCount);
+                    frame = this.frames[this.frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    numberConstants = frame.closure.function.numbers;
+                    upvalues = frame.closure.upvalues;
+                    base = frame.base;
+                    ip = frame.ip;
+                    stack = this.stack;
+                    numbers = this.numbers;
+                    sp = this.sp;
+                    break;
+                }
+                case OpCode.INVOKE: {
+                    Symbol name = (Symbol)constants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    int argCount = code[ip + 2] & 0xff;
+                    ip += 3;
+                    frame.ip = ip;
+                    this.sp = sp;
+                    this.invoke(name, argCount);
+                    frame = this.frames[this.frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    numberConstants = frame.closure.function.numbers;
+                    upvalues = frame.closure.upvalues;
+                    base = frame.base;
+                    ip = frame.ip;
+                    stack = this.stack;
+                    numbers = this.numbers;
+                    sp = this.sp;
+                    break;
+                }
+                case OpCode.SUPER_INVOKE: {
+                    Symbol name = (Symbol)constants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff];
+                    int argCount = code[ip + 2] & 0xff;
+                    ip += 3;
+                    frame.ip = ip;
+                    VMClass superclass = (VMClass)stack[--sp];
+                    this.sp = sp;
+                    this.invokeFromClass(superclass, name, argCount);
+                    frame = this.frames[this.frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    numberConstants = frame.closure.function.numbers;
+                    upvalues = frame.closure.upvalues;
+                    base = frame.base;
+                    ip = frame.ip;
+                    stack = this.stack;
+                    numbers = this.numbers;
+                    sp = this.sp;
+                    break;
+                }
+                case OpCode.CLOSURE:
+                    ip = this.closure(frame, ip, sp);
+                    ++sp;
+                    break;
+                case OpCode.CLOSE_UPVALUE:
+                    this.closeUpvalues(sp - 1);
+                    stack[--sp] = null;
+                    break;
+                case OpCode.RETURN: {
+                    --sp;
+                    Object result = stack[sp];
+                    long number = numbers[sp];
+                    this.closeUpvalues(base);
+                    --this.frameCount;
+                    if (this.frameCount == 0) {
+                        this.sp = sp;
+                        return;
+                    }
+
+                    stack[base] = result;
+                    numbers[base] = number;
+                    sp = base + 1;
+                    frame = this.frames[this.frameCount - 1];
+                    code = frame.closure.function.code;
+                    constants = frame.closure.function.constants;
+                    numberConstants = frame.closure.function.numbers;
+                    upvalues = frame.closure.upvalues;
+                    base = frame.base;
+                    ip = frame.ip;
+                    break;
+                }
+                case OpCode.CLASS:
+                    stack[sp] = new VMClass(((Symbol)constants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff]).name);
+                    numbers[sp++] = Value.REFERENCE;
+                    ip += 2;
+                    break;
+                case OpCode.INHERIT:
+                    this.inherit(frame, ip, box(stack, numbers, sp - 2), (VMClass)stack[sp - 1]);
+                    stack[--sp] = null;
+                    break;
+                case OpCode.METHOD:
+                    this.defineMethod((VMClass)stack[sp - 2], (VMClosure)stack[sp - 1], (Symbol)constants[(code[ip] & 0xff) << 8 | code[ip + 1] & 0xff]);
+                    ip += 2;
+                    stack[--sp] = null;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[ip - 1]);
+            }
+        }
+    }
+
+    private Object concat(CallFrame frame, int ip, Object left, Object right) {
+        if (Rope.isString(left) && Rope.isString(right)) {
+            return Rope.concat(left, right);
+        } else {
+            throw this.error(frame, ip, Operators.ADD_OPERANDS);
+        }
+    }
+
+    private static Object box(Object[] stack, long[] numbers, int slot) {
+        long number = numbers[slot];
+        return number != Value.REFERENCE ? Value.number(number) : stack[slot];
+    }
+
+    private static void put(Object[] stack, long[] numbers, int slot, Object value) {
+        if (value instanceof Double) {
+            stack[slot] = null;
+            numbers[slot] = Value.of((Double)value);
+        } else {
+            stack[slot] = value;
+            numbers[slot] = Value.REFERENCE;
+        }
+
+    }
+
+    private static boolean isEqual(Object[] stack, long[] numbers, int a, int b) {
+        if (numbers[a] != Value.REFERENCE && numbers[b] != Value.REFERENCE) {
+            return numbers[a] == numbers[b];
+        } else {
+            return Operators.isEqual(box(stack, numbers, a), box(stack, numbers, b));
+        }
+    }
+
+    private void callValue(Object callee, int argCount) {
+        if (callee instanceof VMClosure) {
+            this.call((VMClosure)callee, argCount);
+        } else if (callee instanceof VMBoundMethod) {
+            VMBoundMethod bound = (VMBoundMethod)callee;
+            this.stack[this.sp - argCount - 1] = bound.receiver;
+            this.numbers[this.sp - argCount - 1] = Value.REFERENCE;
+            this.call(bound.method, argCount);
+        } else if (callee instanceof VMClass) {
+            VMClass klass = (VMClass)callee;
+            this.stack[this.sp - argCount - 1] = new VMInstance(klass);
+            this.numbers[this.sp - argCount - 1] = Value.REFERENCE;
+            if (klass.initializer != null) {
+                this.call(klass.initializer, argCount);
+            } else if (argCount != 0) {
+                throw this.error("Expected 0 arguments but got " + argCount + ".");
+            }
+        } else if (callee instanceof VMNative) {
+            VMNative function = (VMNative)callee;
+            if (argCount != function.arity) {
+                throw this.error("Expected " + function.arity + " arguments but got " + argCount + ".");
+            }
+
+            for(int i = this.sp - argCount; i < this.sp; ++i) {
+                this.stack[i] = box(this.stack, this.numbers, i);
+                this.numbers[i] = Value.REFERENCE;
+            }
+
+            Object result = function.call(this.stack, this.sp - argCount);
+            Arrays.fill(this.stack, this.sp - argCount - 1, this.sp, (Object)null);
+            this.sp -= argCount;
+            put(this.stack, this.numbers, this.sp - 1, result);
+        } else {
+            throw this.error("Can only call functions and classes.");
+        }
+    }
+
+    private void call(VMClosure closure, int argCount) {
+        VMFunction function = closure.function;
+        if (argCount != function.arity) {
+            throw this.error("Expected " + function.arity + " arguments but got " + argCount + ".");
+        } else if (this.frameCount > 0 && this.frames[this.frameCount - 1].closure.function.code[this.frames[this.frameCount - 1].ip] == OpCode.RETURN) {
+            CallFrame frame = this.frames[this.frameCount - 1];
+            this.closeUpvalues(frame.base);
+            System.arraycopy(this.stack, this.sp - argCount - 1, this.stack, frame.base, argCount + 1);
+            System.arraycopy(this.numbers, this.sp - argCount - 1, this.numbers, frame.base, argCount + 1);
+            this.sp = frame.base + argCount + 1;
+            this.ensureStack(frame.base + function.maxStack);
+            frame.closure = closure;
+            frame.ip = 0;
+        } else if (this.frameCount == FRAMES_MAX) {
+            throw this.error("Stack overflow.");
+        } else {
+            if (this.frameCount == this.frames.length) {
+                int length = this.frames.length;
+                this.frames = Arrays.copyOf(this.frames, length * 2);
+
+                for(int i = length; i < this.frames.length; ++i) {
+                    this.frames[i] = new CallFrame();
+                }
+            }
+
+            int base = this.sp - argCount - 1;
+            this.ensureStack(base + function.maxStack);
+            CallFrame frame = this.frames[this.frameCount++];
+            frame.closure = closure;
+            frame.ip = 0;
+            frame.base = base;
+        }
+    }
+
+    private void ensureStack(int size) {
+        if (size > this.stack.length) {
+            int length = Math.max(this.stack.length * 2, size);
+            this.stack = Arrays.copyOf(this.stack, length);
+            this.numbers = Arrays.copyOf(this.numbers, length);
+        }
+
+    }
+
+    private void invoke(Symbol name, int argCount) {
+        Object receiver = box(this.stack, this.numbers, this.sp - argCount - 1);
+        if (!(receiver instanceof VMInstance)) {
+            throw this.error("Only instances have properties.");
+        } else {
+            VMInstance instance = (VMInstance)receiver;
+            int index = instance.shape.indexOf(name);
+            if (index == -1) {
+                this.invokeFromClass(instance.klass, name, argCount);
+            } else {
+                Object value = instance.values[index];
+                put(this.stack, this.numbers, this.sp - argCount - 1, value);
+                this.callValue(value, argCount);
+            }
+        }
+    }
+
+    private void invokeFromClass(VMClass klass, Symbol name, int argCount) {
+        VMClosure method = klass.methods.get(name);
+        if (method == null) {
+            throw this.error("Undefined property '" + name + "'.");
+        } else {
+            this.call(method, argCount);
+        }
+    }
+
+    private Object getProperty(CallFrame frame, int ip, Object object, Symbol name) {
+        if (!(object instanceof VMInstance)) {
+            throw this.error(frame, ip, "Only instances have properties.");
+        } else {
+            VMInstance instance = (VMInstance)object;
+            int index = instance.shape.indexOf(name);
+            return index == -1 ? this.bindMethod(frame, ip, instance.klass, instance, name) : instance.values[index];
+        }
+    }
+
+    private Object bindMethod(CallFrame frame, int ip, VMClass klass, Object receiver, Symbol name) {
+        VMClosure method = klass.methods.get(name);
+        if (method == null) {
+            throw this.error(frame, ip, "Undefined property '" + name + "'.");
+        } else {
+            return new VMBoundMethod(receiver, method);
+        }
+    }
+
+    private int closure(CallFrame frame, int ip, int sp) {
+        VMFunction function = (VMFunction)frame.closure.function.constants[(frame.closure.function.code[ip] & 0xff) << 8 | frame.closure.function.code[ip + 1] & 0xff];
+        byte[] code = frame.closure.function.code;
+        ip += 2;
+        VMClosure closure = new VMClosure(function);
+        this.stack[sp] = closure;
+        this.numbers[sp] = Value.REFERENCE;
+
+        for(int i = 0; i < closure.upvalues.length; ++i) {
+            boolean isLocal = code[ip++] == 1;
+            int index = code[ip++] & 0xff;
+            closure.upvalues[i] = isLocal ? this.captureUpvalue(frame.base + index) : frame.closure.upvalues[index];
+        }
+
+        return ip;
+    }
+
+    private VMUpvalue captureUpvalue(int slot) {
+        VMUpvalue previous = null;
+
+        VMUpvalue upvalue;
+        for(upvalue = this.openUpvalues; upvalue != null && upvalue.slot > slot; upvalue = upvalue.next) {
+            previous = upvalue;
+        }
+
+        if (upvalue != null && upvalue.slot == slot) {
+            return upvalue;
+        } else {
+            VMUpvalue created = new VMUpvalue(slot, upvalue);
+            if (previous == null) {
+                this.openUpvalues = created;
+            } else {
+                previous.next = created;
+            }
+
+            return created;
+        }
+    }
+
+    private void closeUpvalues(int last) {
+        while(this.openUpvalues != null && this.openUpvalues.slot >= last) {
+            VMUpvalue upvalue = this.openUpvalues;
+            upvalue.closed = box(this.stack, this.numbers, upvalue.slot);
+            upvalue.slot = -1;
+            this.openUpvalues = upvalue.next;
+        }
+    }
+
+    private void inherit(CallFrame frame, int ip, Object superclass, VMClass subclass) {
+        if (!(superclass instanceof VMClass)) {
+            throw this.error(frame, ip, "Superclass must be a class.");
+        } else {
+            subclass.methods.putAll(((VMClass)superclass).methods);
+            subclass.initializer = ((VMClass)superclass).initializer;
+        }
+    }
+
+    private void defineMethod(VMClass klass, VMClosure method, Symbol name) {
+        klass.methods.put(name, method);
+        if (name == Symbol.INIT) {
+            klass.initializer = method;
+        }
+    }
+
+    private RuntimeError error(String message) {
+        CallFrame frame = this.frames[this.frameCount - 1];
+        return this.error(frame, frame.ip, message);
+    }
+
+    private RuntimeError error(CallFrame frame, int ip, String message) {
+        int line = frame.closure.function.chunk.getLine(ip - 1);
+        return new RuntimeError(new Token(TokenType.EOF, "", null, line), message);
+    }
+
+    private static String stringify(Object object) {
+        if (object == null) {
+            return "nil";
+        } else if (object instanceof Double) {
+            String text = object.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+
+            return text;
+        } else {
+            return object.toString();
+        }
+    }
+
+    private static class CallFrame {
+        VMClosure closure;
+        int ip;
+        int base;
+
+        CallFrame() {
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ezflowscript;
+
+class VMBoundMethod {
+    final Object receiver;
+    final VMClosure method;
+
+    VMBoundMethod(Object receiver, VMClosure method) {
+        this.receiver = receiver;
+        this.method = method;
+    }
+
+    public String toString() {
+        return this.method.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ezflowscript;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class VMClass {
+    final String name;
+    final Map<Symbol, VMClosure> methods = new HashMap<>();
+    final Shape shape = new Shape();
+    VMClosure initializer;
+
+    VMClass(String name) {
+        this.name = name;
+    }
+
+    public String toString() {
+        return this.name + " class";
+    }
+}
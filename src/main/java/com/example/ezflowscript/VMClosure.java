@@ -0,0 +1,15 @@
+package com.example.ezflowscript;
+
+class VMClosure {
+    final VMFunction function;
+    final VMUpvalue[] upvalues;
+
+    VMClosure(VMFunction function) {
+        this.function = function;
+        this.upvalues = new VMUpvalue[function.upvalueCount];
+    }
+
+    public String toString() {
+        return this.function.toString();
+    }
+}
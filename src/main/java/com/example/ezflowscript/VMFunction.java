@@ -0,0 +1,32 @@
+package com.example.ezflowscript;
+
+class VMFunction {
+    final String name;
+    final Chunk chunk = new Chunk();
+    int arity = 0;
+    int upvalueCount = 0;
+    int maxStack = 0;
+    byte[] code;
+    Object[] constants;
+    long[] numbers;
+
+    VMFunction(String name) {
+        this.name = name;
+    }
+
+    void finish() {
+        this.code = this.chunk.code;
+        this.constants = this.chunk.constants();
+        this.numbers = new long[this.constants.length];
+
+        for(int i = 0; i < this.constants.length; ++i) {
+            if (this.constants[i] instanceof Double) {
+                this.numbers[i] = Value.of((Double)this.constants[i]);
+            }
+        }
+    }
+
+    public String toString() {
+        return this.name == null ? "<script>" : "<fn " + this.name + ">";
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ezflowscript;
+
+class VMInstance {
+    final VMClass klass;
+    Shape shape;
+    Object[] values;
+
+    VMInstance(VMClass klass) {
+        this.klass = klass;
+        this.shape = klass.shape;
+        this.values = this.shape.newValues();
+    }
+
+    void set(Symbol name, Object value) {
+        int index = this.shape.indexOf(name);
+        if (index == -1) {
+            this.shape = this.shape.withField(name);
+            this.values = this.shape.grow(this.values);
+            index = this.shape.size - 1;
+        }
+
+        this.values[index] = value;
+    }
+
+    public String toString() {
+        return this.klass.name + " instance";
+    }
+}
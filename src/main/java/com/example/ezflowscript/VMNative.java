@@ -0,0 +1,15 @@
+package com.example.ezflowscript;
+
+abstract class VMNative {
+    final int arity;
+
+    VMNative(int arity) {
+        this.arity = arity;
+    }
+
+    abstract Object call(Object[] stack, int args);
+
+    public String toString() {
+        return "<native fn>";
+    }
+}
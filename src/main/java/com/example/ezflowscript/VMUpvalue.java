@@ -0,0 +1,12 @@
+package com.example.ezflowscript;
+
+class VMUpvalue {
+    int slot;
+    Object closed;
+    VMUpvalue next;
+
+    VMUpvalue(int slot, VMUpvalue next) {
+        this.slot = slot;
+        this.next = next;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ezflowscript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+final class Validator {
+    private final List<Stmt.Function> functions;
+    private final ErrorReporter[] errors;
+    private final ForkJoinTask<?>[] tasks;
+
+    private Validator(List<Stmt.Function> functions) {
+        this.functions = functions;
+        this.errors = new ErrorReporter[functions.size()];
+        this.tasks = new ForkJoinTask<?>[functions.size()];
+    }
+
+    static Validator start(List<Stmt> statements) {
+        List<Stmt.Function> functions = new ArrayList<>();
+
+        for(int i = 0; i < statements.size(); ++i) {
+            Stmt stmt = statements.get(i);
+            if (stmt instanceof Stmt.Function && ((Stmt.Function)stmt).body == null) {
+                functions.add((Stmt.Function)stmt);
+            }
+        }
+
+        Validator validator = new Validator(functions);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        for(int i = 0; i < functions.size(); ++i) {
+            int index = i;
+            validator.tasks[i] = pool.submit(() -> validator.validate(index));
+        }
+
+        return validator;
+    }
+
+    private void validate(int index) {
+        Stmt.Function function = this.functions.get(index);
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation.compileBody(function, reporter);
+        if (reporter.hadError) {
+            function.body = null;
+            function.invalid = true;
+        } else {
+            (new TypeInference()).infer(function);
+        }
+
+        this.errors[index] = reporter;
+    }
+
+    void report(ErrorReporter reporter) {
+        for(int i = 0; i < this.tasks.length; ++i) {
+            this.tasks[i].join();
+            reporter.merge(this.errors[i]);
+        }
+
+    }
+}
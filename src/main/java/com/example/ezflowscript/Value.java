@@ -0,0 +1,16 @@
+package com.example.ezflowscript;
+
+final class Value {
+    static final long REFERENCE = 0L;
+
+    private Value() {
+    }
+
+    static long of(double number) {
+        return ~Double.doubleToLongBits(number);
+    }
+
+    static double number(long value) {
+        return Double.longBitsToDouble(~value);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.ezflowscript;
+
+enum ValueType {
+    NIL,
+    NUMBER,
+    STRING,
+    BOOLEAN,
+    INSTANCE,
+    UNKNOWN;
+
+    private ValueType() {
+    }
+
+    static ValueType join(ValueType a, ValueType b) {
+        if (a == null) {
+            return b;
+        } else if (b != null && a != b) {
+            return UNKNOWN;
+        } else {
+            return a;
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.example.ezflowscript.tool;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
 public class GenerateAst {
@@ -17,78 +17,182 @@ public class GenerateAst {
         }
 
         String outputDir = args[0];
-        defineAst(outputDir, "Expr", Arrays.asList("Assign  : Token name, Expr value", "Binary  : Expr left, Token operator, Expr right", "Call    : Expr callee, Token paren, List<Expr> arguments", "Get     : Expr object, Token name", "Grouping: Expr expression", "Literal : Object value", "Logical : Expr left, Token operator, Expr right", "Set     : Expr object, Token name, Expr value", "Super   : Token keyword, Token method", "This    : Token keyword", "Unary   : Token operator, Expr right", "Variable: Token name"));
-        defineAst(outputDir, "Stmt", Arrays.asList("Block     : List<Stmt> statements", "Class     : Token name, Expr.Variable superclass, List<Stmt.Function> methods", "Expression: Expr expression", "Function  : Token name, List<Token> params, List<Stmt> body", "If        : Expr condition, Stmt thenBranch, Stmt elseBranch", "Print     : Expr expression", "Return    : Token keyword, Expr value", "Var       : Token name, Expr initializer", "While     : Expr condition, Stmt body"));
+        defineAst(outputDir, "Expr", "ValueType type := ValueType.UNKNOWN", Arrays.asList(
+                "Reference       : abstract | int slot = -1, int upvalue = -1, boolean captured = false, Cell global",
+                "Assign<Reference: Token name, Expr value",
+                "Binary          : Expr left, Token operator, Expr right | BinaryNode node := BinaryNode.UNINITIALIZED",
+                "Call            : Expr callee, Token paren, List<Expr> arguments | boolean invoke = false",
+                "Get             : Expr object, Token name | final InlineCache cache = new InlineCache()",
+                "Grouping        : Expr expression",
+                "Literal         : Object value",
+                "Logical         : Expr left, Token operator, Expr right | LogicalNode node := LogicalNode.UNINITIALIZED",
+                "Set             : Expr object, Token name, Expr value | final InlineCache cache = new InlineCache()",
+                "Super<Reference : Token keyword, Token method | final This receiver := new This(keyword)",
+                "This<Reference  : Token keyword",
+                "Unary           : Token operator, Expr right | UnaryNode node := UnaryNode.UNINITIALIZED",
+                "Variable<Reference: Token name"));
+        defineAst(outputDir, "Stmt", (String)null, Arrays.asList(
+                "Block     : List<Stmt> statements",
+                "Class     : Token name, Expr.Variable superclass, List<Function> methods | int slot = -1, boolean captured, int superSlot = -1",
+                "Expression: Expr expression",
+                "Function  : Token name, List<Token> params, ~List<Stmt> body, TokenBuffer tokens, int bodyStart | boolean invalid, ErrorReporter reporter, int slot = -1, boolean captured, int slotCount, boolean[] paramsCaptured, boolean[] numberParams, boolean[] upvalueIsLocal, int[] upvalueIndices, CompiledFunction compiled, int hotness, boolean uncompilable, Environment spare",
+                "If        : Expr condition, Stmt thenBranch, Stmt elseBranch",
+                "Print     : Expr expression",
+                "Return    : Token keyword, Expr value | boolean tailCall = false",
+                "Var       : Token name, Expr initializer | int slot = -1, boolean captured",
+                "While     : Expr condition, Stmt body | int iterations, Trace trace"));
     }
 
-    private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
+    private static void defineAst(String outputDir, String baseName, String baseField, List<String> types) throws IOException {
         String path = outputDir + "/" + baseName + ".java";
         PrintWriter writer = new PrintWriter(path, "UTF-8");
-        writer.println("package myclasses;");
+        writer.println("package com.example.ezflowscript;");
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + "{");
-        defineVisitor(writer, baseName, types);
-        Iterator var5 = types.iterator();
+        writer.println("abstract class " + baseName + " {");
+        if (baseField != null) {
+            writer.println("    " + declaration(baseField) + ";");
+            writer.println();
+        }
 
-        while(var5.hasNext()) {
-            String type = (String)var5.next();
-            String className = type.split(":")[0].trim();
-            String fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+        writer.println("    " + baseName + "() {");
+        if (baseField != null) {
+            writer.println("        " + assignment(baseField));
         }
 
+        writer.println("    }");
         writer.println();
-        writer.println("  abstract <R> R accept(Visitor<R> visitor); ");
+        writer.println("    abstract <R> R accept(Visitor<R> visitor);");
+        writer.println();
+        List<String> concrete = new ArrayList<>();
+
+        for (String type : types) {
+            String[] parts = type.split(":", 2);
+            String[] header = parts[0].trim().split("<");
+            String className = header[0].trim();
+            String superName = header.length > 1 ? header[1].trim() : baseName;
+            String[] body = parts[1].split("\\|");
+            String fields = body[0].trim();
+            String extras = body.length > 1 ? body[1].trim() : "";
+            if (fields.equals("abstract")) {
+                defineAbstract(writer, baseName, className, extras);
+            } else {
+                concrete.add(0, className + ":" + superName + ":" + fields + "|" + extras);
+            }
+        }
+
+        for (String type : concrete) {
+            String[] parts = type.split(":", 3);
+            String[] body = parts[2].split("\\|", -1);
+            defineType(writer, baseName, parts[0], parts[1], body[0], body[1]);
+        }
+
+        defineVisitor(writer, baseName, types);
         writer.println("}");
         writer.close();
     }
 
+    private static void defineAbstract(PrintWriter writer, String baseName, String className, String extras) {
+        writer.println("    abstract static class " + className + " extends " + baseName + " {");
+
+        for (String extra : split(extras)) {
+            writer.println("        " + declaration(extra) + ";");
+        }
+
+        writer.println();
+        writer.println("        " + className + "() {");
+        writer.println("        }");
+        writer.println("    }");
+        writer.println();
+    }
+
     private static void defineVisitor(PrintWriter writer, String baseName, List<String> types) {
-        writer.println("  interface Visitor<R> {");
-        Iterator var3 = types.iterator();
+        writer.println("    interface Visitor<R> {");
+        boolean first = true;
+
+        for (String type : types) {
+            String[] parts = type.split(":", 2);
+            if (parts[1].trim().startsWith("abstract")) {
+                continue;
+            }
 
-        while(var3.hasNext()) {
-            String type = (String)var3.next();
-            String typeName = type.split(":")[0].trim();
-            writer.println("  R visit" + typeName + baseName + "(" + typeName + " " + baseName.toLowerCase() + ");");
+            if (!first) {
+                writer.println();
+            }
+
+            String typeName = parts[0].trim().split("<")[0].trim();
+            writer.println("        R visit" + typeName + baseName + "(" + typeName + " var1);");
+            first = false;
         }
 
-        writer.println("  }");
+        writer.println("    }");
     }
 
-    private static void defineType(PrintWriter writer, String baseName, String className, String fieldList) {
-        writer.println("static class " + className + " extends " + baseName + " {");
-        writer.println("  " + className + "(" + fieldList + ") {");
-        String[] fields = fieldList.split(", ");
-        String[] var5 = fields;
-        int var6 = fields.length;
-
-        int var7;
-        String field;
-        for(var7 = 0; var7 < var6; ++var7) {
-            field = var5[var7];
-            String name = field.split(" ")[1];
-            writer.println("  this." + name + " = " + name + ";");
+    private static void defineType(PrintWriter writer, String baseName, String className, String superName, String fieldList, String extras) {
+        writer.println("    static class " + className + " extends " + superName + " {");
+        List<String> fields = split(fieldList);
+
+        for (String field : fields) {
+            writer.println("        " + (field.startsWith("~") ? field.substring(1) : "final " + field) + ";");
+        }
+
+        for (String extra : split(extras)) {
+            writer.println("        " + declaration(extra) + ";");
         }
 
-        writer.println("  }");
         writer.println();
-        var5 = fields;
-        var6 = fields.length;
+        StringBuilder parameters = new StringBuilder();
 
-        for(var7 = 0; var7 < var6; ++var7) {
-            field = var5[var7];
-            writer.println("  final " + field + ";");
+        for (String field : fields) {
+            if (parameters.length() > 0) {
+                parameters.append(", ");
+            }
+
+            parameters.append(field.startsWith("~") ? field.substring(1) : field);
         }
 
+        writer.println("        " + className + "(" + parameters + ") {");
+
+        for (String field : fields) {
+            String name = field.substring(field.lastIndexOf(' ') + 1);
+            writer.println("            this." + name + " = " + name + ";");
+        }
+
+        for (String extra : split(extras)) {
+            if (extra.contains(" := ")) {
+                writer.println("            " + assignment(extra));
+            }
+        }
+
+        writer.println("        }");
         writer.println();
-        writer.println();
-        writer.println("  @Override");
-        writer.println("  <R> R accept(Visitor<R> visitor) {");
-        writer.println("    return visitor.visit" + className + baseName + "(this);");
+        writer.println("        <R> R accept(Visitor<R> visitor) {");
+        writer.println("            return visitor.visit" + className + baseName + "(this);");
+        writer.println("        }");
         writer.println("    }");
-        writer.println("  }");
+        writer.println();
+    }
+
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<>();
+
+        for (String item : list.split(", ")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+
+        return items;
+    }
+
+    private static String declaration(String field) {
+        int assigned = field.indexOf(" := ");
+        return assigned >= 0 ? field.substring(0, assigned) : field;
+    }
+
+    private static String assignment(String field) {
+        String[] parts = field.split(" := ");
+        return "this." + parts[0].substring(parts[0].lastIndexOf(' ') + 1) + " = " + parts[1] + ";";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryNodeTests {
+
+    private static Expr.Binary binary(TokenType type, String lexeme) {
+        return new Expr.Binary(new Expr.Literal(null), new Token(type, lexeme, null, 1), new Expr.Literal(null));
+    }
+
+    private static Object run(Expr.Binary expr, Object left, Object right) {
+        return expr.node.execute(expr, left, right);
+    }
+
+    @Test
+    void numberEqualityMatchesTheGenericOperator() {
+        Expr.Binary equal = binary(TokenType.EQUAL_EQUAL, "==");
+        Expr.Binary notEqual = binary(TokenType.BANG_EQUAL, "!=");
+        double[][] pairs = {{1, 1}, {1, 2}, {0.0, -0.0}, {Double.NaN, Double.NaN}, {Double.NaN, 1}};
+
+        for (double[] pair : pairs) {
+            Object a = pair[0];
+            Object b = pair[1];
+            assertEquals(Operators.isEqual(a, b), run(equal, a, b));
+            assertEquals(!Operators.isEqual(a, b), run(notEqual, a, b));
+        }
+        assertSame(equal.node, BinaryNode.specialize(TokenType.EQUAL_EQUAL, 1.0, 2.0));
+        assertNotSame(BinaryNode.GENERIC, equal.node);
+    }
+
+    @Test
+    void numberEqualityGeneralizesOnOtherOperands() {
+        Expr.Binary equal = binary(TokenType.EQUAL_EQUAL, "==");
+
+        assertEquals(true, run(equal, 2.0, 2.0));
+        assertEquals(false, run(equal, 2.0, "2"));
+        assertSame(BinaryNode.GENERIC, equal.node);
+        assertEquals(true, run(equal, "a", "a"));
+    }
+
+    @Test
+    void referenceEqualityNeverGeneralizes() {
+        Expr.Binary equal = binary(TokenType.EQUAL_EQUAL, "==");
+        Expr.Binary notEqual = binary(TokenType.BANG_EQUAL, "!=");
+        Object instance = new Object();
+
+        assertEquals(true, run(equal, instance, instance));
+        assertEquals(false, run(notEqual, instance, instance));
+        BinaryNode node = equal.node;
+        assertEquals(false, run(equal, instance, new Object()));
+        assertEquals(true, run(equal, null, null));
+        assertEquals(false, run(equal, null, 1.0));
+        assertEquals(true, run(equal, 1.0, 1.0));
+        assertEquals(true, run(equal, "ab", new String("ab")));
+        assertSame(node, equal.node);
+        assertNotSame(BinaryNode.GENERIC, node);
+    }
+
+    @Test
+    void scriptsCompareLikeTheVM() {
+        String source = "var nan = 0 / 0;\n"
+                + "fun same(a, b) { return a == b; }\n"
+                + "fun differ(a, b) { return a != b; }\n"
+                + "print nan == nan;\n"
+                + "print 0 == -0;\n"
+                + "print same(3, 3);\n"
+                + "print differ(3, 4);\n"
+                + "print same(\"a\" + \"b\", \"ab\");\n"
+                + "print same(nil, false);\n"
+                + "class C {}\n"
+                + "var c = C();\n"
+                + "print same(c, c);\n"
+                + "print differ(c, C());\n";
+        InProcessRun walker = InProcessRun.walker(source);
+
+        assertEquals("true\nfalse\ntrue\ntrue\ntrue\nfalse\ntrue\ntrue\n", walker.out);
+        assertEquals(walker.out, InProcessRun.vm(source).out);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+class BlockScopeTests {
+
+    private static Stmt.Function function(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(source, reporter, false, false, false);
+        compilation.run();
+        assertFalse(reporter.hadError, reporter.errors().toString());
+        return (Stmt.Function)compilation.statements.get(0);
+    }
+
+    @Test
+    void blockLocalsShareTheFunctionFrame() {
+        Stmt.Function function = function("fun f(a) {\n"
+                + "  { var b = 1; }\n"
+                + "  { var c = 2; var d = 3; }\n"
+                + "  for (var i = 0; i < 2; i = i + 1) { var e = i; }\n"
+                + "}\n");
+
+        assertEquals(3, function.slotCount);
+    }
+
+    @Test
+    void reusedSlotsDoNotLeakEarlierValues() {
+        InProcessRun run = InProcessRun.walker("fun f() {\n"
+                + "  { var x = \"old\"; }\n"
+                + "  { var y; print y; }\n"
+                + "  for (var i = 0; i < 2; i = i + 1) { var z; print z; z = i; }\n"
+                + "}\n"
+                + "f();\n");
+
+        assertEquals("nil\nnil\nnil\n", run.out);
+    }
+
+    @Test
+    void shadowingInNestedBlocksResolvesToTheInnermostSlot() {
+        InProcessRun run = InProcessRun.walker("fun f() {\n"
+                + "  var a = 1;\n"
+                + "  { var a = 2; { var a = 3; print a; } print a; }\n"
+                + "  print a;\n"
+                + "}\n"
+                + "f();\n"
+                + "{ var g = \"block\"; print g; }\n");
+
+        assertEquals("3\n2\n1\nblock\n", run.out);
+    }
+
+    @Test
+    void capturedBlockLocalsGetAFreshCellPerIteration() {
+        InProcessRun run = InProcessRun.walker("var fs = nil;\n"
+                + "var gs = nil;\n"
+                + "for (var i = 0; i < 2; i = i + 1) {\n"
+                + "  var j = i * 10;\n"
+                + "  fun get() { return j; }\n"
+                + "  if (i == 0) fs = get; else gs = get;\n"
+                + "}\n"
+                + "print fs();\n"
+                + "print gs();\n");
+
+        assertEquals("0\n10\n", run.out);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CallProtocolTests {
+
+    private static Object global(Interpreter interpreter, String name) {
+        return interpreter.globals.get(new Token(TokenType.IDENTIFIER, Symbol.intern(name), 1));
+    }
+
+    @Test
+    void fixedArityEntryPointsAgreeWithTheArrayEntryPoint() {
+        Interpreter interpreter = new Interpreter();
+        InProcessRun run = InProcessRun.walker("fun f0() { return \"0\"; }\n"
+                + "fun f1(a) { return a; }\n"
+                + "fun f2(a, b) { return a + b; }\n"
+                + "fun f3(a, b, c) { return a + b + c; }\n"
+                + "fun f4(a, b, c, d) { return a + b + c + d; }\n"
+                + "class P { init(x, y) { this.x = x; this.y = y; } }\n", interpreter);
+        assertEquals("", run.err);
+
+        EzFlowScriptCallable f0 = (EzFlowScriptCallable)global(interpreter, "f0");
+        EzFlowScriptCallable f1 = (EzFlowScriptCallable)global(interpreter, "f1");
+        EzFlowScriptCallable f2 = (EzFlowScriptCallable)global(interpreter, "f2");
+        EzFlowScriptCallable f3 = (EzFlowScriptCallable)global(interpreter, "f3");
+        EzFlowScriptCallable f4 = (EzFlowScriptCallable)global(interpreter, "f4");
+        EzFlowScriptClass point = (EzFlowScriptClass)global(interpreter, "P");
+
+        assertEquals(f0.call(interpreter, new Object[0]), f0.call0(interpreter));
+        assertEquals(f1.call(interpreter, new Object[] {"a"}), f1.call1(interpreter, "a"));
+        assertEquals(f2.call(interpreter, new Object[] {"a", "b"}), f2.call2(interpreter, "a", "b"));
+        assertEquals(f3.call(interpreter, new Object[] {"a", "b", "c"}), f3.call3(interpreter, "a", "b", "c"));
+        assertEquals("abcd", f4.call4(interpreter, "a", "b", "c", "d"));
+        assertEquals(f4.call(interpreter, new Object[] {"a", "b", "c", "d"}), f4.call4(interpreter, "a", "b", "c", "d"));
+        EzFlowScriptInstance instance = (EzFlowScriptInstance)point.call2(interpreter, 1.0, 2.0);
+        assertEquals(2.0, instance.values[instance.shape.indexOf(Symbol.intern("y"))]);
+    }
+
+    @Test
+    void nativesAnswerOnTheirFixedEntryPoint() {
+        Interpreter interpreter = new Interpreter();
+        EzFlowScriptCallable clock = (EzFlowScriptCallable)global(interpreter, "clock");
+
+        assertEquals(0, clock.arity());
+        assertTrue(clock.call0(interpreter) instanceof Double);
+    }
+
+    @Test
+    void arrayOnlyCallablesStillWorkThroughTheDefaults() {
+        EzFlowScriptCallable collect = new EzFlowScriptCallable() {
+            public int arity() {
+                return 3;
+            }
+
+            public Object call(Interpreter interpreter, Object[] arguments) {
+                return arguments;
+            }
+        };
+
+        assertArrayEquals(new Object[0], (Object[])collect.call0(null));
+        assertArrayEquals(new Object[] {1.0, 2.0, 3.0}, (Object[])collect.call3(null, 1.0, 2.0, 3.0));
+        assertArrayEquals(new Object[] {1.0, 2.0, 3.0, 4.0}, (Object[])collect.call4(null, 1.0, 2.0, 3.0, 4.0));
+    }
+
+    @Test
+    void everyArityChecksItsArguments() {
+        for (int params = 0; params <= 5; params++) {
+            StringBuilder source = new StringBuilder("fun f(");
+            for (int i = 0; i < params; i++) {
+                source.append(i == 0 ? "" : ", ").append("p").append(i);
+            }
+            source.append(") { return ").append(params).append("; }\nprint f(");
+            for (int i = 0; i <= params; i++) {
+                source.append(i == 0 ? "" : ", ").append(i);
+            }
+            source.append(");\n");
+
+            InProcessRun run = InProcessRun.walker(source.toString());
+            assertEquals("", run.out);
+            assertEquals("Expected " + params + " arguments but got " + (params + 1) + ".\n[line 2]\n", run.err);
+        }
+    }
+
+    @Test
+    void wideCallsUseTheArrayEntryPoint() {
+        InProcessRun run = InProcessRun.walker("fun f(a, b, c, d, e, f) { return a + b + c + d + e + f; }\n"
+                + "class Six { init(a, b, c, d, e, f) { this.sum = a + b + c + d + e + f; } }\n"
+                + "print f(1, 2, 3, 4, 5, 6);\n"
+                + "print Six(1, 1, 1, 1, 1, 1).sum;\n");
+
+        assertEquals("21\n6\n", run.out);
+    }
+}
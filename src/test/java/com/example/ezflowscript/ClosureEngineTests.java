@@ -0,0 +1,70 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ClosureEngineTests {
+
+    private static void assertSameAsWalker(String source, String expected) {
+        Interpreter closures = new Interpreter();
+        closures.enableClosures();
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun compiled = InProcessRun.walker(source, closures);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, compiled.out);
+        assertEquals(walker.err, compiled.err);
+    }
+
+    @Test
+    void localsGlobalsAndOperators() {
+        assertSameAsWalker("var g = 2;\n"
+                + "fun f(a) { var b = a * g; { var c = b - 1; b = c / 2; } return b; }\n"
+                + "print f(5);\n"
+                + "print -f(1) <= 0;\n"
+                + "g = \"x\";\n"
+                + "print g + \"y\";\n"
+                + "print !nil and 1 or 2;\n", "4.5\ntrue\nxy\n1\n");
+    }
+
+    @Test
+    void upvaluesAreSharedBetweenClosures() {
+        assertSameAsWalker("fun pair() {\n"
+                + "  var n = 0;\n"
+                + "  fun inc() { n = n + 1; return n; }\n"
+                + "  fun get() { return n; }\n"
+                + "  inc(); inc();\n"
+                + "  return get;\n"
+                + "}\n"
+                + "print pair()();\n", "2\n");
+    }
+
+    @Test
+    void classesInheritanceAndSuper() {
+        assertSameAsWalker("class A { init(v) { this.v = v; } show() { return \"A\" + this.v; } }\n"
+                + "class B < A { init(v) { super.init(v + \"!\"); } show() { return \"B\" + super.show(); } }\n"
+                + "var b = B(\"x\");\n"
+                + "var m = b.show;\n"
+                + "print m();\n"
+                + "print b.v;\n", "BAx!\nx!\n");
+    }
+
+    @Test
+    void loopsAndTailCalls() {
+        assertSameAsWalker("fun count(n, acc) { if (n == 0) return acc; return count(n - 1, acc + 1); }\n"
+                + "var total = 0;\n"
+                + "for (var i = 0; i < 100; i = i + 1) total = total + i;\n"
+                + "print total;\n"
+                + "print count(50000, 0);\n", "4950\n50000\n");
+    }
+
+    @Test
+    void runtimeErrorsReportTheSameLine() {
+        assertSameAsWalker("fun f(a) {\n"
+                + "  return a - 1;\n"
+                + "}\n"
+                + "print f(1);\n"
+                + "print f(\"s\");\n", "0\n");
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ezflowscript;
+
+import org.springframework.boot.SpringBootConfiguration;
+
+@SpringBootConfiguration
+class EzFlowScriptTestConfiguration {
+}
@@ -0,0 +1,63 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FramePoolTests {
+
+    @Test
+    void returningCallLeavesItsFrameForTheNextOne() {
+        Compilation compilation = new Compilation("fun f(a) { var b = a * 2; return b; }\n", new ErrorReporter(System.err), false, true, false);
+        compilation.run();
+        Interpreter interpreter = new Interpreter();
+        Stmt.Function declaration = (Stmt.Function)compilation.statements.get(0);
+        EzFlowScriptFunction function = new EzFlowScriptFunction(declaration, (Cell[])null, false);
+
+        assertNull(declaration.spare);
+        assertEquals(6.0, function.call1(interpreter, 3.0));
+        Environment spare = declaration.spare;
+        assertNotNull(spare);
+        assertNull(spare.get(0));
+        assertNull(spare.get(1));
+
+        assertEquals(8.0, function.call(interpreter, new Object[] {4.0}));
+        assertSame(spare, declaration.spare);
+    }
+
+    @Test
+    void reusedFramesStartEmpty() {
+        InProcessRun run = InProcessRun.walker("fun f(set) { var x; if (set) x = 1; print x; }\n"
+                + "f(true);\n"
+                + "f(false);\n");
+
+        assertEquals("1\nnil\n", run.out);
+    }
+
+    @Test
+    void closuresOutliveTheFrameTheyWereCreatedIn() {
+        InProcessRun run = InProcessRun.walker("fun make(n) { var m = n * 10; fun get() { return n + m; } return get; }\n"
+                + "var a = make(1);\n"
+                + "var b = make(2);\n"
+                + "print a();\n"
+                + "print b();\n");
+
+        assertEquals("11\n22\n", run.out);
+    }
+
+    @Test
+    void recursionAndTailCallsDoNotShareLiveFrames() {
+        List<String> lines = List.of(
+                "fun fib(n) { if (n < 2) return n; var a = fib(n - 1); var b = fib(n - 2); return a + b; }",
+                "fun loop(n, acc) { var next = acc + n; if (n == 0) return acc; return loop(n - 1, next); }",
+                "print fib(15);",
+                "print loop(100, 0);");
+        InProcessRun run = InProcessRun.walker(String.join("\n", lines) + "\n");
+
+        assertEquals("610\n5050\n", run.out);
+    }
+}
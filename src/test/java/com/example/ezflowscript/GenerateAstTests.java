@@ -0,0 +1,24 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.ezflowscript.tool.GenerateAst;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GenerateAstTests {
+    private static final Path SOURCES = Path.of("src", "main", "java", "com", "example", "ezflowscript");
+
+    @Test
+    void checkedInTreesMatchTheGenerator(@TempDir Path directory) throws IOException {
+        GenerateAst.main(new String[] {directory.toString()});
+
+        for (String name : new String[] {"Expr.java", "Stmt.java"}) {
+            assertEquals(Files.readString(directory.resolve(name)), Files.readString(SOURCES.resolve(name)),
+                    name + " was edited by hand; change GenerateAst and regenerate instead");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class GlobalTableTests {
+
+    private static Token name(String lexeme) {
+        return new Token(TokenType.IDENTIFIER, Symbol.intern(lexeme), 1);
+    }
+
+    private static void assertSameAsVM(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void redefiningAGlobalKeepsItsCell() {
+        Environment globals = new Environment();
+        Expr.Variable reference = new Expr.Variable(name("redefined"));
+        globals.define(Symbol.intern("redefined"), 1.0);
+        Cell cell = globals.cell(reference, reference.name);
+        globals.define(Symbol.intern("redefined"), 2.0);
+
+        assertSame(cell, reference.global);
+        assertSame(cell, globals.cell(new Expr.Variable(name("redefined")), name("redefined")));
+        assertEquals(2.0, globals.get(reference.name));
+    }
+
+    @Test
+    void theTableGrowsPastItsInitialSize() {
+        Environment globals = new Environment();
+        for (int i = 0; i < 200; i++) {
+            globals.define(Symbol.intern("grow" + i), (double)i);
+        }
+
+        assertEquals(0.0, globals.get(name("grow0")));
+        assertEquals(199.0, globals.get(name("grow199")));
+    }
+
+    @Test
+    void failedLookupsCacheNothing() {
+        Environment globals = new Environment();
+        Expr.Variable reference = new Expr.Variable(name("later"));
+
+        assertThrows(RuntimeError.class, () -> globals.cell(reference, reference.name));
+        assertNull(reference.global);
+        globals.define(Symbol.intern("later"), "now");
+        assertEquals("now", globals.cell(reference, reference.name).value);
+    }
+
+    @Test
+    void runningCodeCachesTheCellOnTheReference() {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation("var answer = 42;\nanswer = answer + 1;\n", reporter, false, true, false);
+        compilation.run();
+        assertFalse(reporter.hadError, reporter.errors().toString());
+        Interpreter interpreter = new Interpreter();
+        interpreter.interpret(compilation.statements, compilation.slotCount);
+
+        List<Stmt> statements = compilation.statements;
+        Expr.Assign assign = (Expr.Assign)((Stmt.Expression)statements.get(1)).expression;
+        Expr.Variable read = (Expr.Variable)((Expr.Binary)assign.value).left;
+        assertNotNull(assign.global);
+        assertSame(assign.global, read.global);
+        assertEquals(43.0, assign.global.value);
+    }
+
+    @Test
+    void undefinedGlobalsAreRuntimeErrors() {
+        assertSameAsVM("print 1;\nprint missing;\n", "1\n");
+        assertEquals("Undefined variable 'missing'.\n[line 2]\n", InProcessRun.walker("print 1;\nprint missing;\n").err);
+        assertSameAsVM("missing = 1;\n", "");
+        assertEquals("Undefined variable 'missing'.\n[line 1]\n", InProcessRun.walker("missing = 1;\n").err);
+    }
+
+    @Test
+    void functionsSeeGlobalsDefinedAfterThem() {
+        assertSameAsVM("fun show() { return later; }\n"
+                + "var later = \"first\";\n"
+                + "print show();\n"
+                + "var later = \"second\";\n"
+                + "print show();\n"
+                + "later = \"third\";\n"
+                + "print show();\n", "first\nsecond\nthird\n");
+    }
+
+    @Test
+    void recursiveTopLevelFunctions() {
+        assertSameAsVM("fun even(n) { if (n == 0) return true; return odd(n - 1); }\n"
+                + "fun odd(n) { if (n == 0) return false; return even(n - 1); }\n"
+                + "fun fact(n) { if (n < 2) return 1; return n * fact(n - 1); }\n"
+                + "print even(10);\n"
+                + "print odd(7);\n"
+                + "print fact(10);\n", "true\ntrue\n3628800\n");
+    }
+}
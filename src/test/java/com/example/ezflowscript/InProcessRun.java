@@ -0,0 +1,62 @@
+package com.example.ezflowscript;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+final class InProcessRun {
+    final String out;
+    final String err;
+
+    private InProcessRun(String out, String err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    static InProcessRun walker(String source) {
+        return walker(source, new Interpreter());
+    }
+
+    static InProcessRun walker(String source, Interpreter interpreter) {
+        return capture(() -> {
+            ErrorReporter reporter = new ErrorReporter(System.err);
+            Compilation compilation = new Compilation(source, reporter, false, true, false);
+            compilation.run();
+            if (!reporter.hadError) {
+                interpreter.interpret(compilation.statements, compilation.slotCount);
+            }
+        });
+    }
+
+    static InProcessRun vm(String source) {
+        return capture(() -> {
+            VM vm = new VM();
+            ErrorReporter reporter = new ErrorReporter(System.err);
+            Compilation compilation = new Compilation(source, reporter, false, false, false);
+            compilation.run();
+            if (!reporter.hadError) {
+                VMFunction function = new Compiler(vm, reporter).compile(compilation.statements);
+                if (!reporter.hadError) {
+                    vm.interpret(function);
+                }
+            }
+        });
+    }
+
+    private static synchronized InProcessRun capture(Runnable body) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream capturedOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream capturedErr = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(capturedOut, true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(capturedErr, true, StandardCharsets.UTF_8));
+            body.run();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return new InProcessRun(capturedOut.toString(StandardCharsets.UTF_8),
+                capturedErr.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class InlineCacheTests {
+    private static final Token X = new Token(TokenType.IDENTIFIER, Symbol.intern("x"), 1);
+    private static final Token Y = new Token(TokenType.IDENTIFIER, Symbol.intern("y"), 1);
+    private static final Token RUN = new Token(TokenType.IDENTIFIER, Symbol.intern("run"), 1);
+
+    private static EzFlowScriptClass klass(String name) {
+        return new EzFlowScriptClass(name, null, new HashMap<>());
+    }
+
+    private static EzFlowScriptFunction method(String source) {
+        Compilation compilation = new Compilation(source, new ErrorReporter(), false, false, false);
+        compilation.run();
+        return new EzFlowScriptFunction((Stmt.Function)compilation.statements.get(0), (Cell[])null, false);
+    }
+
+    @Test
+    void setSitesReplayCachedTransitions() {
+        EzFlowScriptClass point = klass("Point");
+        InlineCache setX = new InlineCache();
+        InlineCache setY = new InlineCache();
+        InlineCache getY = new InlineCache();
+        EzFlowScriptInstance first = new EzFlowScriptInstance(point);
+        EzFlowScriptInstance second = new EzFlowScriptInstance(point);
+
+        setX.set(first, X, 1.0);
+        setY.set(first, Y, 2.0);
+        setX.set(second, X, 3.0);
+        setY.set(second, Y, 4.0);
+
+        assertSame(first.shape, second.shape);
+        assertEquals(2.0, getY.get(first, Y));
+        assertEquals(4.0, getY.get(second, Y));
+        assertEquals(4.0, second.get(Y));
+    }
+
+    @Test
+    void methodSitesResolveInheritedMethodsAndFieldsShadowThem() {
+        EzFlowScriptFunction run = method("fun run() { return 1; }");
+        Map<Symbol, EzFlowScriptFunction> methods = new HashMap<>();
+        methods.put(RUN.symbol, run);
+        EzFlowScriptClass base = new EzFlowScriptClass("Base", null, methods);
+        EzFlowScriptClass derived = new EzFlowScriptClass("Derived", base, new HashMap<>());
+        InlineCache site = new InlineCache();
+        EzFlowScriptInstance plain = new EzFlowScriptInstance(derived);
+        EzFlowScriptInstance shadowed = new EzFlowScriptInstance(derived);
+        shadowed.set(RUN, "field");
+
+        assertSame(run, site.method(plain, RUN));
+        assertSame(run, site.method(plain, RUN));
+        assertNull(site.method(shadowed, RUN));
+        assertEquals("field", site.get(shadowed, RUN));
+    }
+
+    @Test
+    void megamorphicSitesStayCorrect() {
+        InlineCache get = new InlineCache();
+        InlineCache set = new InlineCache();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 6; i++) {
+                EzFlowScriptInstance instance = new EzFlowScriptInstance(klass("K" + i));
+                set.set(instance, X, (double)i);
+                assertEquals((double)i, get.get(instance, X));
+            }
+        }
+    }
+
+    @Test
+    void missingPropertiesKeepTheirError() {
+        InlineCache site = new InlineCache();
+        EzFlowScriptInstance instance = new EzFlowScriptInstance(klass("Empty"));
+
+        RuntimeError error = assertThrows(RuntimeError.class, () -> site.get(instance, Y));
+        assertEquals("Undefined property 'y'.", error.getMessage());
+        assertSame(Y, error.token);
+    }
+
+    @Test
+    void polymorphicScriptSitesMatchTheVM() {
+        String source = "class A { init() { this.v = 1; } get() { return this.v; } }\n"
+                + "class B < A { init() { this.w = 0; this.v = 2; } }\n"
+                + "class C { init() { this.v = 3; } get() { return this.v * 10; } }\n"
+                + "var all = 0;\n"
+                + "var a = A(); var b = B(); var c = C();\n"
+                + "for (var i = 0; i < 4; i = i + 1) {\n"
+                + "  all = all + a.get() + b.get() + c.get() + a.v + b.v + c.v;\n"
+                + "}\n"
+                + "b.get = 7;\n"
+                + "print all;\n"
+                + "print b.get;\n";
+        InProcessRun walker = InProcessRun.walker(source);
+
+        assertEquals("156\n7\n", walker.out);
+        assertEquals(walker.out, InProcessRun.vm(source).out);
+    }
+}
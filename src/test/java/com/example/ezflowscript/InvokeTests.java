@@ -0,0 +1,83 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InvokeTests {
+
+    private static Expr.Call call(String source) {
+        Compilation compilation = new Compilation(source, new ErrorReporter(), false, false, false);
+        compilation.run();
+        Stmt statement = compilation.statements.get(compilation.statements.size() - 1);
+        return (Expr.Call)((Stmt.Expression)statement).expression;
+    }
+
+    private static void assertSameAsVM(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void propertyAndSuperCallsAreMarkedAsInvokes() {
+        assertTrue(call("var o; o.m(1);").invoke);
+        assertTrue(call("class A { m() {} } class B < A { m() { super.m(); } } B().m();").invoke);
+        assertFalse(call("fun f() {} f();").invoke);
+        assertFalse(call("var o; (o.m)();").invoke);
+    }
+
+    @Test
+    void invokedMethodsReceiveTheirInstance() {
+        assertSameAsVM("class Counter {\n"
+                + "  init() { this.n = 0; }\n"
+                + "  add(d) { this.n = this.n + d; return this; }\n"
+                + "}\n"
+                + "var c = Counter();\n"
+                + "c.add(1).add(2).add(3);\n"
+                + "print c.n;\n", "6\n");
+    }
+
+    @Test
+    void methodsReadAsValuesStayBound() {
+        assertSameAsVM("class Box { init(v) { this.v = v; } get() { return this.v; } }\n"
+                + "var a = Box(1);\n"
+                + "var getter = a.get;\n"
+                + "a.v = 5;\n"
+                + "print getter();\n"
+                + "print (Box(2).get)();\n", "5\n2\n");
+    }
+
+    @Test
+    void fieldsHoldingFunctionsAreCalledWithoutAReceiver() {
+        assertSameAsVM("fun twice(x) { return x * 2; }\n"
+                + "class Holder { m() { return \"method\"; } }\n"
+                + "var h = Holder();\n"
+                + "h.f = twice;\n"
+                + "print h.f(21);\n"
+                + "h.m = twice;\n"
+                + "print h.m(4);\n", "42\n8\n");
+    }
+
+    @Test
+    void superInvokesDispatchStatically() {
+        assertSameAsVM("class A { name() { return \"A\"; } who() { return this.name(); } }\n"
+                + "class B < A { name() { return \"B\"; } who() { return super.who() + super.name(); } }\n"
+                + "print B().who();\n", "BA\n");
+    }
+
+    @Test
+    void invokeErrorsMatchTheGetPath() {
+        assertSameAsVM("var s = \"text\";\n"
+                + "s.length();\n", "");
+        assertEquals("Only instances have properties.\n[line 2]\n", InProcessRun.walker("var s = \"text\";\n"
+                + "s.length();\n").err);
+        assertSameAsVM("class E {}\n"
+                + "E().missing(1);\n", "");
+    }
+}
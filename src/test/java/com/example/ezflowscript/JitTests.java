@@ -0,0 +1,78 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class JitTests {
+
+    private static void assertSameAsWalker(String source, String expected) {
+        Interpreter jit = new Interpreter();
+        jit.enableJit(0);
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun compiled = InProcessRun.walker(source, jit);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, compiled.out);
+        assertEquals(walker.err, compiled.err);
+    }
+
+    @Test
+    void compiledFunctionsCallEachOtherDirectly() {
+        assertSameAsWalker("fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                + "fun five(a, b, c, d, e) { return a + b * c - d / e; }\n"
+                + "print fib(20);\n"
+                + "print five(1, 2, 3, 4, 8);\n", "6765\n6.5\n");
+    }
+
+    @Test
+    void capturedParametersStayInCells() {
+        assertSameAsWalker("fun counter(n) { fun next() { n = n + 1; return n; } return next; }\n"
+                + "fun run(n) { var next = counter(n); next(); return next(); }\n"
+                + "print run(1);\n"
+                + "print run(40);\n", "3\n42\n");
+    }
+
+    @Test
+    void methodsReceiveTheirInstance() {
+        assertSameAsWalker("class Acc { init(n) { this.n = n; } add(d) { this.n = this.n + d; return this; } }\n"
+                + "fun sum(acc, k) { for (var i = 0; i < k; i = i + 1) acc.add(i); return acc.n; }\n"
+                + "var bound = Acc(0).add;\n"
+                + "fun viaBound(k) { return bound(k).n; }\n"
+                + "print sum(Acc(1), 10);\n"
+                + "print viaBound(5);\n", "46\n5\n");
+    }
+
+    @Test
+    void tailCallsFromCompiledCodeComplete() {
+        assertSameAsWalker("fun down(n, acc) { if (n == 0) return acc; return down(n - 1, acc + 1); }\n"
+                + "fun start(n) { return down(n, 0) + 1; }\n"
+                + "print start(100000);\n", "100001\n");
+    }
+
+    @Test
+    void errorsFromDirectCallsKeepTheirLines() {
+        assertSameAsWalker("fun add(a, b) { return a + b; }\n"
+                + "fun go(x) { return add(x, 1); }\n"
+                + "print go(1);\n"
+                + "print go(\"s\");\n", "2\n");
+        assertSameAsWalker("fun one(a) { return a; }\n"
+                + "fun go() { return one(1, 2); }\n"
+                + "print go();\n", "");
+    }
+
+    @Test
+    void wholeFunctionsGetDirectEntryPoints() {
+        Compilation compilation = new Compilation("fun f(a) { return a + 1; }\n", new ErrorReporter(System.err), false, true, false);
+        compilation.run();
+        Interpreter interpreter = new Interpreter();
+        Stmt.Function function = (Stmt.Function)compilation.statements.get(0);
+
+        CompiledFunction compiled = new JitCompiler().compile(function);
+        assertTrue(compiled.direct);
+        assertEquals(3.0, compiled.call(interpreter, null, 2.0));
+        assertFalse(new ClosureCompiler(interpreter, false).compile(function).direct);
+    }
+}
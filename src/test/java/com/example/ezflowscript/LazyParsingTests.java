@@ -0,0 +1,109 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LazyParsingTests {
+
+    private static final String BROKEN_LIBRARY =
+            "fun ok(a) { return a + 1; }\n"
+                    + "fun bad() {\n"
+                    + "  var q = 1;\n"
+                    + "  var q = 2;\n"
+                    + "}\n";
+
+    @Test
+    void uncalledBrokenFunctionDoesNotStopTheScript() throws Exception {
+        ScriptRun run = ScriptRun.run(BROKEN_LIBRARY + "print ok(1);\n", "--lazy");
+
+        assertEquals("", run.err);
+        assertEquals("2\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+    @Test
+    void brokenFunctionReportsOnFirstCall() throws Exception {
+        ScriptRun run = ScriptRun.run(BROKEN_LIBRARY + "print ok(1);\nbad();\nprint \"after\";\n", "--lazy");
+
+        assertEquals("2\n", run.out);
+        assertEquals("[line 4] Error at 'q': Already a variable with this name in this scope.\n"
+                + "Function 'bad' has compile errors.\n"
+                + "[line 7]\n", run.err);
+        assertEquals(65, run.exitCode);
+    }
+
+    @Test
+    void validateReportsSkippedBodiesBeforeRunning() throws Exception {
+        ScriptRun run = ScriptRun.run(BROKEN_LIBRARY + "print ok(1);\n", "--validate");
+
+        assertEquals("", run.out);
+        assertEquals("[line 4] Error at 'q': Already a variable with this name in this scope.\n", run.err);
+        assertEquals(65, run.exitCode);
+    }
+
+    @Test
+    void validatorInstallsTheBodiesItCompiles() {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(BROKEN_LIBRARY, reporter, true, true, false);
+        compilation.run();
+        Stmt.Function ok = (Stmt.Function)compilation.statements.get(0);
+        Stmt.Function bad = (Stmt.Function)compilation.statements.get(1);
+
+        assertNull(ok.body);
+        assertNull(bad.body);
+
+        Validator.start(compilation.statements).report(reporter);
+
+        assertNotNull(ok.body);
+        assertFalse(ok.invalid);
+        assertNull(bad.body);
+        assertTrue(bad.invalid);
+        assertEquals(1, reporter.errors().size());
+    }
+
+    @Test
+    void validateReportsErrorsInSourceOrder() throws Exception {
+        String source = "fun a() { var x = 1; var x = 2; }\n"
+                + "print \"side\";\n"
+                + "return 1;\n"
+                + "var y = 1;\n"
+                + "{ var z = z; }\n"
+                + "print \"side2\";\n"
+                + "fun b() { return this; }\n";
+
+        ScriptRun eager = ScriptRun.run(source);
+        ScriptRun validated = ScriptRun.run(source, "--validate");
+
+        assertEquals("", validated.out);
+        assertEquals("[line 1] Error at 'x': Already a variable with this name in this scope.\n"
+                + "[line 3] Error at 'return': Can't return from top-level code.\n"
+                + "[line 5] Error at 'z': Can't read local variable in its own initializer.\n"
+                + "[line 7] Error at 'this': Can't use 'this' outside of a class\n", validated.err);
+        assertEquals(eager.err, validated.err);
+        assertEquals(65, validated.exitCode);
+    }
+
+    @Test
+    void lazyFunctionsRunLikeEagerOnes() throws Exception {
+        String source = "fun counter() { var n = 0; fun next() { n = n + 1; return n; } return next; }\n"
+                + "fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                + "var c = counter();\n"
+                + "c();\n"
+                + "print c();\n"
+                + "print fib(15);\n";
+
+        ScriptRun eager = ScriptRun.run(source);
+        ScriptRun lazy = ScriptRun.run(source, "--lazy");
+
+        assertEquals("2\n610\n", eager.out);
+        assertEquals(eager.out, lazy.out);
+        assertEquals("", lazy.err);
+        assertEquals(0, lazy.exitCode);
+    }
+
+}
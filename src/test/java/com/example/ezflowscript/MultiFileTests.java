@@ -0,0 +1,107 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MultiFileTests {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, String source) throws Exception {
+        Path path = dir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    void compilationsRunConcurrentlyWithSeparateReporters() throws Exception {
+        Path good = write("good.ezf", "fun f(n) { return n * 2; }\nprint f(21);\n");
+        Path bad = write("bad.ezf", "var a = 1;\n{ var b = 1; var b = 2; }\n");
+
+        Compilation[] compilations = {
+                new Compilation(good, new ErrorReporter(), false, true, false),
+                new Compilation(bad, new ErrorReporter(), false, true, false)
+        };
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[compilations.length];
+        for (int i = 0; i < compilations.length; i++) {
+            tasks[i] = ForkJoinPool.commonPool().submit(compilations[i]);
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        assertFalse(compilations[0].reporter.hadError);
+        assertEquals(2, compilations[0].statements.size());
+        assertTrue(compilations[1].reporter.hadError);
+        assertEquals(List.of("[line 2] Error at 'b': Already a variable with this name in this scope."),
+                compilations[1].reporter.errors());
+    }
+
+    @Test
+    void unreadableFileIsReportedOnItsCompilation() {
+        Compilation compilation = new Compilation(dir.resolve("missing.ezf"), new ErrorReporter(), false, true, false);
+        compilation.run();
+
+        assertTrue(compilation.reporter.hadError);
+        assertEquals(1, compilation.reporter.errors().size());
+    }
+
+    @Test
+    void directoryReportsEachFileAndASummary() throws Exception {
+        Path a = write("a.ezf", "print 1;\n");
+        Path b = write("sub/b.ezf", "print this;\n");
+        Path c = write("sub/c.ezf", "return 1;\nprint this;\n");
+        write("notes.txt", "not a script");
+
+        ScriptRun run = ScriptRun.exec(List.of(dir.toString()));
+
+        assertEquals("", run.out);
+        assertEquals(a + ": ok\n"
+                + b + ": [line 1] Error at 'this': Can't use 'this' outside of a class\n"
+                + b + ": failed (1 error)\n"
+                + c + ": [line 1] Error at 'return': Can't return from top-level code.\n"
+                + c + ": [line 2] Error at 'this': Can't use 'this' outside of a class\n"
+                + c + ": failed (2 errors)\n"
+                + "3 errors in 2 of 3 files.\n", run.err);
+        assertEquals(65, run.exitCode);
+    }
+
+    @Test
+    void runExecutesFilesInOrderAfterTheyAllCompile() throws Exception {
+        Path a = write("a.ezf", "print \"a\";\n");
+        Path b = write("b.ezf", "print \"b\";\n");
+
+        ScriptRun run = ScriptRun.exec(List.of("--run", b.toString(), a.toString()));
+
+        assertEquals("b\na\n", run.out);
+        assertEquals(b + ": ok\n" + a + ": ok\n", run.err);
+        assertEquals(0, run.exitCode);
+    }
+
+    @Test
+    void lazyFirstCallErrorKeepsThePathPrefix() throws Exception {
+        Path a = write("a.ezf", "fun bad() {\n  var q = 1;\n  var q = 2;\n}\nbad();\n");
+
+        ScriptRun run = ScriptRun.exec(List.of("--lazy", "--run", a.toString(), a.toString()));
+
+        assertEquals(a + ": ok\n"
+                + a + ": ok\n"
+                + a + ": [line 3] Error at 'q': Already a variable with this name in this scope.\n"
+                + "Function 'bad' has compile errors.\n"
+                + "[line 5]\n", run.err);
+        assertEquals(65, run.exitCode);
+    }
+}
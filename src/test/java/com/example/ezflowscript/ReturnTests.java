@@ -0,0 +1,67 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ReturnTests {
+
+    private static void assertSameAsVM(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void returnIsNotAnException() {
+        assertThrows(ClassNotFoundException.class, () -> Class.forName("com.example.ezflowscript.Return"));
+    }
+
+    @Test
+    void returnsLeaveNestedLoopsAndBlocks() {
+        assertSameAsVM("fun find(limit) {\n"
+                + "  for (var i = 0; i < limit; i = i + 1) {\n"
+                + "    var j = 0;\n"
+                + "    while (j <= i) {\n"
+                + "      { if (i * j == 12) return i * 100 + j; }\n"
+                + "      j = j + 1;\n"
+                + "    }\n"
+                + "  }\n"
+                + "  return -1;\n"
+                + "}\n"
+                + "print find(10);\n"
+                + "print find(3);\n", "403\n-1\n");
+    }
+
+    @Test
+    void returnValuesDoNotLeakIntoLaterCalls() {
+        assertSameAsVM("fun value() { return 42; }\n"
+                + "fun nothing() { if (false) return 1; }\n"
+                + "fun bare() { return; }\n"
+                + "print value();\n"
+                + "print nothing();\n"
+                + "print bare();\n"
+                + "class A { init() { this.x = value(); return; } }\n"
+                + "print A().x;\n", "42\nnil\nnil\n42\n");
+    }
+
+    @Test
+    void deepRecursionReturnsThroughEveryFrame() {
+        assertSameAsVM("fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                + "fun count(n) { if (n == 0) return 0; var r = count(n - 1); return r + 1; }\n"
+                + "print fib(18);\n"
+                + "print count(500);\n", "2584\n500\n");
+    }
+
+    @Test
+    void returnOutsideAFunctionIsStillAnError() {
+        InProcessRun run = InProcessRun.walker("return 1;\n");
+
+        assertEquals("", run.out);
+        assertEquals("[line 1] Error at 'return': Can't return from top-level code.\n", run.err);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RopeTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit-threshold=1"})
+    void concatenatedStringsCompareEqualToLiterals(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "var s = \"\";\n"
+                        + "for (var i = 0; i < 3; i = i + 1) { s = s + \"ab\"; }\n"
+                        + "print s == \"ababab\";\n"
+                        + "print \"ababab\" == s;\n"
+                        + "print s != \"abab\";\n"
+                        + "var t = \"ab\" + \"ab\";\n"
+                        + "print s == t + \"ab\";\n"
+                        + "print s == 6;\n"
+                        + "print (s + \"c\") == \"abababc\";\n",
+                engine);
+
+        assertEquals("", run.err);
+        assertEquals("true\ntrue\ntrue\ntrue\nfalse\ntrue\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit-threshold=1"})
+    void deepRopesCompareAndPrintFlattened(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "var big = \"\";\n"
+                        + "for (var i = 0; i < 100000; i = i + 1) { big = big + \"x\"; }\n"
+                        + "var again = \"\";\n"
+                        + "for (var i = 0; i < 100000; i = i + 1) { again = again + \"x\"; }\n"
+                        + "print big == again;\n"
+                        + "print big == again + \"y\";\n"
+                        + "print big;\n",
+                engine);
+
+        StringBuilder expected = new StringBuilder("true\nfalse\n");
+        for (int i = 0; i < 100000; i++) {
+            expected.append('x');
+        }
+        expected.append('\n');
+
+        assertEquals("", run.err);
+        assertEquals(expected.toString(), run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit-threshold=1"})
+    void printedRopesMatchPrintedStrings(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "var s = \"line\";\n"
+                        + "s = s + \" of \" + \"report\";\n"
+                        + "print s;\n"
+                        + "print \"line of report\";\n"
+                        + "class Box { init(v) { this.v = v; } }\n"
+                        + "print Box(s + \"!\").v;\n",
+                engine);
+
+        assertEquals("", run.err);
+        assertEquals("line of report\nline of report\nline of report!\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+}
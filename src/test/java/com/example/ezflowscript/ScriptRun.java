@@ -0,0 +1,63 @@
+package com.example.ezflowscript;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+final class ScriptRun {
+    final int exitCode;
+    final String out;
+    final String err;
+
+    private ScriptRun(int exitCode, String out, String err) {
+        this.exitCode = exitCode;
+        this.out = out;
+        this.err = err;
+    }
+
+    static ScriptRun run(String source, String... flags) throws IOException, InterruptedException {
+        Path script = Files.createTempFile("ezflowscript", ".ezf");
+        try {
+            Files.write(script, source.getBytes(StandardCharsets.UTF_8));
+            List<String> arguments = new ArrayList<>();
+            for (String flag : flags) {
+                if (!flag.isEmpty()) {
+                    arguments.add(flag);
+                }
+            }
+            arguments.add(script.toString());
+            return exec(arguments);
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    static ScriptRun exec(List<String> arguments) throws IOException, InterruptedException {
+        Path out = Files.createTempFile("ezflowscript", ".out");
+        Path err = Files.createTempFile("ezflowscript", ".err");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(EzFlowScriptApplication.class.getName());
+            command.addAll(arguments);
+
+            Process process = new ProcessBuilder(command)
+                    .redirectOutput(out.toFile())
+                    .redirectError(err.toFile())
+                    .start();
+            int exitCode = process.waitFor();
+            return new ScriptRun(exitCode,
+                    new String(Files.readAllBytes(out), StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(err), StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(out);
+            Files.deleteIfExists(err);
+        }
+    }
+}
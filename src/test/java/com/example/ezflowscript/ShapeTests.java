@@ -0,0 +1,79 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ShapeTests {
+    private static final Symbol X = Symbol.intern("x");
+    private static final Symbol Y = Symbol.intern("y");
+    private static final Symbol Z = Symbol.intern("z");
+
+    @Test
+    void fieldsResolveThroughTheParentChain() {
+        Shape root = new Shape();
+        Shape xy = root.withField(X).withField(Y);
+
+        assertEquals(2, xy.size);
+        assertEquals(0, xy.indexOf(X));
+        assertEquals(1, xy.indexOf(Y));
+        assertEquals(-1, xy.indexOf(Z));
+        assertEquals(-1, root.indexOf(X));
+        assertSame(root, xy.parent.parent);
+        assertSame(Y, xy.name);
+    }
+
+    @Test
+    void sameFieldOrderSharesOneShape() {
+        Shape root = new Shape();
+
+        assertSame(root.withField(X).withField(Y), root.withField(X).withField(Y));
+        assertNotSame(root.withField(X).withField(Y), root.withField(Y).withField(X));
+        assertEquals(0, root.withField(Y).withField(X).indexOf(Y));
+    }
+
+    @Test
+    void valuesAreSizedFromTheShapesOwnBranch() {
+        Shape root = new Shape();
+        Shape wide = root.withField(X).withField(Y).withField(Z);
+        Shape narrow = root.withField(Y);
+
+        assertEquals(3, root.newValues().length);
+        assertEquals(3, root.withField(X).newValues().length);
+        assertEquals(1, narrow.newValues().length);
+        assertEquals(3, wide.newValues().length);
+    }
+
+    @Test
+    void transitionsGrowToTheTargetCapacity() {
+        Shape root = new Shape();
+        Shape x = root.withField(X);
+        Object[] values = x.newValues();
+        Shape xyz = x.withField(Y).withField(Z);
+
+        assertEquals(1, values.length);
+        Object[] grown = xyz.grow(values);
+        assertEquals(3, grown.length);
+        assertSame(grown, xyz.grow(grown));
+    }
+
+    @Test
+    void instancesKeepFieldsAcrossTransitions() {
+        InProcessRun run = InProcessRun.walker("class P {}\n"
+                + "var a = P(); a.x = 1; a.y = 2; a.z = 3;\n"
+                + "var b = P(); b.y = 20; b.x = 10;\n"
+                + "a.x = a.x + b.x;\n"
+                + "print a.x + a.y + a.z;\n"
+                + "print b.x + b.y;\n");
+
+        assertEquals("16\n30\n", run.out);
+        assertEquals(run.out, InProcessRun.vm("class P {}\n"
+                + "var a = P(); a.x = 1; a.y = 2; a.z = 3;\n"
+                + "var b = P(); b.y = 20; b.x = 10;\n"
+                + "a.x = a.x + b.x;\n"
+                + "print a.x + a.y + a.z;\n"
+                + "print b.x + b.y;\n").out);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SinglePassResolverTests {
+
+    private static final String STATIC_ERRORS =
+            "{ var a = 1; var a = 2; }\n"
+                    + "print this;\n"
+                    + "class A < A {}\n"
+                    + "fun f() { var x = x; }\n"
+                    + "class B { init() { return 1; } }\n"
+                    + "class C { m() { super.x(); } }\n";
+
+    @Test
+    void reportsTheSameErrorsAsTheResolver() throws Exception {
+        ScriptRun run = ScriptRun.run(STATIC_ERRORS, "--single-pass");
+
+        assertEquals("", run.out);
+        assertEquals("[line 1] Error at 'a': Already a variable with this name in this scope.\n"
+                + "[line 2] Error at 'this': Can't use 'this' outside of a class\n"
+                + "[line 3] Error at 'A': A class can't inherit from itself.\n"
+                + "[line 4] Error at 'x': Can't read local variable in its own initializer.\n"
+                + "[line 5] Error at 'return': Can't return a value from an initializer.\n"
+                + "[line 6] Error at 'super': Can't use 'super' in a class with no superclass.\n", run.err);
+        assertEquals(65, run.exitCode);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            STATIC_ERRORS,
+            "return 1;\n",
+            "fun outer() {\n  fun inner() { var y = y; }\n  return this;\n}\n"
+                    + "class K { m() { fun f() { return this; } return super.m; } }\n",
+            "var = 1;\n{ var a = 1; var a = 2; }\nprint 1 +;\n",
+            "class A { init() { return; } }\nfun f(a, a) { }\nvar x = 1;\nvar x = 2;\nprint x;\n"
+                    + "{ fun g() { return; } var g = 1; }\n",
+            "var a = \"global\";\n{\n  fun show() { print a; }\n  show();\n  var a = \"block\";\n  show();\n  print a;\n}\n"
+                    + "class A { m() { return \"A\"; } }\n"
+                    + "class B < A { m() { fun f() { return super.m() + this.n; } return f(); } init() { this.n = \"B\"; } }\n"
+                    + "print B().m();\n"
+                    + "fun mk() { var c = 0; fun inc() { c = c + 1; return c; } return inc; }\n"
+                    + "var i = mk(); i(); print i();\n"})
+    void matchesTwoPassResolution(String source) throws Exception {
+        ScriptRun twoPass = ScriptRun.run(source);
+        ScriptRun singlePass = ScriptRun.run(source, "--single-pass");
+
+        assertEquals(twoPass.out, singlePass.out);
+        assertEquals(twoPass.err, singlePass.err);
+        assertEquals(twoPass.exitCode, singlePass.exitCode);
+    }
+
+    @Test
+    void matchesTwoPassResolutionWithLazyBodies() throws Exception {
+        String source = "fun bad() { var q = 1; var q = 2; }\n"
+                + "fun ok(n) { var m = n * 2; return m; }\n"
+                + "print ok(21);\n"
+                + "{ var z = z; }\n";
+
+        ScriptRun twoPass = ScriptRun.run(source, "--lazy");
+        ScriptRun singlePass = ScriptRun.run(source, "--lazy", "--single-pass");
+
+        assertEquals("[line 4] Error at 'z': Can't read local variable in its own initializer.\n", twoPass.err);
+        assertEquals(twoPass.out, singlePass.out);
+        assertEquals(twoPass.err, singlePass.err);
+        assertEquals(twoPass.exitCode, singlePass.exitCode);
+    }
+
+}
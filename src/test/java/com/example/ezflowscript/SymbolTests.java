@@ -0,0 +1,68 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class SymbolTests {
+
+    @Test
+    void rangesInternToTheSameSymbolAsStrings() {
+        Symbol symbol = Symbol.intern("symbolTestsName");
+
+        assertSame(symbol, Symbol.intern("var symbolTestsName = 1;", 4, 19));
+        assertSame(symbol, Symbol.intern(new StringBuilder("symbolTestsName"), 0, 15));
+        assertNotSame(symbol, Symbol.intern("symbolTestsNam"));
+        assertEquals("symbolTestsName", symbol.name);
+        assertEquals("symbolTestsName".hashCode(), symbol.hashCode());
+    }
+
+    @Test
+    void keywordsAreMarkedOnTheirSymbols() {
+        new Scanner("", new ErrorReporter());
+
+        assertEquals(TokenType.WHILE, Symbol.intern("while").keyword);
+        assertEquals(null, Symbol.intern("whilst").keyword);
+    }
+
+    @Test
+    void concurrentInterningYieldsOneSymbolAndIdPerName() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Symbol[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    Symbol[] symbols = new Symbol[2000];
+                    for (int i = 0; i < symbols.length; i++) {
+                        symbols[i] = Symbol.intern("concurrent" + i);
+                    }
+                    return symbols;
+                }));
+            }
+
+            Symbol[] first = results.get(0).get();
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Symbol[]> result : results) {
+                Symbol[] symbols = result.get();
+                for (int i = 0; i < symbols.length; i++) {
+                    assertSame(first[i], symbols[i]);
+                }
+            }
+            for (Symbol symbol : first) {
+                ids.add(symbol.id);
+            }
+            assertEquals(first.length, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class TaggedNumberTests {
+
+    private static void assertSameAsVM(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void tagsRoundTripEveryDouble() {
+        double[] values = {0.0, -0.0, 1.5, -7.0, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE};
+        for (double value : values) {
+            assertNotEquals(Value.REFERENCE, Value.of(value));
+            assertEquals(Double.valueOf(value), Double.valueOf(Value.number(Value.of(value))));
+        }
+        assertNotEquals(Value.of(0.0), Value.of(-0.0));
+    }
+
+    @Test
+    void frameBoxesATaggedSlotOnceWhenReadAsAnObject() {
+        Environment frame = new Environment(2);
+        assertEquals(Value.REFERENCE, frame.number(0));
+
+        frame.setNumber(0, Value.of(2.5));
+        assertEquals(Value.of(2.5), frame.number(0));
+        assertNull(frame.get(1));
+
+        Object boxed = frame.get(0);
+        assertEquals(2.5, boxed);
+        assertEquals(Value.REFERENCE, frame.number(0));
+        assertSame(boxed, frame.get(0));
+
+        frame.set(0, "s");
+        frame.setNumber(1, Value.of(1.0));
+        assertEquals("s", frame.get(0));
+        assertEquals(Value.REFERENCE, frame.number(0));
+    }
+
+    @Test
+    void numberParametersReceiveTaggedArguments() {
+        assertSameAsVM("fun f(a, b, c) { if (a < 1) return b + c; return f(a - 1, b + 1, c * 1); }\n"
+                + "fun g(x) { return f(x, x / 2, 0.25); }\n"
+                + "print g(10);\n"
+                + "print f(0, 1, -0.5);\n", "15.25\n0.5\n");
+    }
+
+    @Test
+    void numberParametersStillAcceptOtherValues() {
+        assertSameAsVM("fun twice(n) { return n + n; }\n"
+                + "print twice(4);\n"
+                + "print twice(\"ab\");\n"
+                + "print twice(1 / 0);\n", "8\nabab\nInfinity\n");
+    }
+
+    @Test
+    void capturedAndReceiverParametersKeepTheirCells() {
+        assertSameAsVM("class P { init(x) { this.x = x; } shifted(d) { fun add() { return this.x + d; } d = d * 2; return add(); } }\n"
+                + "fun adder(n) { fun add(m) { return n + m; } n = n + 1; return add; }\n"
+                + "print P(1).shifted(3);\n"
+                + "print adder(1)(2);\n", "7\n4\n");
+    }
+}
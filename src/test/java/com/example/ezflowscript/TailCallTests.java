@@ -0,0 +1,54 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TailCallTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit", "--jit-threshold=1"})
+    void selfRecursionRunsInConstantStack(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "fun count(n, acc) { if (n == 0) return acc; return count(n - 1, acc + 1); }\n"
+                        + "print count(100000, 0);\n",
+                engine);
+
+        assertEquals("", run.err);
+        assertEquals("100000\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit", "--jit-threshold=1"})
+    void mutualRecursionRunsInConstantStack(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "fun isEven(n) { if (n == 0) return true; return isOdd(n - 1); }\n"
+                        + "fun isOdd(n) { if (n == 0) return false; return isEven(n - 1); }\n"
+                        + "print isEven(100000);\n"
+                        + "print isOdd(100001);\n",
+                engine);
+
+        assertEquals("", run.err);
+        assertEquals("true\ntrue\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "--vm", "--closures", "--trace", "--jit", "--jit-threshold=1"})
+    void methodRecursionRunsInConstantStack(String engine) throws Exception {
+        ScriptRun run = ScriptRun.run(
+                "class Walker {\n"
+                        + "  init() { this.steps = 0; }\n"
+                        + "  walk(n) { if (n == 0) return this.steps; this.steps = this.steps + 1; return this.walk(n - 1); }\n"
+                        + "}\n"
+                        + "print Walker().walk(100000);\n",
+                engine);
+
+        assertEquals("", run.err);
+        assertEquals("100000\n", run.out);
+        assertEquals(0, run.exitCode);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TieringTests {
+
+    private static List<Stmt> run(String source, int threshold) {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(source, reporter, false, true, false);
+        compilation.run();
+        assertFalse(reporter.hadError, reporter.errors().toString());
+        Interpreter interpreter = new Interpreter();
+        interpreter.enableJit(threshold);
+        interpreter.interpret(compilation.statements, compilation.slotCount);
+        return compilation.statements;
+    }
+
+    @Test
+    void functionsArePromotedOnceTheyCrossTheThreshold() {
+        List<Stmt> statements = run("fun cold(n) { return n + 1; }\n"
+                + "fun hot(n) { return n + 1; }\n"
+                + "var x = 0;\n"
+                + "for (var i = 0; i < 4; i = i + 1) x = cold(x);\n"
+                + "for (var i = 0; i < 5; i = i + 1) x = hot(x);\n", 5);
+        Stmt.Function cold = (Stmt.Function)statements.get(0);
+        Stmt.Function hot = (Stmt.Function)statements.get(1);
+
+        assertNull(cold.compiled);
+        assertEquals(4, cold.hotness);
+        assertNotNull(hot.compiled);
+        assertTrue(hot.compiled.direct);
+    }
+
+    @Test
+    void brokenTypeAssumptionsFallBackToTheInterpreter() {
+        List<Stmt> statements = run("class Pair { init(a, b) { this.a = a; this.b = b; } }\n"
+                + "fun add(pair) { var a = pair.a; var b = pair.b; return a + b; }\n"
+                + "var x = 0;\n"
+                + "for (var i = 0; i < 10; i = i + 1) x = add(Pair(x, i));\n"
+                + "var s = add(Pair(\"a\", \"b\"));\n"
+                + "if (s != \"ab\" or x != 45) add(nil);\n", 3);
+        Stmt.Function add = (Stmt.Function)statements.get(1);
+        Expr.Binary sum = (Expr.Binary)((Stmt.Return)add.body.get(2)).value;
+
+        assertSame(BinaryNode.GENERIC, sum.node);
+        assertNull(add.compiled);
+        assertEquals(0, add.hotness);
+    }
+
+    @Test
+    void deoptimizedFunctionsKeepProducingTheWalkersResults() {
+        String source = "class Pair { init(a, b) { this.a = a; this.b = b; } }\n"
+                + "fun add(pair) { var a = pair.a; var b = pair.b; return a + b; }\n"
+                + "var x = 0;\n"
+                + "for (var i = 0; i < 10; i = i + 1) x = add(Pair(x, i));\n"
+                + "print x;\n"
+                + "print add(Pair(\"a\", \"b\"));\n"
+                + "for (var i = 0; i < 10; i = i + 1) x = add(Pair(x, 1));\n"
+                + "print x;\n";
+        Interpreter jit = new Interpreter();
+        jit.enableJit(3);
+
+        assertEquals(InProcessRun.walker(source).out, InProcessRun.walker(source, jit).out);
+        assertEquals("45\nab\n55\n", InProcessRun.walker(source).out);
+    }
+
+    @Test
+    void functionsTheJitCannotCompileStayInterpreted() {
+        List<Stmt> statements = run("fun make() { class Local { get() { return 1; } } return Local().get(); }\n"
+                + "var x = 0;\n"
+                + "for (var i = 0; i < 5; i = i + 1) x = x + make();\n"
+                + "if (x != 5) make(nil);\n", 2);
+        Stmt.Function make = (Stmt.Function)statements.get(0);
+
+        assertTrue(make.uncompilable);
+        assertNull(make.compiled);
+    }
+
+    @Test
+    void hotLoopsInColdFunctionsEnterCompiledCode() {
+        String source = "fun once(n) { var sum = 0; var i = 0; while (i < n) { sum = sum + i; i = i + 1; } return sum; }\n"
+                + "print once(1000);\n";
+        Interpreter jit = new Interpreter();
+        jit.enableJit(50);
+
+        assertEquals("499500\n", InProcessRun.walker(source, jit).out);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokenBufferTests {
+
+    private static String statements(int count) {
+        StringBuilder source = new StringBuilder("var total = 0;\n");
+        for (int i = 0; i < count; i++) {
+            source.append("total = total + ").append(i % 10).append(";\n");
+        }
+        return source.append("print total;\n").toString();
+    }
+
+    private static TokenBuffer parse(String source, boolean lazy, ErrorReporter reporter) {
+        TokenBuffer tokens = new Scanner(source, reporter).scanTokens();
+        new Parser(tokens, reporter, lazy, (Resolver)null).parse();
+        return tokens;
+    }
+
+    @Test
+    void parserReleasesTokensOfFinishedDeclarations() {
+        ErrorReporter reporter = new ErrorReporter();
+        TokenBuffer tokens = parse(statements(200000), false, reporter);
+
+        assertFalse(reporter.hadError);
+        assertEquals(1200009, tokens.size());
+        assertTrue(tokens.capacity() <= 65536, "window grew to " + tokens.capacity());
+    }
+
+    @Test
+    void lazyParsingKeepsEveryToken() {
+        ErrorReporter reporter = new ErrorReporter();
+        TokenBuffer tokens = parse(statements(20000), true, reporter);
+
+        assertFalse(reporter.hadError);
+        assertTrue(tokens.capacity() >= tokens.size());
+        assertEquals(TokenType.VAR, tokens.type(0));
+    }
+
+    @Test
+    void releasedWindowStillReportsErrorsOnTheRightLine() {
+        ErrorReporter reporter = new ErrorReporter();
+        parse(statements(30000) + "var = 1;\n", false, reporter);
+
+        assertTrue(reporter.hadError);
+        List<String> errors = reporter.errors();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("[line 30003]"), errors.get(0));
+    }
+
+    @Test
+    void largeFilesAreMappedAndRunLikeStrings(@TempDir Path directory) throws IOException {
+        String source = "var s = \"héllo\";\n" + statements(100000);
+        Path path = directory.resolve("large.ezf");
+        Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+
+        CharSequence mapped = MappedSource.read(path);
+        assertTrue(mapped instanceof MappedSource);
+        assertEquals(TokenType.STRING, new Scanner(mapped, new ErrorReporter()).scanTokens().type(3));
+        assertEquals("héllo", new Scanner(mapped, new ErrorReporter()).scanTokens().literal(3));
+
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(path, reporter, false, true, false);
+        compilation.run();
+        assertFalse(reporter.hadError);
+        InProcessRun run = InProcessRun.walker(source);
+        assertEquals("450000\n", run.out);
+    }
+}
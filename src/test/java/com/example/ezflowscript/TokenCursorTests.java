@@ -0,0 +1,87 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenCursorTests {
+
+    private static TokenBuffer scan(String source) {
+        return new Scanner(source, new ErrorReporter()).scanTokens();
+    }
+
+    @Test
+    void tokensAreScannedOnDemand() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            source.append("x = x + 1;\n");
+        }
+        TokenBuffer tokens = scan(source.toString());
+
+        assertEquals(0, tokens.size());
+        assertEquals(TokenType.IDENTIFIER, tokens.type(0));
+        assertTrue(tokens.size() < 1000, "scanned " + tokens.size() + " tokens up front");
+        assertEquals(TokenType.SEMICOLON, tokens.type(6 * 9999 + 5));
+        assertEquals(TokenType.EOF, tokens.type(6 * 10000));
+        assertEquals(6 * 10000 + 1, tokens.size());
+    }
+
+    @Test
+    void typesLexemesAndLines() {
+        TokenBuffer tokens = scan("var orchid = nil;\nprint orchid or\n  this.x >= 2;");
+        TokenType[] types = {TokenType.VAR, TokenType.IDENTIFIER, TokenType.EQUAL, TokenType.NIL, TokenType.SEMICOLON,
+                TokenType.PRINT, TokenType.IDENTIFIER, TokenType.OR, TokenType.THIS, TokenType.DOT, TokenType.IDENTIFIER,
+                TokenType.GREATER_EQUAL, TokenType.NUMBER, TokenType.SEMICOLON, TokenType.EOF};
+        int[] lines = {1, 1, 1, 1, 1, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3};
+
+        for (int i = 0; i < types.length; i++) {
+            Token token = tokens.token(i);
+            assertEquals(types[i], tokens.type(i), "token " + i);
+            assertEquals(types[i], token.type, "token " + i);
+            assertEquals(lines[i], token.line, "token " + i);
+        }
+        assertEquals("orchid", tokens.token(1).lexeme);
+        assertEquals(">=", tokens.token(11).lexeme);
+        assertEquals("", tokens.token(14).lexeme);
+    }
+
+    @Test
+    void identifiersAreInterned() {
+        TokenBuffer tokens = scan("cursorName cursorName");
+
+        assertSame(Symbol.intern("cursorName"), tokens.token(0).symbol);
+        assertSame(tokens.token(0).symbol, tokens.token(1).symbol);
+        assertSame(tokens.token(0).lexeme, tokens.token(1).lexeme);
+    }
+
+    @Test
+    void literalsAreParsedFromTheSource() {
+        TokenBuffer tokens = scan("12.5 \"two\nlines\" 7 \"\" true");
+
+        assertEquals(12.5, tokens.literal(0));
+        assertEquals("two\nlines", tokens.literal(1));
+        assertEquals("\"two\nlines\"", tokens.token(1).lexeme);
+        assertEquals("two\nlines", tokens.token(1).literal);
+        assertEquals(7.0, tokens.token(2).literal);
+        assertEquals(2, tokens.token(2).line);
+        assertEquals("", tokens.literal(3));
+        assertNull(tokens.literal(4));
+        assertNull(tokens.token(4).literal);
+    }
+
+    @Test
+    void scanErrorsAreReportedWhenReached() {
+        ErrorReporter reporter = new ErrorReporter();
+        TokenBuffer tokens = new Scanner("var a;\n@\n\"open", reporter).scanTokens();
+
+        assertFalse(reporter.hadError);
+        assertEquals(TokenType.VAR, tokens.type(0));
+        assertEquals(TokenType.EOF, tokens.type(3));
+        assertTrue(reporter.hadError);
+        assertEquals(2, reporter.errors().size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TraceTests {
+
+    private static List<Stmt> run(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(source, reporter, false, true, false);
+        compilation.run();
+        assertFalse(reporter.hadError, reporter.errors().toString());
+        Interpreter interpreter = new Interpreter();
+        interpreter.enableTracing();
+        interpreter.interpret(compilation.statements, compilation.slotCount);
+        return compilation.statements;
+    }
+
+    private static void assertSameAsWalker(String source, String expected) {
+        Interpreter tracing = new Interpreter();
+        tracing.enableTracing();
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun traced = InProcessRun.walker(source, tracing);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, traced.out);
+        assertEquals(walker.err, traced.err);
+    }
+
+    @Test
+    void hotLoopsAreRecorded() {
+        List<Stmt> statements = run("var i = 0;\n"
+                + "var sum = 0;\n"
+                + "while (i < 1000) { if (i < 0) sum = 0; else sum = sum + i; i = i + 1; }\n");
+        Stmt.While loop = (Stmt.While)statements.get(2);
+
+        assertNotNull(loop.trace);
+    }
+
+    @Test
+    void loopsThatCallAreNotRecorded() {
+        List<Stmt> statements = run("fun inc(n) { return n + 1; }\n"
+                + "var i = 0;\n"
+                + "while (i < 1000) i = inc(i);\n");
+        Stmt.While loop = (Stmt.While)statements.get(2);
+
+        assertNull(loop.trace);
+    }
+
+    @Test
+    void stableBranchesMatchTheWalker() {
+        assertSameAsWalker("var i = 0;\n"
+                + "var sum = 0;\n"
+                + "while (i < 1000) {\n"
+                + "  if (i >= 0) sum = sum + i; else sum = -1;\n"
+                + "  i = i + 1;\n"
+                + "}\n"
+                + "print sum;\n", "499500\n");
+    }
+
+    @Test
+    void guardExitsTakeTheOtherBranch() {
+        assertSameAsWalker("var i = 0;\n"
+                + "var hits = 0;\n"
+                + "var big = 0;\n"
+                + "while (i < 1000) {\n"
+                + "  if (i > 500) big = big + 1;\n"
+                + "  if (i == 700) hits = hits + 100;\n"
+                + "  i = i + 1;\n"
+                + "}\n"
+                + "print big;\n"
+                + "print hits;\n", "499\n100\n");
+    }
+
+    @Test
+    void unstableBranchesAbandonTheTrace() {
+        assertSameAsWalker("var i = 0;\n"
+                + "var flip = true;\n"
+                + "var a = 0;\n"
+                + "var b = 0;\n"
+                + "while (i < 2000) {\n"
+                + "  if (i > 100 and flip) a = a + 1; else b = b + 1;\n"
+                + "  flip = !flip;\n"
+                + "  i = i + 1;\n"
+                + "}\n"
+                + "print a;\n"
+                + "print b;\n", "949\n1051\n");
+    }
+
+    @Test
+    void returnsInsideTracedLoopsLeaveTheFunction() {
+        assertSameAsWalker("fun first(limit) {\n"
+                + "  var i = 0;\n"
+                + "  while (i < limit) {\n"
+                + "    if (i * i > 40000) return i;\n"
+                + "    i = i + 1;\n"
+                + "  }\n"
+                + "  return -1;\n"
+                + "}\n"
+                + "print first(1000);\n"
+                + "print first(10);\n", "201\n-1\n");
+    }
+
+    @Test
+    void runtimeErrorsInsideTracesReportTheirLine() {
+        assertSameAsWalker("var i = 0;\n"
+                + "var x = 0;\n"
+                + "while (i < 500) {\n"
+                + "  if (i == 300) x = \"s\";\n"
+                + "  x = x - 1;\n"
+                + "  i = i + 1;\n"
+                + "}\n"
+                + "print x;\n", "");
+    }
+}
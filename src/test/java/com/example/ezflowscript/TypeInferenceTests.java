@@ -0,0 +1,99 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TypeInferenceTests {
+
+    private static List<Stmt> infer(String source) {
+        ErrorReporter reporter = new ErrorReporter();
+        Compilation compilation = new Compilation(source, reporter, false, true, false);
+        compilation.run();
+        assertFalse(reporter.hadError, reporter.errors().toString());
+        return compilation.statements;
+    }
+
+    private static Expr returned(Stmt.Function function) {
+        return ((Stmt.Return)function.body.get(function.body.size() - 1)).value;
+    }
+
+    private static void assertSameAsVM(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void loopCountersAreNumbers() {
+        Stmt.Function count = (Stmt.Function)infer("fun count(n) {\n"
+                + "  var i = 0;\n"
+                + "  while (i < n) i = i + 1;\n"
+                + "  return i + 0;\n"
+                + "}\n").get(0);
+        Stmt.While loop = (Stmt.While)count.body.get(1);
+        Expr.Assign step = (Expr.Assign)((Stmt.Expression)loop.body).expression;
+
+        assertEquals(ValueType.BOOLEAN, loop.condition.type);
+        assertEquals(ValueType.NUMBER, step.value.type);
+        assertEquals(ValueType.NUMBER, returned(count).type);
+    }
+
+    @Test
+    void mixedCapturedAndGlobalVariablesStayUnknown() {
+        List<Stmt> statements = infer("var g = 1;\n"
+                + "fun mixed() { var x = 1; x = \"s\"; return x + 1; }\n"
+                + "fun captured() { var c = 1; fun inner() { return c; } return c + 1; }\n"
+                + "fun global() { return g + 1; }\n");
+
+        assertEquals(ValueType.UNKNOWN, returned((Stmt.Function)statements.get(1)).type);
+        assertEquals(ValueType.UNKNOWN, returned((Stmt.Function)statements.get(2)).type);
+        assertEquals(ValueType.UNKNOWN, returned((Stmt.Function)statements.get(3)).type);
+    }
+
+    @Test
+    void parametersOnlyUsedArithmeticallyAreNumbers() {
+        List<Stmt> statements = infer("fun both(a, b) { return a * b; }\n"
+                + "fun first(a, o) { print o; return a - 1; }\n"
+                + "fun none(o) { print o; }\n"
+                + "fun assigned(a) { a = 2; return a - 1; }\n");
+
+        assertArrayEquals(new boolean[] {true, true}, ((Stmt.Function)statements.get(0)).numberParams);
+        assertArrayEquals(new boolean[] {true, false}, ((Stmt.Function)statements.get(1)).numberParams);
+        assertNull(((Stmt.Function)statements.get(2)).numberParams);
+        assertNull(((Stmt.Function)statements.get(3)).numberParams);
+    }
+
+    @Test
+    void methodsSkipTheReceiverSlot() {
+        Stmt.Class point = (Stmt.Class)infer("class P { scale(k, o) { print o; return k * 2; } }\n").get(0);
+
+        assertArrayEquals(new boolean[] {true, false}, point.methods.get(0).numberParams);
+    }
+
+    @Test
+    void typedCodeMatchesTheUntypedVM() {
+        assertSameAsVM("fun sum(n) { var s = 0; var i = 0; while (i < n) { s = s + i * 2; i = i + 1; } return s; }\n"
+                + "fun scale(a, b) { return a * b - a / b; }\n"
+                + "print sum(100);\n"
+                + "print scale(6, 3);\n"
+                + "print -scale(1, 4) <= 0;\n", "9900\n16\ntrue\n");
+    }
+
+    @Test
+    void nonNumberArgumentsFallBackToTheUntypedPath() {
+        assertSameAsVM("fun twice(a) { return a + a; }\n"
+                + "fun dec(a) { return a - 1; }\n"
+                + "print twice(2);\n"
+                + "print twice(\"ab\");\n"
+                + "print dec(1);\n"
+                + "print dec(\"x\");\n", "4\nabab\n0\n");
+    }
+}
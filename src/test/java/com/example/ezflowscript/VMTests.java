@@ -0,0 +1,116 @@
+package com.example.ezflowscript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class VMTests {
+
+    private static void assertSameAsWalker(String source, String expected) {
+        InProcessRun walker = InProcessRun.walker(source);
+        InProcessRun vm = InProcessRun.vm(source);
+
+        assertEquals(expected, walker.out);
+        assertEquals(walker.out, vm.out);
+        assertEquals(walker.err, vm.err);
+    }
+
+    @Test
+    void arithmeticOnLocalsGlobalsAndConstants() {
+        assertSameAsWalker("var g = 10;\n"
+                + "fun f(a, b) { var c = a * b; return c - a / 4 + g; }\n"
+                + "print f(3, 4);\n"
+                + "print -g + 0.5;\n"
+                + "print g / 0;\n", "21.25\n-9.5\nInfinity\n");
+    }
+
+    @Test
+    void fusedComparisonsBranchOnLocalsAndConstants() {
+        assertSameAsWalker("fun count(n) {\n"
+                + "  var i = 0; var below = 0; var above = 0;\n"
+                + "  while (i < n) {\n"
+                + "    if (i <= 2) below = below + 1;\n"
+                + "    if (i > n - 2) above = above + 1;\n"
+                + "    if (i >= n) print \"never\";\n"
+                + "    i = i + 1;\n"
+                + "  }\n"
+                + "  return below * 10 + above;\n"
+                + "}\n"
+                + "print count(6);\n", "31\n");
+    }
+
+    @Test
+    void numbersSurviveUpvaluesFieldsAndCalls() {
+        assertSameAsWalker("fun counter() { var n = 0; fun next() { n = n + 1; return n; } return next; }\n"
+                + "var c = counter();\n"
+                + "c(); c();\n"
+                + "print c();\n"
+                + "class P { init(x) { this.x = x; } twice() { return this.x * 2; } }\n"
+                + "var p = P(21);\n"
+                + "print p.twice();\n"
+                + "p.x = p.x + 0.5;\n"
+                + "print p.x;\n", "3\n42\n21.5\n");
+    }
+
+    @Test
+    void equalityMatchesTheWalker() {
+        assertSameAsWalker("var nan = 0 / 0;\n"
+                + "print nan == nan;\n"
+                + "print 0 == -0;\n"
+                + "print 1 == 1;\n"
+                + "print 1 != 2;\n"
+                + "print 1 == \"1\";\n"
+                + "print nil == false;\n"
+                + "print \"a\" + \"b\" == \"ab\";\n", "true\nfalse\ntrue\ntrue\nfalse\nfalse\ntrue\n");
+    }
+
+    @Test
+    void truthinessOfNumbers() {
+        assertSameAsWalker("if (0) print \"zero\";\n"
+                + "print !0;\n"
+                + "print 1 and 2;\n"
+                + "print nil or 3;\n", "zero\nfalse\n2\n3\n");
+    }
+
+    @Test
+    void stringsConcatenateWithLocalAndConstantOperands() {
+        assertSameAsWalker("fun f(s) { var t = \"!\"; return s + t; }\n"
+                + "print f(\"hi\");\n", "hi!\n");
+    }
+
+    @Test
+    void typeErrorsReportTheOperatorLine() {
+        InProcessRun vm = InProcessRun.vm("fun f(s) {\n  return s - 1;\n}\nf(\"x\");\n");
+
+        assertEquals("Operands must be numbers.\n[line 2]\n", vm.err);
+        assertEquals(vm.err, InProcessRun.walker("fun f(s) {\n  return s - 1;\n}\nf(\"x\");\n").err);
+    }
+
+    @Test
+    void addingNumberConstantToStringFails() {
+        InProcessRun vm = InProcessRun.vm("var s = \"a\";\nprint s + 1;\n");
+
+        assertEquals("Operands must be two numbers or Strings\n[line 2]\n", vm.err);
+    }
+
+    @Test
+    void comparingStringWithConstantFails() {
+        InProcessRun vm = InProcessRun.vm("fun f(s) {\n  if (s < 3) print s;\n}\nf(\"x\");\n");
+
+        assertEquals("Operands must be numbers.\n[line 2]\n", vm.err);
+    }
+
+    @Test
+    void deepRecursionGrowsTheTaggedStack() {
+        InProcessRun vm = InProcessRun.vm("fun sum(n) { if (n == 0) return 0; return n + sum(n - 1); }\n"
+                + "print sum(2000);\n");
+
+        assertEquals("2001000\n", vm.out);
+        assertEquals("", vm.err);
+    }
+
+    @Test
+    void nativeClockReturnsANumber() {
+        assertSameAsWalker("var t = clock();\nprint t > 0;\nprint t - t;\n", "true\n0\n");
+    }
+}